@@ -0,0 +1,53 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import logtracker.pocket.lumenmobileapp.config.AlertRuleProperties;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AlertService#checkStats} with the default rules (CPU, and memory sustained for 2 minutes)
+ * on samples that stay below the thresholds, i.e. the path every sample takes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlertEvaluationBenchmark {
+
+    private AlertService alertService;
+    private ContainerStats stats;
+
+    @Setup
+    public void setup() {
+        AlertRuleProperties properties = new AlertRuleProperties();
+        properties.setRules(List.of(rule(AlertMetric.CPU, 80, Duration.ZERO), rule(AlertMetric.MEMORY, 90, Duration.ofMinutes(2))));
+        // No overrides to match, so the engine never looks the container up
+        AlertRuleEngine ruleEngine = new AlertRuleEngine(properties, null);
+        ruleEngine.compile();
+        // Collaborators only used once an alert fires
+        alertService = new AlertService(null, null, null, ruleEngine, new SimpleMeterRegistry());
+        alertService.init();
+        stats = new ContainerStats();
+        StatsDerivation.derive(Fixtures.CONTAINER_ID, Fixtures.statistics(), stats);
+    }
+
+    @Benchmark
+    public void checkStats() {
+        alertService.checkStats("shop-api-1", stats);
+    }
+
+    private static AlertRuleProperties.Rule rule(AlertMetric metric, double fireAbove, Duration sustain) {
+        AlertRuleProperties.Rule rule = new AlertRuleProperties.Rule();
+        rule.setMetric(metric);
+        rule.setFireAbove(fireAbove);
+        rule.setSustain(sustain);
+        return rule;
+    }
+}
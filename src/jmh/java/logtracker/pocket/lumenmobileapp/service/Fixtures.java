@@ -0,0 +1,95 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.Statistics;
+import com.github.dockerjava.api.model.StreamType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stats samples and log frames as the Docker daemon sends them, for the benchmarks.
+ */
+final class Fixtures {
+
+    static final String CONTAINER_ID = "3f4e8a1c9b2d7e6f5a4b3c2d1e0f9a8b7c6d5e4f3a2b1c0d9e8f7a6b5c4d3e2f";
+
+    // One streaming stats sample of a compose service on two networks (API 1.43, cgroup v2)
+    private static final String STATS_JSON = """
+            {
+              "read": "2026-01-25T12:30:01.512748231Z",
+              "preread": "2026-01-25T12:30:00.509884102Z",
+              "pids_stats": {"current": 23, "limit": 18946},
+              "blkio_stats": {"io_service_bytes_recursive": [
+                {"major": 259, "minor": 0, "op": "read", "value": 31055872},
+                {"major": 259, "minor": 0, "op": "write", "value": 4096}
+              ]},
+              "num_procs": 0,
+              "cpu_stats": {
+                "cpu_usage": {"total_usage": 184467440737, "usage_in_kernelmode": 31250000000, "usage_in_usermode": 153217440737},
+                "system_cpu_usage": 9804150000000000,
+                "online_cpus": 8,
+                "throttling_data": {"periods": 0, "throttled_periods": 0, "throttled_time": 0}
+              },
+              "precpu_stats": {
+                "cpu_usage": {"total_usage": 184337440737, "usage_in_kernelmode": 31240000000, "usage_in_usermode": 153097440737},
+                "system_cpu_usage": 9804142010000000,
+                "online_cpus": 8,
+                "throttling_data": {"periods": 0, "throttled_periods": 0, "throttled_time": 0}
+              },
+              "memory_stats": {
+                "usage": 157286400,
+                "limit": 8233689088,
+                "stats": {"active_anon": 0, "anon": 118685696, "file": 31318016, "inactive_file": 12288000, "kernel": 5447680}
+              },
+              "name": "/shop-api-1",
+              "id": "3f4e8a1c9b2d7e6f5a4b3c2d1e0f9a8b7c6d5e4f3a2b1c0d9e8f7a6b5c4d3e2f",
+              "networks": {
+                "eth0": {"rx_bytes": 52428800, "rx_packets": 61440, "rx_errors": 0, "rx_dropped": 0,
+                         "tx_bytes": 31457280, "tx_packets": 40960, "tx_errors": 0, "tx_dropped": 0},
+                "eth1": {"rx_bytes": 1048576, "rx_packets": 2048, "rx_errors": 0, "rx_dropped": 0,
+                         "tx_bytes": 524288, "tx_packets": 1024, "tx_errors": 0, "tx_dropped": 0}
+              }
+            }
+            """;
+
+    private Fixtures() {
+    }
+
+    static Statistics statistics() {
+        try {
+            // Like docker-java itself, ignore fields newer than its model
+            return new ObjectMapper()
+                    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(STATS_JSON, Statistics.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Frames of a follow-mode log stream with timestamps: mostly one line per frame, some frames with
+     * several lines, and a long stack-trace line split over two frames.
+     */
+    static Frame[] logFrames() {
+        return new Frame[]{
+                frame(StreamType.STDOUT, "2026-01-25T12:30:01.102938475Z 2026-01-25 12:30:01.102 INFO 1 --- [nio-8080-exec-3] c.s.api.OrderController : GET /orders/48213 200 12ms\n"),
+                frame(StreamType.STDOUT, "2026-01-25T12:30:01.118273645Z 2026-01-25 12:30:01.118 DEBUG 1 --- [nio-8080-exec-5] o.h.SQL : select o1_0.id,o1_0.created_at,o1_0.customer_id from orders o1_0 where o1_0.id=?\n"),
+                frame(StreamType.STDOUT, "2026-01-25T12:30:01.120001000Z 10.0.3.17 - - [25/Jan/2026:12:30:01 +0000] \"GET /health HTTP/1.1\" 200 15 \"-\" \"kube-probe/1.29\"\n"
+                        + "2026-01-25T12:30:01.120455000Z 10.0.3.18 - - [25/Jan/2026:12:30:01 +0000] \"GET /health HTTP/1.1\" 200 15 \"-\" \"kube-probe/1.29\"\n"
+                        + "2026-01-25T12:30:01.121937000Z 10.0.3.17 - - [25/Jan/2026:12:30:01 +0000] \"POST /orders HTTP/1.1\" 201 342 \"-\" \"okhttp/4.12.0\"\n"),
+                frame(StreamType.STDERR, "2026-01-25T12:30:01.250118273Z 2026-01-25 12:30:01.250 WARN 1 --- [   scheduling-1] c.s.sync.InventorySync : Upstream answered 503, retrying in 2000 ms (attempt 2/5)\n"),
+                frame(StreamType.STDERR, "2026-01-25T12:30:01.301928374Z java.lang.IllegalStateException: Payment provider rejected request: {\"code\":\"card_declined\",\"decline_code\":\"insufficient_funds\","),
+                frame(StreamType.STDERR, "2026-01-25T12:30:01.301928374Z \"message\":\"Your card has insufficient funds.\",\"request_id\":\"req_8Hn2kQ1zXy\"}\n"),
+                frame(StreamType.STDOUT, "2026-01-25T12:30:01.402837465Z {\"ts\":\"2026-01-25T12:30:01.402Z\",\"level\":\"info\",\"msg\":\"cache refreshed\",\"entries\":18422,\"took_ms\":37}\n"),
+                frame(StreamType.STDOUT, "2026-01-25T12:30:01.500000000Z ✓ Übersicht aktualisiert — 12 Bestellungen\n"),
+        };
+    }
+
+    private static Frame frame(StreamType type, String payload) {
+        return new Frame(type, payload.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,40 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.model.Frame;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting Docker log frames into timestamped lines, which runs for every frame of every followed
+ * container. One operation parses the whole fixture stream (8 frames, 10 lines).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogFrameParserBenchmark {
+
+    private final LogFrameParser parser = new LogFrameParser();
+    private Frame[] frames;
+
+    @Setup
+    public void setup() {
+        frames = Fixtures.logFrames();
+    }
+
+    @Benchmark
+    public void parseFrames(Blackhole blackhole) {
+        for (Frame frame : frames) {
+            parser.parse(frame, blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public long parseTimestamp() {
+        return LogFrameParser.toEpochMillis("2026-01-25T12:30:01.102938475Z");
+    }
+}
@@ -0,0 +1,39 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.model.Statistics;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deriving CPU, memory and network figures from a raw Docker stats sample, which runs once per
+ * second for every watched container.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsMappingBenchmark {
+
+    private final ContainerStats sample = new ContainerStats();
+    private Statistics statistics;
+
+    @Setup
+    public void setup() {
+        statistics = Fixtures.statistics();
+    }
+
+    @Benchmark
+    public ContainerStats derive() {
+        StatsDerivation.derive(Fixtures.CONTAINER_ID, statistics, sample);
+        return sample;
+    }
+
+    @Benchmark
+    public double cpuPercent() {
+        return StatsDerivation.cpuPercent(statistics);
+    }
+}
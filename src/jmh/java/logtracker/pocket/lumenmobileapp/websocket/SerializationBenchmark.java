@@ -0,0 +1,62 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of the messages pushed to /logs and /stats sessions: the generic ObjectMapper path
+ * and the pooled streaming writer the stats hub uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private LogMessage logMessage;
+    private ContainerStats containerStats;
+
+    @Setup
+    public void setup() {
+        logMessage = LogMessage.builder()
+                .timestamp("2026-01-25T12:30:01.102938475Z")
+                .timestampMillis(1769344201102L)
+                .stream("stdout")
+                .line("2026-01-25 12:30:01.102 INFO 1 --- [nio-8080-exec-3] c.s.api.OrderController : GET /orders/48213 200 12ms")
+                .sequence(1769344201102000L)
+                .build();
+        containerStats = ContainerStats.builder()
+                .containerId("3f4e8a1c9b2d7e6f5a4b3c2d1e0f9a8b7c6d5e4f3a2b1c0d9e8f7a6b5c4d3e2f")
+                .cpuUsage(13.016270337922403)
+                .memoryUsage(157286400)
+                .memoryLimit(8233689088L)
+                .memoryPercent(1.9102901140041236)
+                .networkRx(53477376)
+                .networkTx(31981568)
+                .build();
+    }
+
+    @Benchmark
+    public String logMessage() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(logMessage);
+    }
+
+    @Benchmark
+    public String containerStats() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(containerStats);
+    }
+
+    @Benchmark
+    public String containerStatsWriter() throws IOException {
+        return StatsJsonWriter.write(containerStats);
+    }
+}
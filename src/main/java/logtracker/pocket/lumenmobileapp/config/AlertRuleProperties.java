@@ -0,0 +1,46 @@
+package logtracker.pocket.lumenmobileapp.config;
+
+import logtracker.pocket.lumenmobileapp.service.AlertMetric;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Alert rules, bound from {@code app.alert.rules[n].*}. A rule fires when the metric (averaged over
+ * {@code sustain}, or the plain sample when it is zero) goes above {@code fire-above}, and clears once it
+ * drops below {@code clear-below}. Overrides replace thresholds for matching containers or labels.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.alert")
+public class AlertRuleProperties {
+
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        private String name;
+        private AlertMetric metric;
+        private boolean enabled = true;
+        private double fireAbove;
+        // Defaults to fireAbove, i.e. no hysteresis
+        private Double clearBelow;
+        private Duration sustain = Duration.ZERO;
+        private List<Override> overrides = new ArrayList<>();
+    }
+
+    @Data
+    public static class Override {
+        // Container name, id or id prefix
+        private String container;
+        // "key=value", or just "key" to match any value
+        private String label;
+        private Boolean enabled;
+        private Double fireAbove;
+        private Double clearBelow;
+    }
+}
@@ -1,9 +1,8 @@
 package logtracker.pocket.lumenmobileapp.config;
 
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.core.DefaultDockerClientConfig;
-import com.github.dockerjava.core.DockerClientImpl;
-import com.github.dockerjava.zerodep.ZerodepDockerHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import logtracker.pocket.lumenmobileapp.transport.DockerTransport;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -17,20 +16,20 @@ public class DockerConfig {
     private String dockerHost;
 
     @Bean
-    public DockerClient dockerClient() {
+    public DockerTransport dockerTransport(DockerHostProperties properties, MeterRegistry meterRegistry) {
+        return new DockerTransport(properties, meterRegistry);
+    }
+
+    /**
+     * Request client of {@code docker.host}; streams go through {@link logtracker.pocket.lumenmobileapp.service.DockerHostRegistry}.
+     */
+    @Bean
+    public DockerClient dockerClient(DockerTransport dockerTransport, DockerHostProperties properties) {
         log.info("Establishing Docker connection...");
         log.info("Docker host: {}", dockerHost);
 
         try {
-            var config = DefaultDockerClientConfig.createDefaultConfigBuilder()
-                    .withDockerHost(dockerHost)
-                    .build();
-
-            var httpClient = new ZerodepDockerHttpClient.Builder()
-                    .dockerHost(config.getDockerHost())
-                    .build();
-
-            var client = DockerClientImpl.getInstance(config, httpClient);
+            var client = dockerTransport.requestClient(properties.getLocalName(), dockerHost);
 
             log.info("Testing Docker connection...");
             client.pingCmd().exec();
@@ -44,4 +43,4 @@ public class DockerConfig {
             throw new IllegalStateException("Cannot start without Docker: " + dockerHost, e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,49 @@
+package logtracker.pocket.lumenmobileapp.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Docker endpoints watched besides {@code docker.host}, bound from {@code app.docker.*}. The host given by
+ * {@code docker.host} is called {@code local-name}; each entry of {@code hosts} adds a named endpoint
+ * ({@code tcp://...}, {@code unix://...}). Calls fanned out to all hosts give up on a host after {@code timeout}.
+ * Short calls use a {@code requests} pool per host and give up after {@code response-timeout}; long-lived
+ * streams opened for websocket sessions share the global {@code streams} budget, while the background
+ * collectors' streams (two per running container, plus events) use a {@code collectors} pool per host whose
+ * capacity is only a safety ceiling.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.docker")
+public class DockerHostProperties {
+
+    private String localName = "local";
+    private Duration timeout = Duration.ofSeconds(5);
+    private List<Host> hosts = new ArrayList<>();
+    private Duration responseTimeout = Duration.ofSeconds(60);
+    private Pool requests = new Pool(16, 256, Duration.ofSeconds(10));
+    private Pool streams = new Pool(64, 16, Duration.ofSeconds(2));
+    private Pool collectors = new Pool(4096, 0, Duration.ZERO);
+
+    @Data
+    public static class Host {
+        private String name;
+        private String url;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Pool {
+        private int maxConnections;
+        private int maxQueued;
+        private Duration acquireTimeout;
+    }
+}
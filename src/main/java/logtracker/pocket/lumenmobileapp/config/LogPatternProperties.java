@@ -0,0 +1,35 @@
+package logtracker.pocket.lumenmobileapp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Log pattern alerts, bound from {@code app.log-alerts.*}. Each pattern is either a plain {@code literal}
+ * or a {@code regex}; it fires when a container logs {@code threshold} matching lines within {@code window}.
+ * A regex is only evaluated on lines containing its {@code prefilter} literal, which is derived from the
+ * regex when not given.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.log-alerts")
+public class LogPatternProperties {
+
+    private boolean enabled = true;
+    private boolean caseSensitive = false;
+    private List<Pattern> patterns = new ArrayList<>();
+
+    @Data
+    public static class Pattern {
+        private String name;
+        private String literal;
+        private String regex;
+        private String prefilter;
+        private int threshold = 1;
+        private Duration window = Duration.ofMinutes(1);
+    }
+}
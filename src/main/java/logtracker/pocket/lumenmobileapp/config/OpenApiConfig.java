@@ -35,8 +35,9 @@ public class OpenApiConfig {
                                 .get(new Operation()
                                         .addTagsItem("WebSockets")
                                         .summary("Stream container logs (WebSocket)")
-                                        .description("WebSocket connection to read container logs in real-time. URL format: ws://{host}:{port}/logs?containerId={id}")
+                                        .description("WebSocket connection to read container logs in real-time. URL format: ws://{host}:{port}/logs?containerId={id}&cursor={optional_sequence}")
                                         .addParametersItem(new Parameter().name("containerId").in("query").required(true).description("ID of the container"))
+                                        .addParametersItem(new Parameter().name("cursor").in("query").required(false).description("Sequence of the last line received; on reconnect only newer lines are sent (optional)"))
                                         .responses(new ApiResponses().addApiResponse("101", new ApiResponse().description("Switching Protocols (WebSocket success)")))))
                         .addPathItem("/stats", new PathItem()
                                 .get(new Operation()
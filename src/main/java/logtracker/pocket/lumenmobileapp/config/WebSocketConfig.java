@@ -1,5 +1,7 @@
 package logtracker.pocket.lumenmobileapp.config;
 
+import logtracker.pocket.lumenmobileapp.websocket.AggregateWebSocketHandler;
+import logtracker.pocket.lumenmobileapp.websocket.DashboardWebSocketHandler;
 import logtracker.pocket.lumenmobileapp.websocket.LogWebSocketHandler;
 import logtracker.pocket.lumenmobileapp.websocket.StatsWebSocketHandler;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +17,8 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     private final LogWebSocketHandler logWebSocketHandler;
     private final StatsWebSocketHandler statsWebSocketHandler;
+    private final DashboardWebSocketHandler dashboardWebSocketHandler;
+    private final AggregateWebSocketHandler aggregateWebSocketHandler;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
@@ -22,5 +26,9 @@ public class WebSocketConfig implements WebSocketConfigurer {
                 .setAllowedOrigins("*");
         registry.addHandler(statsWebSocketHandler, "/stats")
                 .setAllowedOrigins("*");
+        registry.addHandler(dashboardWebSocketHandler, "/stats/all")
+                .setAllowedOrigins("*");
+        registry.addHandler(aggregateWebSocketHandler, "/aggregates")
+                .setAllowedOrigins("*");
     }
 }
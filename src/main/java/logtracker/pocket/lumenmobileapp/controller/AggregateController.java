@@ -0,0 +1,42 @@
+package logtracker.pocket.lumenmobileapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import logtracker.pocket.lumenmobileapp.model.AggregateMetrics;
+import logtracker.pocket.lumenmobileapp.service.AggregateMetricsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/aggregates")
+@RequiredArgsConstructor
+@Tag(name = "Aggregates", description = "Resource usage summed per compose project, image or label")
+public class AggregateController {
+
+    private final AggregateMetricsService aggregateMetricsService;
+
+    @Operation(summary = "Get aggregated usage", description = "Returns the summed CPU, memory and network usage of the running containers, grouped by compose project, image or a configured label (app.aggregates.labels), largest CPU first. Containers without a value for the dimension are left out.")
+    @GetMapping
+    public List<AggregateMetrics> getAggregates(
+            @Parameter(description = "project, image or label:<key>") @RequestParam(defaultValue = AggregateMetricsService.PROJECT) String by) {
+        try {
+            return aggregateMetricsService.get(by);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @Operation(summary = "List aggregation dimensions", description = "Returns the values accepted by 'by'.")
+    @GetMapping("/dimensions")
+    public List<String> getDimensions() {
+        return aggregateMetricsService.getDimensions();
+    }
+}
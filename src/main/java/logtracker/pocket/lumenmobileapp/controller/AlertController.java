@@ -1,14 +1,19 @@
 package logtracker.pocket.lumenmobileapp.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import logtracker.pocket.lumenmobileapp.model.Alert;
+import logtracker.pocket.lumenmobileapp.model.SweepReport;
 import logtracker.pocket.lumenmobileapp.service.AlertService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
@@ -20,10 +25,21 @@ public class AlertController {
 
     private final AlertService alertService;
 
-    @Operation(summary = "Get alert history", description = "Retrieves a list of recent resource usage alerts (e.g., high CPU).")
+    @Operation(summary = "Get alert history", description = "Retrieves recent resource usage alerts (e.g., high CPU), newest first. To page to older alerts pass the sequence of the last alert received as 'before'. Times accept ISO-8601 or Unix epoch millis.")
     @GetMapping("/history")
-    public List<Alert> getHistory() {
-        return alertService.getAlertHistory();
+    public List<Alert> getHistory(
+            @Parameter(description = "Only alerts with a sequence lower than this") @RequestParam(required = false) Long before,
+            @Parameter(description = "Maximum number of alerts") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(description = "Container ID or name") @RequestParam(required = false) String containerId,
+            @Parameter(description = "Alert type, e.g. CPU") @RequestParam(required = false) String type,
+            @Parameter(description = "Only alerts at or after this time") @RequestParam(required = false) String from,
+            @Parameter(description = "Only alerts at or before this time") @RequestParam(required = false) String to) {
+        if (limit < 1 || limit > alertService.getHistoryCapacity()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'limit' must be between 1 and " + alertService.getHistoryCapacity());
+        }
+        return alertService.getAlertHistory(before, limit, containerId, type,
+                from != null ? Instant.ofEpochMilli(StatsController.parseTime(from)) : null,
+                to != null ? Instant.ofEpochMilli(StatsController.parseTime(to)) : null);
     }
 
     @Operation(summary = "Clear alert history", description = "Deletes all recorded alerts from the history.")
@@ -32,6 +48,12 @@ public class AlertController {
         alertService.clearHistory();
     }
 
+    @Operation(summary = "Get last monitoring sweep", description = "Returns duration and coverage of the most recent polling sweep, or nothing if no sweep has finished yet. Polling only runs when app.monitoring.poll.enabled is set; streaming collection is the default.")
+    @GetMapping("/monitoring")
+    public SweepReport getLastSweep() {
+        return alertService.getLastSweep();
+    }
+
     @Operation(summary = "Get alert settings", description = "Retrieves the current notification settings, including whether notifications are enabled and the recipient email.")
     @GetMapping("/settings")
     public Map<String, Object> getSettings() {
@@ -1,8 +1,6 @@
 package logtracker.pocket.lumenmobileapp.controller;
 
-import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.command.InspectContainerResponse;
-import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.command.InspectVolumeResponse;
 import com.github.dockerjava.api.model.Image;
 import com.github.dockerjava.api.model.Network;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,13 +8,25 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import logtracker.pocket.lumenmobileapp.model.BulkRequest;
+import logtracker.pocket.lumenmobileapp.model.BulkResult;
 import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.model.HostResource;
+import logtracker.pocket.lumenmobileapp.service.BulkOperationService;
+import logtracker.pocket.lumenmobileapp.service.ContainerInventory;
+import logtracker.pocket.lumenmobileapp.service.DockerHostRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -25,73 +35,47 @@ import java.util.stream.Collectors;
 @Tag(name = "Containers", description = "Endpoints for managing and inspecting Docker containers")
 public class ContainerController {
 
-    private final DockerClient dockerClient;
+    static final String UNREACHABLE_HOSTS_HEADER = "X-Docker-Unreachable-Hosts";
 
-    @Operation(summary = "List all containers", description = "Retrieves a list of all containers, including running and stopped ones.")
+    private final DockerHostRegistry dockerHostRegistry;
+    private final ContainerInventory containerInventory;
+    private final BulkOperationService bulkOperationService;
+
+    @Operation(summary = "List all containers", description = "Retrieves a list of all containers, including running and stopped ones, of every Docker host. Local containers are served from the in-process inventory; with a single host send the returned ETag as If-None-Match to get a 304 when nothing changed. Hosts that do not answer in time are listed in the X-Docker-Unreachable-Hosts header.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved containers"),
+            @ApiResponse(responseCode = "304", description = "Container list unchanged since the given ETag")
+    })
     @GetMapping
-    public List<ContainerInfo> listContainers() {
-        log.info("Fetching all containers (including stopped)");
-        List<Container> containers = dockerClient.listContainersCmd()
-                .withShowAll(true)
-                .exec();
-
-        return containers.stream()
-                .map(this::mapToContainerInfo)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<ContainerInfo>> listContainers(WebRequest request) {
+        if (!dockerHostRegistry.isFederated() && request.checkNotModified(containerInventory.getETag())) {
+            return null;
+        }
+        log.debug("Serving container list from inventory");
+        return withFailures(dockerHostRegistry.listContainers());
     }
 
-    @Operation(summary = "Get container details", description = "Fetches detailed information about a specific container, including environment variables and port bindings.")
+    @Operation(summary = "Get container details", description = "Fetches detailed information about a specific container, including environment variables and port bindings. Accepts a full id, short id or container name.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved container details"),
+            @ApiResponse(responseCode = "304", description = "Container unchanged since the given ETag"),
             @ApiResponse(responseCode = "404", description = "Container not found")
     })
     @GetMapping("/{id}")
-    public ContainerInfo getContainer(@Parameter(description = "ID of the container to inspect") @PathVariable String id) {
-        log.info("Inspecting container: {}", id);
-        InspectContainerResponse container = dockerClient.inspectContainerCmd(id).exec();
-        
-        Map<String, String> envVars = Collections.emptyMap();
-        if (container.getConfig() != null && container.getConfig().getEnv() != null) {
-            envVars = Arrays.stream(container.getConfig().getEnv())
-                    .filter(s -> s.contains("="))
-                    .map(s -> s.split("=", 2))
-                    .collect(Collectors.toMap(s -> s[0], s -> s[1], (v1, v2) -> v1));
+    public ContainerInfo getContainer(@Parameter(description = "ID of the container to inspect") @PathVariable String id, WebRequest request) {
+        String etag = containerInventory.getDetailsETag(id);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
         }
-
-        List<String> ports = Collections.emptyList();
-        if (container.getNetworkSettings() != null && container.getNetworkSettings().getPorts() != null) {
-            ports = container.getNetworkSettings().getPorts().getBindings().entrySet().stream()
-                    .map(entry -> entry.getKey().toString() + " -> " + 
-                            (entry.getValue() != null ? Arrays.toString(entry.getValue()) : "none"))
-                    .collect(Collectors.toList());
-        }
-
-        List<String> mounts = Collections.emptyList();
-        if (container.getMounts() != null) {
-            mounts = container.getMounts().stream()
-                    .map(m -> (m.getSource() != null ? m.getSource() : "") + ":" + 
-                            (m.getDestination() != null ? m.getDestination() : ""))
-                    .collect(Collectors.toList());
-        }
-
-        return ContainerInfo.builder()
-                .id(container.getId())
-                .name(container.getName().replaceFirst("/", ""))
-                .status(container.getState().getStatus())
-                .state(container.getState().getStatus())
-                .image(container.getConfig().getImage())
-                .created(0L)
-                .env(envVars)
-                .ports(ports)
-                .mounts(mounts)
-                .build();
+        log.info("Inspecting container: {}", id);
+        return dockerHostRegistry.getDetails(id);
     }
 
     @Operation(summary = "Start a container", description = "Starts a stopped container by its ID.")
     @PostMapping("/{id}/start")
     public void startContainer(@Parameter(description = "ID of the container to start") @PathVariable String id) {
         log.info("Starting container: {}", id);
-        dockerClient.startContainerCmd(id).exec();
+        dockerHostRegistry.clientFor(id).startContainerCmd(id).exec();
         log.info("Container {} started successfully", id);
     }
 
@@ -99,7 +83,7 @@ public class ContainerController {
     @PostMapping("/{id}/stop")
     public void stopContainer(@Parameter(description = "ID of the container to stop") @PathVariable String id) {
         log.info("Stopping container: {}", id);
-        dockerClient.stopContainerCmd(id).exec();
+        dockerHostRegistry.clientFor(id).stopContainerCmd(id).exec();
         log.info("Container {} stopped successfully", id);
     }
 
@@ -107,7 +91,7 @@ public class ContainerController {
     @PostMapping("/{id}/restart")
     public void restartContainer(@Parameter(description = "ID of the container to restart") @PathVariable String id) {
         log.info("Restarting container: {}", id);
-        dockerClient.restartContainerCmd(id).exec();
+        dockerHostRegistry.clientFor(id).restartContainerCmd(id).exec();
         log.info("Container {} restarted successfully", id);
     }
 
@@ -115,39 +99,83 @@ public class ContainerController {
     @DeleteMapping("/{id}")
     public void removeContainer(@Parameter(description = "ID of the container to remove") @PathVariable String id) {
         log.info("Removing container: {}", id);
-        dockerClient.removeContainerCmd(id).withForce(true).exec();
+        dockerHostRegistry.clientFor(id).removeContainerCmd(id).withForce(true).exec();
+        dockerHostRegistry.forget(id);
         log.info("Container {} removed successfully", id);
     }
 
-    @Operation(summary = "List all images", description = "Retrieves a list of all Docker images available on the host.")
+    @Operation(summary = "Run an action on several containers", description = "Starts, stops, restarts or removes the containers given as 'ids' (ids, id prefixes or names) or matching a 'label' selector (key=value, or key for any value) on every host. The operations run concurrently, up to app.bulk.parallelism at a time, each with app.bulk.operation-timeout-seconds to complete. The response is newline-delimited JSON with one result per container, written as each one finishes; operations keep running if the client disconnects. With a label selector, hosts that did not answer are listed in the X-Docker-Unreachable-Hosts header.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of per-container results"),
+            @ApiResponse(responseCode = "400", description = "Unknown action, neither or both of ids and label, or too many containers")
+    })
+    @PostMapping(value = "/bulk", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> bulk(@RequestBody BulkRequest request) {
+        BulkOperationService.Selection selection;
+        try {
+            selection = bulkOperationService.select(request);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        log.info("Bulk {} on {} containers", selection.action(), selection.size());
+
+        // No async timeout: every operation ends with its Docker call, which the transport bounds
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+        bulkOperationService.submit(selection, result -> sendResult(emitter, result))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        emitter.completeWithError(error);
+                    } else {
+                        emitter.complete();
+                    }
+                });
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (!selection.failures().isEmpty()) {
+            response.header(UNREACHABLE_HOSTS_HEADER, String.join(",", selection.failures().keySet()));
+        }
+        return response.body(emitter);
+    }
+
+    @Operation(summary = "List all images", description = "Retrieves a list of all Docker images of every host, each tagged with its host.")
     @GetMapping("/images")
-    public List<Image> listImages() {
+    public ResponseEntity<List<HostResource<Image>>> listImages() {
         log.info("Listing Docker images");
-        return dockerClient.listImagesCmd().exec();
+        return withFailures(dockerHostRegistry.gather(client -> client.listImagesCmd().exec()));
     }
 
-    @Operation(summary = "List all volumes", description = "Retrieves a list of all Docker volumes available on the host.")
+    @Operation(summary = "List all volumes", description = "Retrieves a list of all Docker volumes of every host, each tagged with its host.")
     @GetMapping("/volumes")
-    public List<com.github.dockerjava.api.command.InspectVolumeResponse> listVolumes() {
+    public ResponseEntity<List<HostResource<InspectVolumeResponse>>> listVolumes() {
         log.info("Listing Docker volumes");
-        return dockerClient.listVolumesCmd().exec().getVolumes();
+        return withFailures(dockerHostRegistry.gather(client -> client.listVolumesCmd().exec().getVolumes()));
     }
 
-    @Operation(summary = "List all networks", description = "Retrieves a list of all Docker networks available on the host.")
+    @Operation(summary = "List all networks", description = "Retrieves a list of all Docker networks of every host, each tagged with its host.")
     @GetMapping("/networks")
-    public List<Network> listNetworks() {
+    public ResponseEntity<List<HostResource<Network>>> listNetworks() {
         log.info("Listing Docker networks");
-        return dockerClient.listNetworksCmd().exec();
+        return withFailures(dockerHostRegistry.gather(client -> client.listNetworksCmd().exec()));
     }
 
-    private ContainerInfo mapToContainerInfo(Container c) {
-        return ContainerInfo.builder()
-                .id(c.getId())
-                .name(c.getNames().length > 0 ? c.getNames()[0].replaceFirst("/", "") : c.getId())
-                .status(c.getStatus())
-                .state(c.getState())
-                .image(c.getImage())
-                .created(c.getCreated())
-                .build();
+    private static void sendResult(ResponseBodyEmitter emitter, BulkResult result) {
+        try {
+            // Results arrive from several threads; each line must be written whole
+            synchronized (emitter) {
+                emitter.send(result, MediaType.APPLICATION_JSON);
+                emitter.send("\n", MediaType.TEXT_PLAIN);
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Bulk result for {} not delivered: {}", result.getContainerId(), e.getMessage());
+        }
+    }
+
+    // Partial results: what the reachable hosts returned, with the others named in a header
+    private static <T> ResponseEntity<List<T>> withFailures(DockerHostRegistry.Gathered<T> gathered) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!gathered.failures().isEmpty()) {
+            response.header(UNREACHABLE_HOSTS_HEADER, String.join(",", gathered.failures().keySet()));
+        }
+        return response.body(gathered.items());
     }
 }
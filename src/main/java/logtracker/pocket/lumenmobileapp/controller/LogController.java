@@ -0,0 +1,49 @@
+package logtracker.pocket.lumenmobileapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.model.LogSearchResult;
+import logtracker.pocket.lumenmobileapp.service.ContainerInventory;
+import logtracker.pocket.lumenmobileapp.storage.LogSegmentStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/containers")
+@RequiredArgsConstructor
+@Tag(name = "Logs", description = "Endpoints for searching stored container logs")
+public class LogController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final LogSegmentStore logSegmentStore;
+    private final ContainerInventory containerInventory;
+
+    @Operation(summary = "Search stored logs", description = "Returns stored log lines containing all words of 'q' (case-insensitive, whole words), newest first. Times accept ISO-8601 or Unix epoch millis. Defaults to the last 24 hours.")
+    @GetMapping("/{id}/logs/search")
+    public LogSearchResult searchLogs(
+            @Parameter(description = "ID or name of the container") @PathVariable String id,
+            @Parameter(description = "Words to search for; empty returns all lines") @RequestParam(required = false) String q,
+            @Parameter(description = "Range start (ISO-8601 or epoch millis)") @RequestParam(required = false) String from,
+            @Parameter(description = "Range end (ISO-8601 or epoch millis)") @RequestParam(required = false) String to,
+            @Parameter(description = "Maximum number of lines (1-1000)") @RequestParam(defaultValue = "100") int limit) {
+        long toMillis = to != null ? StatsController.parseTime(to) : System.currentTimeMillis();
+        long fromMillis = from != null ? StatsController.parseTime(from) : toMillis - TimeUnit.DAYS.toMillis(1);
+        if (fromMillis >= toMillis) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'limit' must be between 1 and " + MAX_LIMIT);
+        }
+
+        // Stored logs outlive the container, so fall back to the raw id when it is no longer known
+        String containerId = containerInventory.resolve(id).map(ContainerInfo::getId).orElse(id);
+        return logSegmentStore.search(containerId, q, fromMillis, toMillis, limit);
+    }
+}
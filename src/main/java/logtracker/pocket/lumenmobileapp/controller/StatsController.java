@@ -0,0 +1,67 @@
+package logtracker.pocket.lumenmobileapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.model.StatsHistory;
+import logtracker.pocket.lumenmobileapp.service.ContainerInventory;
+import logtracker.pocket.lumenmobileapp.timeseries.TimeSeriesStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/containers")
+@RequiredArgsConstructor
+@Tag(name = "Stats", description = "Endpoints for historical container resource usage")
+public class StatsController {
+
+    private final TimeSeriesStore timeSeriesStore;
+    private final ContainerInventory containerInventory;
+
+    @Operation(summary = "Get stats history", description = "Returns min/max/avg of CPU, memory and network per step for the given range. Times accept ISO-8601 or Unix epoch millis; step accepts durations like 10s, 1m, 5m. Defaults to the last hour.")
+    @GetMapping("/{id}/stats/history")
+    public StatsHistory getStatsHistory(
+            @Parameter(description = "ID or name of the container") @PathVariable String id,
+            @Parameter(description = "Range start (ISO-8601 or epoch millis)") @RequestParam(required = false) String from,
+            @Parameter(description = "Range end (ISO-8601 or epoch millis)") @RequestParam(required = false) String to,
+            @Parameter(description = "Step length, e.g. 10s, 1m, 5m") @RequestParam(required = false) String step) {
+        long toMillis = to != null ? parseTime(to) : System.currentTimeMillis();
+        long fromMillis = from != null ? parseTime(from) : toMillis - TimeUnit.HOURS.toMillis(1);
+        if (fromMillis >= toMillis) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+        }
+
+        long stepMillis = 0;
+        if (step != null) {
+            try {
+                stepMillis = DurationStyle.detectAndParse(step).toMillis();
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid step: " + step);
+            }
+        }
+
+        // History outlives the container, so fall back to the raw id when it is no longer known
+        String containerId = containerInventory.resolve(id).map(ContainerInfo::getId).orElse(id);
+        return timeSeriesStore.query(containerId, fromMillis, toMillis, stepMillis);
+    }
+
+    static long parseTime(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return Instant.parse(value).toEpochMilli();
+            } catch (DateTimeParseException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid time: " + value);
+            }
+        }
+    }
+}
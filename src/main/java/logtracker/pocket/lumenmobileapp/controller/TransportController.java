@@ -0,0 +1,27 @@
+package logtracker.pocket.lumenmobileapp.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import logtracker.pocket.lumenmobileapp.model.ConnectionPoolStats;
+import logtracker.pocket.lumenmobileapp.transport.DockerTransport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/transport")
+@RequiredArgsConstructor
+@Tag(name = "Transport", description = "Docker connection pool usage")
+public class TransportController {
+
+    private final DockerTransport dockerTransport;
+
+    @Operation(summary = "Get connection pool usage", description = "Returns occupancy, queue length, refusals and wait times of the global stream budget and of each host's request pool.")
+    @GetMapping("/pools")
+    public List<ConnectionPoolStats> getPools() {
+        return dockerTransport.getStats();
+    }
+}
@@ -0,0 +1,141 @@
+package logtracker.pocket.lumenmobileapp.logwatch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Multi-pattern literal matcher compiled into a dense DFA over ASCII. Every line is scanned once,
+ * whatever the number of patterns. Patterns must be ASCII. Case folding, when enabled, follows
+ * {@code Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE} for the ASCII letters, so a regex prefilter
+ * never drops a line its regex would match: besides ASCII, only the four characters Unicode folds
+ * onto an ASCII letter (dotted and dotless i, long s and the Kelvin sign) match a pattern character.
+ */
+final class AhoCorasick {
+
+    private static final int ALPHABET = 128;
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final int[] transitions;
+    private final int[][] outputs;
+    private final boolean ignoreCase;
+    private final int patternCount;
+
+    AhoCorasick(List<String> patterns, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.patternCount = patterns.size();
+
+        // Trie
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> terminal = new ArrayList<>();
+        trie.add(newNode());
+        terminal.add(new ArrayList<>());
+        for (int id = 0; id < patterns.size(); id++) {
+            int state = 0;
+            for (char c : patterns.get(id).toCharArray()) {
+                if (c >= ALPHABET) {
+                    throw new IllegalArgumentException("Pattern is not ASCII: " + patterns.get(id));
+                }
+                int symbol = symbol(c);
+                if (trie.get(state)[symbol] < 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(newNode());
+                    terminal.add(new ArrayList<>());
+                }
+                state = trie.get(state)[symbol];
+            }
+            terminal.get(state).add(id);
+        }
+
+        // Failure links, breadth first, turning the trie into a complete DFA
+        int states = trie.size();
+        transitions = new int[states * ALPHABET];
+        outputs = new int[states][];
+        int[] fail = new int[states];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < ALPHABET; symbol++) {
+            int next = trie.get(0)[symbol];
+            if (next > 0) {
+                fail[next] = 0;
+                transitions[symbol] = next;
+                queue.add(next);
+            } else {
+                transitions[symbol] = 0;
+            }
+        }
+        outputs[0] = toArray(terminal.get(0));
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            List<Integer> out = new ArrayList<>(terminal.get(state));
+            for (int id : outputs[fail[state]]) {
+                out.add(id);
+            }
+            outputs[state] = toArray(out);
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int next = trie.get(state)[symbol];
+                if (next > 0) {
+                    fail[next] = transitions[fail[state] * ALPHABET + symbol];
+                    transitions[state * ALPHABET + symbol] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * ALPHABET + symbol] = transitions[fail[state] * ALPHABET + symbol];
+                }
+            }
+        }
+    }
+
+    int patternCount() {
+        return patternCount;
+    }
+
+    /**
+     * Scans the text once and records each pattern found as {@code hits[id] = stamp}.
+     * Using a per-call stamp means the caller never has to clear the array.
+     *
+     * @return whether any pattern was found
+     */
+    boolean scan(CharSequence text, int[] hits, int stamp) {
+        boolean found = false;
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            int symbol = symbol(text.charAt(i));
+            state = symbol >= 0 ? transitions[state * ALPHABET + symbol] : 0;
+            int[] out = outputs[state];
+            if (out.length > 0) {
+                for (int id : out) {
+                    hits[id] = stamp;
+                }
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    // Alphabet index of a character, or -1 if it cannot be part of a match
+    private int symbol(char c) {
+        if (c >= ALPHABET) {
+            return ignoreCase ? foldToAscii(c) : -1;
+        }
+        return ignoreCase && c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static int foldToAscii(char c) {
+        return switch (c) {
+            case '\u0130', '\u0131' -> 'i';
+            case '\u017F' -> 's';
+            case '\u212A' -> 'k';
+            default -> -1;
+        };
+    }
+
+    private static int[] newNode() {
+        int[] node = new int[ALPHABET];
+        Arrays.fill(node, -1);
+        return node;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.isEmpty() ? NO_OUTPUT : values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
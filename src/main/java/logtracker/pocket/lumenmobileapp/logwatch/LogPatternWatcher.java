@@ -0,0 +1,377 @@
+package logtracker.pocket.lumenmobileapp.logwatch;
+
+import com.github.dockerjava.api.model.Event;
+import jakarta.annotation.PostConstruct;
+import logtracker.pocket.lumenmobileapp.config.LogPatternProperties;
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import logtracker.pocket.lumenmobileapp.service.AlertService;
+import logtracker.pocket.lumenmobileapp.service.ContainerEventListener;
+import logtracker.pocket.lumenmobileapp.service.ContainerLogListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Matches every collected log line against the configured patterns and raises an alert when a container
+ * logs too many matching lines within a pattern's window. All literals (plain patterns and regex
+ * prefilters) are compiled into one {@link AhoCorasick} automaton, so a line is scanned once no matter
+ * how many patterns there are; a regex only runs on lines where its prefilter was found.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LogPatternWatcher implements ContainerLogListener, ContainerEventListener {
+
+    // Granularity of match windows; counts are exact to within one bucket
+    private static final int WINDOW_BUCKETS = 12;
+    private static final int MIN_PREFILTER_LENGTH = 3;
+    private static final int MAX_SAMPLE_LENGTH = 200;
+
+    private final LogPatternProperties properties;
+    private final AlertService alertService;
+    private final Map<String, ContainerState> states = new ConcurrentHashMap<>();
+    private final LongAdder linesScanned = new LongAdder();
+    private final LongAdder linesMatched = new LongAdder();
+
+    private CompiledPattern[] patterns = new CompiledPattern[0];
+    private AhoCorasick automaton;
+    // Automaton literal id -> pattern index
+    private int[] literalOwners = new int[0];
+    // Regex patterns without a usable prefilter, evaluated on every line
+    private int[] unfiltered = new int[0];
+
+    @PostConstruct
+    public void compile() {
+        boolean ignoreCase = !properties.isCaseSensitive();
+        List<CompiledPattern> compiled = new ArrayList<>();
+        List<String> literals = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        List<Integer> always = new ArrayList<>();
+
+        for (LogPatternProperties.Pattern pattern : properties.getPatterns()) {
+            boolean isLiteral = pattern.getLiteral() != null && !pattern.getLiteral().isEmpty();
+            boolean isRegex = pattern.getRegex() != null && !pattern.getRegex().isEmpty();
+            if (isLiteral == isRegex) {
+                log.warn("Ignoring log pattern '{}': set exactly one of literal or regex", pattern.getName());
+                continue;
+            }
+
+            String name = pattern.getName() != null ? pattern.getName() : isLiteral ? pattern.getLiteral() : pattern.getRegex();
+            Pattern regex = null;
+            String prefilter;
+            if (isLiteral && isAscii(pattern.getLiteral())) {
+                prefilter = pattern.getLiteral();
+            } else {
+                // Non-ASCII literals cannot go through the automaton and are matched as a quoted regex
+                String source = isLiteral ? Pattern.quote(pattern.getLiteral()) : pattern.getRegex();
+                try {
+                    regex = Pattern.compile(source, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring log pattern '{}': {}", name, e.getMessage());
+                    continue;
+                }
+                prefilter = pattern.getPrefilter() != null ? pattern.getPrefilter() : isLiteral ? null : derivePrefilter(source);
+                if (prefilter != null && (prefilter.isEmpty() || !isAscii(prefilter))) {
+                    prefilter = null;
+                }
+            }
+
+            long windowMs = Math.max(WINDOW_BUCKETS, pattern.getWindow().toMillis());
+            int index = compiled.size();
+            compiled.add(new CompiledPattern(name, regex, Math.max(1, pattern.getThreshold()), windowMs));
+            if (prefilter != null) {
+                literals.add(prefilter);
+                owners.add(index);
+            } else {
+                always.add(index);
+            }
+            log.info("Log pattern '{}': {} {}, {} matches per {}s{}", name, regex == null ? "literal" : "regex",
+                    regex == null ? prefilter : regex.pattern(), pattern.getThreshold(), windowMs / 1000,
+                    regex != null && prefilter != null ? " (prefilter '" + prefilter + "')" : regex != null ? " (no prefilter)" : "");
+        }
+
+        patterns = compiled.toArray(new CompiledPattern[0]);
+        automaton = new AhoCorasick(literals, ignoreCase);
+        literalOwners = owners.stream().mapToInt(Integer::intValue).toArray();
+        unfiltered = always.stream().mapToInt(Integer::intValue).toArray();
+        states.clear();
+    }
+
+    @Override
+    public void onLogLine(String containerId, String containerName, LogMessage message) {
+        String line = message.getLine();
+        if (!properties.isEnabled() || patterns.length == 0 || line == null) {
+            return;
+        }
+        linesScanned.increment();
+
+        ContainerState state = states.computeIfAbsent(containerId, id -> new ContainerState(patterns, literalOwners.length));
+        synchronized (state) {
+            int stamp = ++state.stamp;
+            boolean matchedAny = false;
+            if (automaton.scan(line, state.literalHits, stamp)) {
+                for (int id = 0; id < literalOwners.length; id++) {
+                    if (state.literalHits[id] != stamp) {
+                        continue;
+                    }
+                    int index = literalOwners[id];
+                    if (state.patternHits[index] != stamp && confirm(index, line)) {
+                        state.patternHits[index] = stamp;
+                        matchedAny = true;
+                    }
+                }
+            }
+            for (int index : unfiltered) {
+                if (state.patternHits[index] != stamp && confirm(index, line)) {
+                    state.patternHits[index] = stamp;
+                    matchedAny = true;
+                }
+            }
+            if (!matchedAny) {
+                return;
+            }
+
+            linesMatched.increment();
+            long now = System.currentTimeMillis();
+            for (int index = 0; index < patterns.length; index++) {
+                if (state.patternHits[index] == stamp && state.counters[index].record(now)) {
+                    fire(containerId, containerName, patterns[index], state.counters[index].total, line);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onContainerEvent(String action, String containerId, Event event) {
+        if ("destroy".equals(action)) {
+            states.remove(containerId);
+        }
+    }
+
+    public long getLinesScanned() {
+        return linesScanned.sum();
+    }
+
+    public long getLinesMatched() {
+        return linesMatched.sum();
+    }
+
+    private boolean confirm(int index, String line) {
+        Pattern regex = patterns[index].regex;
+        return regex == null || regex.matcher(line).find();
+    }
+
+    private void fire(String containerId, String containerName, CompiledPattern pattern, int count, String line) {
+        String sample = line.length() > MAX_SAMPLE_LENGTH ? line.substring(0, MAX_SAMPLE_LENGTH) + "…" : line;
+        String message = String.format("Log pattern '%s' matched %d lines within %ds in container %s. Latest: %s",
+                pattern.name, count, pattern.windowMs / 1000, containerName, sample);
+        alertService.raiseAlert(containerId, containerName, "LOG", pattern.name, count, "matches", message);
+    }
+
+    /**
+     * Picks the longest run of plain characters that every match of the regex must contain, or null if
+     * there is none worth filtering on. Only the top level of the expression is considered; an
+     * alternation or inline flags there disable the prefilter. {@code \Q..\E} quotes count as plain text.
+     */
+    static String derivePrefilter(String regex) {
+        if (regex.contains("(?")) {
+            return null;
+        }
+        String best = null;
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                char escaped = regex.charAt(++i);
+                if (escaped == 'Q') {
+                    // Quoted text is literal up to \E; a quantifier after \E applies to its last character only
+                    int end = regex.indexOf("\\E", i + 1);
+                    int close = end < 0 ? regex.length() : end;
+                    if (depth > 0) {
+                        best = longer(best, run);
+                    } else if (close > i + 1) {
+                        run.append(regex, i + 1, close - 1);
+                        if (!appendLiteral(regex, close + 1, regex.charAt(close - 1), run)) {
+                            best = longer(best, run);
+                        }
+                    }
+                    i = end < 0 ? regex.length() : end + 1;
+                    continue;
+                }
+                if (depth > 0 || Character.isLetterOrDigit(escaped) || !appendLiteral(regex, i, escaped, run)) {
+                    best = longer(best, run);
+                }
+                i = escapeEnd(regex, i, escaped);
+                continue;
+            }
+            if (c == '[') {
+                best = longer(best, run);
+                i = skipClass(regex, i);
+                continue;
+            }
+            if (c == '{') {
+                // Quantifier bounds are not part of the text
+                best = longer(best, run);
+                int close = regex.indexOf('}', i);
+                i = close < 0 ? regex.length() : close;
+                continue;
+            }
+            switch (c) {
+                case '(' -> depth++;
+                case ')' -> depth = Math.max(0, depth - 1);
+                case '|' -> {
+                    if (depth == 0) {
+                        return null;
+                    }
+                }
+                default -> {
+                }
+            }
+            if (depth > 0 || c == ')' || ".^$?*+}".indexOf(c) >= 0 || !appendLiteral(regex, i, c, run)) {
+                best = longer(best, run);
+            }
+        }
+        best = longer(best, run);
+        return best != null && best.length() >= MIN_PREFILTER_LENGTH ? best : null;
+    }
+
+    // Appends a literal unless the following quantifier makes it optional or repeats it
+    private static boolean appendLiteral(String regex, int i, char c, StringBuilder run) {
+        char next = i + 1 < regex.length() ? regex.charAt(i + 1) : 0;
+        if (next == '?' || next == '*' || next == '{') {
+            return false;
+        }
+        run.append(c);
+        return true;
+    }
+
+    // Index of the last character of an escape, past arguments such as the digits of \x41 or the name of \k<name>
+    private static int escapeEnd(String regex, int i, char escaped) {
+        boolean braced = i + 1 < regex.length() && regex.charAt(i + 1) == '{';
+        int end = switch (escaped) {
+            case 'x' -> braced ? regex.indexOf('}', i) : i + 2;
+            case 'u' -> i + 4;
+            case 'c' -> i + 1;
+            case 'p', 'P', 'N' -> braced ? regex.indexOf('}', i) : i + 1;
+            case 'k' -> regex.indexOf('>', i);
+            case '0' -> {
+                int j = i;
+                while (j < i + 3 && j + 1 < regex.length() && regex.charAt(j + 1) >= '0' && regex.charAt(j + 1) <= '7') {
+                    j++;
+                }
+                yield j;
+            }
+            default -> i;
+        };
+        return end < 0 ? regex.length() : Math.min(end, regex.length() - 1);
+    }
+
+    private static int skipClass(String regex, int i) {
+        int j = i + 1;
+        if (j < regex.length() && regex.charAt(j) == '^') {
+            j++;
+        }
+        if (j < regex.length() && regex.charAt(j) == ']') {
+            j++;
+        }
+        for (; j < regex.length(); j++) {
+            char c = regex.charAt(j);
+            if (c == '\\') {
+                j++;
+            } else if (c == ']') {
+                return j;
+            }
+        }
+        return regex.length();
+    }
+
+    private static String longer(String best, StringBuilder run) {
+        String candidate = run.toString();
+        run.setLength(0);
+        return best == null || candidate.length() > best.length() ? candidate : best;
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record CompiledPattern(String name, Pattern regex, int threshold, long windowMs) {
+    }
+
+    private static final class ContainerState {
+        private final int[] literalHits;
+        private final int[] patternHits;
+        private final MatchCounter[] counters;
+        private int stamp;
+
+        private ContainerState(CompiledPattern[] patterns, int literals) {
+            this.literalHits = new int[literals];
+            this.patternHits = new int[patterns.length];
+            this.counters = new MatchCounter[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                counters[i] = new MatchCounter(patterns[i]);
+            }
+        }
+    }
+
+    /**
+     * Matching lines per time bucket over the pattern's window. Fires once when the count reaches the
+     * threshold and re-arms after it has dropped below again.
+     */
+    private static final class MatchCounter {
+        private final int threshold;
+        private final long bucketMs;
+        private final int[] counts = new int[WINDOW_BUCKETS];
+        private int head;
+        private long headBucket = Long.MIN_VALUE;
+        private int total;
+        private boolean firing;
+
+        private MatchCounter(CompiledPattern pattern) {
+            this.threshold = pattern.threshold;
+            this.bucketMs = Math.max(1, pattern.windowMs / WINDOW_BUCKETS);
+        }
+
+        /**
+         * Counts a matching line and returns true if the pattern just reached its threshold.
+         */
+        private boolean record(long now) {
+            long bucket = now / bucketMs;
+            if (headBucket == Long.MIN_VALUE || bucket - headBucket >= WINDOW_BUCKETS) {
+                Arrays.fill(counts, 0);
+                total = 0;
+                headBucket = bucket;
+            } else {
+                for (; headBucket < bucket; headBucket++) {
+                    head = (head + 1) % WINDOW_BUCKETS;
+                    total -= counts[head];
+                    counts[head] = 0;
+                }
+            }
+            if (firing && total < threshold) {
+                firing = false;
+            }
+            counts[head]++;
+            total++;
+            if (!firing && total >= threshold) {
+                firing = true;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Summed resource usage of the running containers sharing a compose project, image or label value")
+public class AggregateMetrics {
+    @Schema(example = "project", description = "Grouping dimension: project, image or label:<key>")
+    private String dimension;
+
+    @Schema(example = "shop", description = "Value shared by the containers in the group")
+    private String key;
+
+    @Schema(example = "4", description = "Number of containers with live stats in the group")
+    private int containers;
+
+    @Schema(example = "12.5", description = "Sum of CPU usage percentages (%)")
+    private double cpuUsage;
+
+    @Schema(example = "600000000", description = "Sum of memory usage in bytes")
+    private long memoryUsage;
+
+    @Schema(example = "32000000000", description = "Sum of memory limits in bytes")
+    private long memoryLimit;
+
+    @Schema(example = "20000", description = "Sum of network received bytes (RX)")
+    private long networkRx;
+
+    @Schema(example = "12000", description = "Sum of network transmitted bytes (TX)")
+    private long networkTx;
+
+    @Schema(example = "1500.0", description = "Sum of network receive rates (bytes/s)")
+    private double networkRxRate;
+
+    @Schema(example = "800.0", description = "Sum of network transmit rates (bytes/s)")
+    private double networkTxRate;
+}
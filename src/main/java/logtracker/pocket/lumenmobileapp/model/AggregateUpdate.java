@@ -0,0 +1,22 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Changes to the groups of one /aggregates dimension since the previous update")
+public class AggregateUpdate {
+    @Schema(description = "Groups that are new or whose totals changed")
+    private List<AggregateMetrics> groups;
+
+    @Schema(description = "Keys of groups whose last container stopped")
+    private List<String> removed;
+}
@@ -23,15 +23,24 @@ public class Alert {
     @Schema(example = "user-service", description = "Target container name")
     private String containerName;
 
-    @Schema(example = "CPU", description = "Type of alert (CPU, MEMORY)")
+    @Schema(example = "CPU", description = "Type of alert (CPU, MEMORY, NETWORK_RX_RATE, NETWORK_TX_RATE)")
     private String type;
 
+    @Schema(example = "cpu", description = "Name of the alert rule that fired")
+    private String rule;
+
     @Schema(example = "Critical CPU usage: 85.5%", description = "Alert message")
     private String message;
 
-    @Schema(example = "85.5", description = "Metric value at time of alert")
+    @Schema(example = "85.5", description = "Metric value at time of alert (averaged over the rule's sustain window)")
     private Double value;
 
+    @Schema(example = "%", description = "Unit of the value (% or B/s)")
+    private String unit;
+
     @Schema(description = "Timestamp when alert occurred")
     private Instant timestamp;
+
+    @Schema(example = "42", description = "Position in the alert history; pass the last one seen as 'before' to page to older alerts")
+    private Long sequence;
 }
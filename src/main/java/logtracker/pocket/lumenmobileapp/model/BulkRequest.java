@@ -0,0 +1,25 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "An action to run on several containers, selected by ids or by label")
+public class BulkRequest {
+    @Schema(example = "restart", description = "start, stop, restart or remove (remove is forced)")
+    private String action;
+
+    @Schema(example = "[\"shop-api-1\", \"3f4e8a1c9b2d\"]", description = "Container ids, id prefixes or names; not combined with label")
+    private List<String> ids;
+
+    @Schema(example = "com.docker.compose.project=shop", description = "Label selector, key=value or just key for any value; matches containers of every host")
+    private String label;
+}
@@ -0,0 +1,40 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of a bulk action on one container")
+public class BulkResult {
+    public static final String OK = "ok";
+    public static final String FAILED = "failed";
+    public static final String TIMED_OUT = "timed_out";
+    public static final String NOT_FOUND = "not_found";
+
+    @Schema(example = "3f4e8a1c9b2d7e6f5a4b3c2d1e0f9a8b7c6d5e4f3a2b1c0d9e8f7a6b5c4d3e2f", description = "Container ID, or the requested reference if it was not found")
+    private String containerId;
+
+    @Schema(example = "shop-api-1", description = "Container name")
+    private String name;
+
+    @Schema(example = "local", description = "Docker host running the container")
+    private String host;
+
+    @Schema(example = "restart", description = "Action that was run")
+    private String action;
+
+    @Schema(example = "ok", description = "ok, failed, timed_out (no answer within the operation timeout) or not_found")
+    private String status;
+
+    @Schema(example = "Status 304: Container already started", description = "Error message when the action did not succeed")
+    private String error;
+
+    @Schema(example = "1840", description = "Time the action took in milliseconds")
+    private long durationMs;
+}
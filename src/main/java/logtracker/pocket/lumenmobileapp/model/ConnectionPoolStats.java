@@ -0,0 +1,44 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Occupancy and waits of a Docker connection pool")
+public class ConnectionPoolStats {
+    @Schema(example = "streams", description = "'streams' (global stream budget) or 'requests@<host>'")
+    private String name;
+
+    @Schema(example = "64", description = "Maximum number of open connections")
+    private int capacity;
+
+    @Schema(example = "12", description = "Connections currently held")
+    private int inUse;
+
+    @Schema(example = "0", description = "Callers currently waiting for a connection")
+    private int queued;
+
+    @Schema(example = "16", description = "Maximum number of waiting callers before new ones are refused")
+    private int maxQueued;
+
+    @Schema(example = "1520", description = "Connections handed out since startup")
+    private long acquired;
+
+    @Schema(example = "0", description = "Callers refused since startup (queue full or wait timed out)")
+    private long rejected;
+
+    @Schema(example = "3", description = "Callers that had to wait since startup")
+    private long waits;
+
+    @Schema(example = "41.5", description = "Average wait of the callers that had to wait (ms)")
+    private double averageWaitMillis;
+
+    @Schema(example = "120.0", description = "Longest wait since startup (ms)")
+    private double maxWaitMillis;
+}
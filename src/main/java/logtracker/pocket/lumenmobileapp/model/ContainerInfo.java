@@ -18,6 +18,9 @@ public class ContainerInfo {
     @Schema(example = "abc123def456", description = "Container ID")
     private String id;
 
+    @Schema(example = "local", description = "Docker host running the container")
+    private String host;
+
     @Schema(example = "user-service", description = "Container name")
     private String name;
 
@@ -41,4 +44,7 @@ public class ContainerInfo {
 
     @Schema(description = "Volume mount points", example = "[\"/host/path:/container/path\"]")
     private List<String> mounts;
+
+    @Schema(description = "Container labels", example = "{\"com.docker.compose.project\": \"lumen\"}")
+    private Map<String, String> labels;
 }
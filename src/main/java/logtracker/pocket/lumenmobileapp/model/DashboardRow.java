@@ -0,0 +1,38 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "One container row of the /stats/all dashboard")
+public class DashboardRow {
+    @Schema(example = "abc123def456", description = "Short container ID")
+    private String containerId;
+
+    @Schema(example = "web-server", description = "Container name")
+    private String name;
+
+    @Schema(example = "1", description = "Position in the session's sort order, starting at 1")
+    private int rank;
+
+    @Schema(example = "1.45", description = "CPU usage percentage (%)")
+    private double cpuUsage;
+
+    @Schema(example = "150000000", description = "Memory usage in bytes")
+    private long memoryUsage;
+
+    @Schema(example = "1.87", description = "Memory usage percentage (%)")
+    private double memoryPercent;
+
+    @Schema(example = "5000", description = "Network received bytes (RX)")
+    private long networkRx;
+
+    @Schema(example = "3000", description = "Network transmitted bytes (TX)")
+    private long networkTx;
+}
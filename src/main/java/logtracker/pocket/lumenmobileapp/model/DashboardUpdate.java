@@ -0,0 +1,25 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Changes to a /stats/all dashboard view since the previous update")
+public class DashboardUpdate {
+    @Schema(description = "Rows that are new, changed rank or changed by at least the session's delta")
+    private List<DashboardRow> rows;
+
+    @Schema(description = "Short IDs of containers that left the view")
+    private List<String> removed;
+
+    @Schema(example = "42", description = "Number of containers with live stats")
+    private int total;
+}
@@ -0,0 +1,26 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Aggregated value of one metric over one step of a history query")
+public class HistoryPoint {
+    @Schema(example = "1769344200000", description = "Start of the step (Unix epoch millis)")
+    private long timestamp;
+
+    @Schema(example = "1.2", description = "Minimum value within the step")
+    private double min;
+
+    @Schema(example = "4.8", description = "Maximum value within the step")
+    private double max;
+
+    @Schema(example = "2.35", description = "Average value within the step")
+    private double avg;
+}
@@ -0,0 +1,21 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A Docker resource (image, volume, network) with the name of the host it lives on")
+public class HostResource<T> {
+    @Schema(example = "local", description = "Docker host the resource belongs to")
+    private String host;
+
+    @JsonUnwrapped
+    private T resource;
+}
@@ -1,5 +1,6 @@
 package logtracker.pocket.lumenmobileapp.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,4 +18,15 @@ public class LogMessage {
 
     @Schema(example = "Application started on port 8080", description = "The log message content")
     private String line;
+
+    @Schema(example = "stdout", description = "Output stream the line was written to (stdout or stderr)")
+    private String stream;
+
+    // Parsed form of timestamp for storage and filtering; not sent to clients
+    @JsonIgnore
+    @Schema(hidden = true)
+    private long timestampMillis;
+
+    @Schema(example = "1769344201000000", description = "Monotonic sequence number; pass the last one seen as 'cursor' when reconnecting")
+    private Long sequence;
 }
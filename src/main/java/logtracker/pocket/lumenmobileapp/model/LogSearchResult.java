@@ -0,0 +1,40 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Stored log lines of a container matching a search, newest first")
+public class LogSearchResult {
+    @Schema(example = "abc123def456", description = "Container ID")
+    private String containerId;
+
+    @Schema(example = "connection timeout", description = "Words that every returned line contains (case-insensitive)")
+    private String query;
+
+    @Schema(example = "1769340600000", description = "Start of the searched range (Unix epoch millis)")
+    private long from;
+
+    @Schema(example = "1769344200000", description = "End of the searched range (Unix epoch millis)")
+    private long to;
+
+    @Schema(example = "true", description = "Whether more matching lines exist before the oldest returned one")
+    private boolean truncated;
+
+    @Schema(example = "4", description = "Compressed blocks that were read and decompressed")
+    private int blocksScanned;
+
+    @Schema(example = "312", description = "Blocks skipped by their time range or token index")
+    private int blocksSkipped;
+
+    @Schema(description = "Matching lines, newest first")
+    private List<LogMessage> lines;
+}
@@ -0,0 +1,26 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Aggregated value of one metric over one /stats window")
+public class MetricSummary {
+    @Schema(example = "1.2", description = "Minimum value within the window")
+    private double min;
+
+    @Schema(example = "4.8", description = "Maximum value within the window")
+    private double max;
+
+    @Schema(example = "2.35", description = "Average value within the window")
+    private double avg;
+
+    @Schema(example = "3.1", description = "Last value within the window")
+    private double last;
+}
@@ -0,0 +1,35 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Historical resource usage of a container, aggregated per step")
+public class StatsHistory {
+    @Schema(example = "abc123def456", description = "Container ID")
+    private String containerId;
+
+    @Schema(example = "1769340600000", description = "Start of the queried range (Unix epoch millis)")
+    private long from;
+
+    @Schema(example = "1769344200000", description = "End of the queried range (Unix epoch millis)")
+    private long to;
+
+    @Schema(example = "60000", description = "Step length in milliseconds")
+    private long step;
+
+    @Schema(example = "1m", description = "Resolution the points were computed from (raw, 10s, 1m, 5m; prefixed with disk+ when older points came from segment storage)")
+    private String resolution;
+
+    @Schema(description = "Points per metric (cpuUsage, memoryUsage, memoryPercent, networkRx, networkTx)")
+    private Map<String, List<HistoryPoint>> metrics;
+}
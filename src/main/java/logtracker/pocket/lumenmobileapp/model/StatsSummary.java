@@ -0,0 +1,44 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Container statistics aggregated over one window of a /stats session with an interval")
+public class StatsSummary {
+    @Schema(example = "abc123def456", description = "Container ID")
+    private String containerId;
+
+    @Schema(example = "1769344200000", description = "Start of the window (Unix epoch millis)")
+    private long timestamp;
+
+    @Schema(example = "10000", description = "Window length in milliseconds")
+    private long interval;
+
+    @Schema(example = "10", description = "Number of samples aggregated")
+    private int samples;
+
+    @Schema(description = "CPU usage percentage (%)")
+    private MetricSummary cpuUsage;
+
+    @Schema(description = "Memory usage in bytes")
+    private MetricSummary memoryUsage;
+
+    @Schema(example = "8000000000", description = "Total memory limit in bytes (last value)")
+    private long memoryLimit;
+
+    @Schema(description = "Memory usage percentage (%)")
+    private MetricSummary memoryPercent;
+
+    @Schema(description = "Network received bytes (RX)")
+    private MetricSummary networkRx;
+
+    @Schema(description = "Network transmitted bytes (TX)")
+    private MetricSummary networkTx;
+}
@@ -0,0 +1,43 @@
+package logtracker.pocket.lumenmobileapp.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of one background monitoring sweep over the running containers")
+public class SweepReport {
+    @Schema(description = "Timestamp when the sweep started")
+    private Instant startedAt;
+
+    @Schema(example = "4210", description = "Wall-clock duration of the sweep in milliseconds")
+    private long durationMs;
+
+    @Schema(example = "250", description = "Number of running containers found")
+    private int containers;
+
+    @Schema(example = "246", description = "Containers whose stats were received and checked")
+    private int checked;
+
+    @Schema(example = "3", description = "Containers whose stats did not arrive within the sample timeout")
+    private int timedOut;
+
+    @Schema(example = "1", description = "Containers whose stats request failed")
+    private int failed;
+
+    @Schema(example = "0", description = "Containers not reached before the sweep deadline")
+    private int skipped;
+
+    @Schema(example = "98.4", description = "Percentage of running containers that were checked")
+    private double coveragePercent;
+
+    @Schema(example = "0", description = "Sweeps skipped so far because the previous one was still running")
+    private long overlappingSweepsSkipped;
+}
@@ -0,0 +1,246 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import jakarta.annotation.PostConstruct;
+import logtracker.pocket.lumenmobileapp.model.AggregateMetrics;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running totals of CPU, memory and network per compose project, image and configured label value.
+ * Every container contributes its latest sample to the groups it belongs to; a new sample adds the
+ * difference to its previous one and a stopped container subtracts its contribution, so updating
+ * costs a few additions per group regardless of the group size.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AggregateMetricsService implements ContainerStatsListener {
+
+    public static final String PROJECT = "project";
+    public static final String IMAGE = "image";
+    public static final String LABEL_PREFIX = "label:";
+    private static final String PROJECT_LABEL = "com.docker.compose.project";
+    // How long a container that could not be resolved is left out before it is looked up again
+    private static final long UNRESOLVED_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final DockerHostRegistry dockerHostRegistry;
+    private final Map<String, Member> members = new HashMap<>();
+    private final Map<String, Map<String, Group>> groups = new LinkedHashMap<>();
+    // Containers whose lookup missed, until when they are skipped
+    private final Map<String, Long> unresolved = new ConcurrentHashMap<>();
+    // Tombstones: sequence number of each container's latest stop, kept for at least one recompute period
+    private final Map<String, Long> stops = new HashMap<>();
+    private long stopSequence;
+    private long tombstonesBefore;
+
+    @Value("${app.aggregates.labels:com.docker.compose.service}")
+    private List<String> labels;
+
+    @PostConstruct
+    public void init() {
+        groups.put(PROJECT, new HashMap<>());
+        groups.put(IMAGE, new HashMap<>());
+        for (String label : labels) {
+            if (!label.isBlank()) {
+                groups.put(LABEL_PREFIX + label.trim(), new HashMap<>());
+            }
+        }
+        log.info("Aggregating stats by {}", groups.keySet());
+    }
+
+    public synchronized List<String> getDimensions() {
+        return List.copyOf(groups.keySet());
+    }
+
+    public boolean hasDimension(String dimension) {
+        return getDimensions().contains(dimension);
+    }
+
+    /**
+     * Current totals of every group of a dimension, largest CPU first.
+     *
+     * @throws IllegalArgumentException if the dimension is unknown
+     */
+    public synchronized List<AggregateMetrics> get(String dimension) {
+        Map<String, Group> byKey = groups.get(dimension);
+        if (byKey == null) {
+            throw new IllegalArgumentException("Unknown dimension: " + dimension + " (available: " + groups.keySet() + ")");
+        }
+        List<AggregateMetrics> result = new ArrayList<>(byKey.size());
+        for (Group group : byKey.values()) {
+            result.add(AggregateMetrics.builder()
+                    .dimension(dimension)
+                    .key(group.key)
+                    .containers(group.containers)
+                    .cpuUsage(Math.max(0, group.sum[CPU]))
+                    .memoryUsage(Math.max(0, Math.round(group.sum[MEMORY_USAGE])))
+                    .memoryLimit(Math.max(0, Math.round(group.sum[MEMORY_LIMIT])))
+                    .networkRx(Math.max(0, Math.round(group.sum[NETWORK_RX])))
+                    .networkTx(Math.max(0, Math.round(group.sum[NETWORK_TX])))
+                    .networkRxRate(Math.max(0, group.sum[RX_RATE]))
+                    .networkTxRate(Math.max(0, group.sum[TX_RATE]))
+                    .build());
+        }
+        result.sort(Comparator.comparingDouble(AggregateMetrics::getCpuUsage).reversed().thenComparing(AggregateMetrics::getKey));
+        return result;
+    }
+
+    @Override
+    public void onStats(String containerName, ContainerStats stats) {
+        long now = System.currentTimeMillis();
+        String containerId = stats.getContainerId();
+        ContainerInfo joining = null;
+        boolean known;
+        Long lastStop;
+        synchronized (this) {
+            known = members.containsKey(containerId);
+            lastStop = stops.get(containerId);
+        }
+        if (!known) {
+            // Looked up outside the lock: a miss in the inventory asks the daemon
+            Long retryAt = unresolved.get(containerId);
+            if (retryAt != null && now < retryAt) {
+                return;
+            }
+            Optional<ContainerInfo> container = dockerHostRegistry.resolve(containerId);
+            if (container.isEmpty()) {
+                unresolved.put(containerId, now + UNRESOLVED_RETRY_MILLIS);
+                return;
+            }
+            unresolved.remove(containerId);
+            joining = container.get();
+        }
+        synchronized (this) {
+            Member member = members.get(containerId);
+            if (member == null) {
+                if (joining == null || !Objects.equals(stops.get(containerId), lastStop)) {
+                    // Stopped since the check above; joining now would leave its values in the sums for good
+                    return;
+                }
+                // Group membership is fixed for the life of a container (labels and image cannot change)
+                member = new Member(memberships(joining));
+                members.put(containerId, member);
+                for (Group group : member.groups) {
+                    group.containers++;
+                }
+            }
+
+            double[] next = new double[FIELDS];
+            next[CPU] = stats.getCpuUsage();
+            next[MEMORY_USAGE] = stats.getMemoryUsage();
+            next[MEMORY_LIMIT] = stats.getMemoryLimit();
+            next[NETWORK_RX] = stats.getNetworkRx();
+            next[NETWORK_TX] = stats.getNetworkTx();
+            if (member.sampledAt > 0 && now > member.sampledAt) {
+                double seconds = (now - member.sampledAt) / 1000.0;
+                next[RX_RATE] = Math.max(0, (next[NETWORK_RX] - member.values[NETWORK_RX]) / seconds);
+                next[TX_RATE] = Math.max(0, (next[NETWORK_TX] - member.values[NETWORK_TX]) / seconds);
+            }
+            for (Group group : member.groups) {
+                for (int i = 0; i < FIELDS; i++) {
+                    group.sum[i] += next[i] - member.values[i];
+                }
+            }
+            member.values = next;
+            member.sampledAt = now;
+        }
+    }
+
+    @Override
+    public synchronized void onContainerStopped(String containerId) {
+        unresolved.remove(containerId);
+        stops.put(containerId, ++stopSequence);
+        Member member = members.remove(containerId);
+        if (member == null) {
+            return;
+        }
+        for (Group group : member.groups) {
+            for (int i = 0; i < FIELDS; i++) {
+                group.sum[i] -= member.values[i];
+            }
+            if (--group.containers == 0) {
+                groups.get(group.dimension).remove(group.key);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the sums from the members' contributions so rounding errors cannot accumulate, and drops
+     * stop tombstones older than one period.
+     */
+    @Scheduled(fixedDelay = 60, timeUnit = TimeUnit.SECONDS)
+    public synchronized void recompute() {
+        // A lookup takes far less than a period, so older tombstones can no longer match one in flight
+        stops.values().removeIf(sequence -> sequence <= tombstonesBefore);
+        tombstonesBefore = stopSequence;
+        for (Map<String, Group> byKey : groups.values()) {
+            for (Group group : byKey.values()) {
+                Arrays.fill(group.sum, 0);
+            }
+        }
+        for (Member member : members.values()) {
+            for (Group group : member.groups) {
+                for (int i = 0; i < FIELDS; i++) {
+                    group.sum[i] += member.values[i];
+                }
+            }
+        }
+    }
+
+    // Callers hold the lock
+    private Group[] memberships(ContainerInfo container) {
+        Map<String, String> containerLabels = container.getLabels() != null ? container.getLabels() : Map.of();
+        List<Group> result = new ArrayList<>();
+        for (String dimension : groups.keySet()) {
+            String key = switch (dimension) {
+                case PROJECT -> containerLabels.get(PROJECT_LABEL);
+                case IMAGE -> container.getImage();
+                default -> containerLabels.get(dimension.substring(LABEL_PREFIX.length()));
+            };
+            if (key != null && !key.isEmpty()) {
+                result.add(groups.get(dimension).computeIfAbsent(key, k -> new Group(dimension, k)));
+            }
+        }
+        return result.toArray(new Group[0]);
+    }
+
+    private static final int CPU = 0;
+    private static final int MEMORY_USAGE = 1;
+    private static final int MEMORY_LIMIT = 2;
+    private static final int NETWORK_RX = 3;
+    private static final int NETWORK_TX = 4;
+    private static final int RX_RATE = 5;
+    private static final int TX_RATE = 6;
+    private static final int FIELDS = 7;
+
+    private static final class Group {
+        private final String dimension;
+        private final String key;
+        private final double[] sum = new double[FIELDS];
+        private int containers;
+
+        private Group(String dimension, String key) {
+            this.dimension = dimension;
+            this.key = key;
+        }
+    }
+
+    private static final class Member {
+        private final Group[] groups;
+        private double[] values = new double[FIELDS];
+        private long sampledAt;
+
+        private Member(Group[] groups) {
+            this.groups = groups;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import logtracker.pocket.lumenmobileapp.model.Alert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Fixed-capacity, lock-free ring of the most recent alerts. Writers claim a sequence number and
+ * store the alert in its slot; readers walk backwards from the newest sequence and skip slots that
+ * were already overwritten or not yet filled, so neither side ever copies the history.
+ */
+@Component
+public class AlertHistoryBuffer {
+
+    private final AtomicReferenceArray<Alert> slots;
+    private final AtomicLong next = new AtomicLong();
+    // Sequences below the floor were cleared
+    private volatile long floor;
+
+    public AlertHistoryBuffer(@Value("${app.alert.history-capacity:1000}") int capacity) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    public void add(Alert alert) {
+        long sequence = next.getAndIncrement();
+        alert.setSequence(sequence);
+        slots.set((int) (sequence % slots.length()), alert);
+    }
+
+    /**
+     * Returns up to {@code limit} alerts older than {@code before} (or the newest ones when it is null)
+     * that match the filter, newest first.
+     */
+    public List<Alert> query(Long before, int limit, Predicate<Alert> filter) {
+        List<Alert> result = new ArrayList<>(Math.min(limit, slots.length()));
+        long newest = next.get() - 1;
+        long start = before != null ? Math.min(before - 1, newest) : newest;
+        long oldest = Math.max(floor, newest - slots.length() + 1);
+
+        for (long sequence = start; sequence >= oldest && result.size() < limit; sequence--) {
+            Alert alert = slots.get((int) (sequence % slots.length()));
+            if (alert == null || alert.getSequence() != sequence) {
+                continue;
+            }
+            if (filter.test(alert)) {
+                result.add(alert);
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        floor = next.get();
+    }
+}
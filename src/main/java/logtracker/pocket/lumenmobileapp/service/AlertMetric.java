@@ -0,0 +1,21 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+/**
+ * Metrics alert rules can be defined on. Network metrics are rates derived from consecutive samples.
+ */
+public enum AlertMetric {
+    CPU("%"),
+    MEMORY("%"),
+    NETWORK_RX_RATE("B/s"),
+    NETWORK_TX_RATE("B/s");
+
+    private final String unit;
+
+    AlertMetric(String unit) {
+        this.unit = unit;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+}
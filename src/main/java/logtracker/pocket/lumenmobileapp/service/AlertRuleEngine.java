@@ -0,0 +1,306 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import jakarta.annotation.PostConstruct;
+import logtracker.pocket.lumenmobileapp.config.AlertRuleProperties;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates the configured alert rules against every stats sample. Rules are compiled once at startup;
+ * per container each rule gets a fixed ring of time buckets for its sustain window, so evaluating
+ * a sample is a few arithmetic operations without allocation. A rule reports only the transition
+ * into the firing state and must drop below its clear threshold before it can fire again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlertRuleEngine {
+
+    // Granularity of sustain windows; the average is exact to within one bucket
+    private static final int WINDOW_BUCKETS = 12;
+    // How often overrides are matched again for a container that was not known yet
+    private static final long RESOLVE_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final AlertRuleProperties properties;
+    private final DockerHostRegistry dockerHostRegistry;
+    private final Map<String, SeriesState> states = new ConcurrentHashMap<>();
+    private List<CompiledRule> rules = List.of();
+
+    @FunctionalInterface
+    public interface FiringListener {
+        void onFiring(String containerId, String containerName, CompiledRule rule, double value);
+    }
+
+    @PostConstruct
+    public void compile() {
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (AlertRuleProperties.Rule rule : properties.getRules()) {
+            if (rule.getMetric() == null) {
+                log.warn("Ignoring alert rule '{}' without a metric", rule.getName());
+                continue;
+            }
+            String name = rule.getName() != null ? rule.getName() : rule.getMetric().name().toLowerCase();
+            compiled.add(new CompiledRule(name, rule));
+            log.info("Alert rule '{}': {} above {} (clear below {}) sustained for {}s, {} overrides", name, rule.getMetric(),
+                    rule.getFireAbove(), rule.getClearBelow() != null ? rule.getClearBelow() : rule.getFireAbove(),
+                    rule.getSustain().toSeconds(), rule.getOverrides().size());
+        }
+        rules = List.copyOf(compiled);
+        states.clear();
+    }
+
+    public List<CompiledRule> getRules() {
+        return rules;
+    }
+
+    public void evaluate(String containerName, ContainerStats stats, FiringListener listener) {
+        long now = System.currentTimeMillis();
+        String containerId = stats.getContainerId();
+        // Created outside the map's lock; a concurrent first sample may build a state that is thrown away
+        SeriesState state = states.get(containerId);
+        if (state == null) {
+            SeriesState created = createState(containerId);
+            SeriesState existing = states.putIfAbsent(containerId, created);
+            state = existing != null ? existing : created;
+        }
+        if (state.resolveRetryAt > 0 && now >= state.resolveRetryAt) {
+            SeriesState resolved = createState(containerId);
+            if (resolved.resolveRetryAt == 0 && states.replace(containerId, state, resolved)) {
+                state = resolved;
+            } else {
+                state.resolveRetryAt = now + RESOLVE_RETRY_MILLIS;
+            }
+        }
+        synchronized (state) {
+            double rxRate = Double.NaN;
+            double txRate = Double.NaN;
+            // Samples without network counters (one-shot polls) leave the rate baseline alone
+            if (stats.getNetworkRx() > 0 || stats.getNetworkTx() > 0) {
+                if (state.lastSampleAt > 0 && now > state.lastSampleAt
+                        && stats.getNetworkRx() >= state.lastRx && stats.getNetworkTx() >= state.lastTx) {
+                    double seconds = (now - state.lastSampleAt) / 1000.0;
+                    rxRate = (stats.getNetworkRx() - state.lastRx) / seconds;
+                    txRate = (stats.getNetworkTx() - state.lastTx) / seconds;
+                }
+                state.lastSampleAt = now;
+                state.lastRx = stats.getNetworkRx();
+                state.lastTx = stats.getNetworkTx();
+            }
+
+            for (RuleState ruleState : state.rules) {
+                double value = switch (ruleState.rule.metric) {
+                    case CPU -> stats.getCpuUsage();
+                    case MEMORY -> stats.getMemoryLimit() > 0 ? stats.getMemoryPercent() : Double.NaN;
+                    case NETWORK_RX_RATE -> rxRate;
+                    case NETWORK_TX_RATE -> txRate;
+                };
+                if (Double.isNaN(value) || !ruleState.enabled) {
+                    continue;
+                }
+                if (ruleState.update(now, value)) {
+                    listener.onFiring(stats.getContainerId(), containerName, ruleState.rule, ruleState.value);
+                } else if (ruleState.cleared) {
+                    ruleState.cleared = false;
+                    log.info("Alert rule '{}' cleared for {} ({})", ruleState.rule.name, containerName, String.format("%.2f", ruleState.value));
+                }
+            }
+        }
+    }
+
+    public void forget(String containerId) {
+        states.remove(containerId);
+    }
+
+    private SeriesState createState(String containerId) {
+        // Overrides are resolved once per container, so matching costs nothing per sample. The lookup is
+        // memory only: this runs on the stats thread, which must never wait for a daemon
+        boolean needsContainer = false;
+        for (CompiledRule rule : rules) {
+            needsContainer |= !rule.overrides.isEmpty();
+        }
+        ContainerInfo container = needsContainer ? dockerHostRegistry.findCached(containerId).orElse(null) : null;
+        RuleState[] ruleStates = new RuleState[rules.size()];
+        for (int i = 0; i < ruleStates.length; i++) {
+            CompiledRule rule = rules.get(i);
+            boolean enabled = rule.enabled;
+            double fire = rule.fireAbove;
+            double clear = rule.clearBelow;
+            for (AlertRuleProperties.Override override : rule.overrides) {
+                if (matches(override, containerId, container)) {
+                    if (override.getEnabled() != null) {
+                        enabled = override.getEnabled();
+                    }
+                    if (override.getFireAbove() != null) {
+                        fire = override.getFireAbove();
+                        clear = override.getClearBelow() != null ? override.getClearBelow() : Math.min(clear, fire);
+                    } else if (override.getClearBelow() != null) {
+                        clear = override.getClearBelow();
+                    }
+                }
+            }
+            ruleStates[i] = new RuleState(rule, enabled, fire, Math.min(clear, fire));
+        }
+        SeriesState state = new SeriesState(ruleStates);
+        if (needsContainer && container == null) {
+            // Matched by id only for now; name and label overrides apply once the container is found
+            state.resolveRetryAt = System.currentTimeMillis() + RESOLVE_RETRY_MILLIS;
+        }
+        return state;
+    }
+
+    private static boolean matches(AlertRuleProperties.Override override, String containerId, ContainerInfo container) {
+        if (override.getContainer() != null) {
+            String target = override.getContainer();
+            boolean byName = container != null && target.equals(container.getName());
+            if (!byName && !containerId.startsWith(target)) {
+                return false;
+            }
+        }
+        if (override.getLabel() != null) {
+            if (container == null || container.getLabels() == null) {
+                return false;
+            }
+            String[] label = override.getLabel().split("=", 2);
+            String actual = container.getLabels().get(label[0]);
+            if (actual == null || (label.length == 2 && !label[1].equals(actual))) {
+                return false;
+            }
+        }
+        return override.getContainer() != null || override.getLabel() != null;
+    }
+
+    /**
+     * Immutable, validated form of a configured rule.
+     */
+    public static final class CompiledRule {
+        private final String name;
+        private final AlertMetric metric;
+        private final boolean enabled;
+        private final double fireAbove;
+        private final double clearBelow;
+        private final long sustainMs;
+        private final long bucketMs;
+        private final List<AlertRuleProperties.Override> overrides;
+
+        private CompiledRule(String name, AlertRuleProperties.Rule rule) {
+            this.name = name;
+            this.metric = rule.getMetric();
+            this.enabled = rule.isEnabled();
+            this.fireAbove = rule.getFireAbove();
+            this.clearBelow = rule.getClearBelow() != null ? Math.min(rule.getClearBelow(), rule.getFireAbove()) : rule.getFireAbove();
+            this.sustainMs = Math.max(0, rule.getSustain().toMillis());
+            this.bucketMs = Math.max(1, (sustainMs + WINDOW_BUCKETS - 1) / WINDOW_BUCKETS);
+            this.overrides = List.copyOf(rule.getOverrides());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public AlertMetric getMetric() {
+            return metric;
+        }
+
+        public long getSustainMs() {
+            return sustainMs;
+        }
+    }
+
+    private static final class SeriesState {
+        private final RuleState[] rules;
+        // When to look the container up again, 0 once it was found
+        private volatile long resolveRetryAt;
+        private long lastSampleAt;
+        private long lastRx;
+        private long lastTx;
+
+        private SeriesState(RuleState[] rules) {
+            this.rules = rules;
+        }
+    }
+
+    /**
+     * Per container and rule: hysteresis flag plus a ring of bucket sums covering the sustain window.
+     */
+    private static final class RuleState {
+        private final CompiledRule rule;
+        private final boolean enabled;
+        private final double fireAbove;
+        private final double clearBelow;
+        private final double[] sums;
+        private final int[] counts;
+        private int head;
+        private long headBucket = Long.MIN_VALUE;
+        private double total;
+        private int totalCount;
+        private long windowStart;
+        private boolean firing;
+        private boolean cleared;
+        private double value;
+
+        private RuleState(CompiledRule rule, boolean enabled, double fireAbove, double clearBelow) {
+            this.rule = rule;
+            this.enabled = enabled;
+            this.fireAbove = fireAbove;
+            this.clearBelow = clearBelow;
+            this.sums = rule.sustainMs > 0 ? new double[WINDOW_BUCKETS] : null;
+            this.counts = rule.sustainMs > 0 ? new int[WINDOW_BUCKETS] : null;
+        }
+
+        /**
+         * Adds a sample and returns true if the rule just started firing.
+         */
+        private boolean update(long now, double sample) {
+            boolean covered = true;
+            if (sums == null) {
+                value = sample;
+            } else {
+                long bucket = now / rule.bucketMs;
+                if (headBucket == Long.MIN_VALUE || bucket - headBucket >= WINDOW_BUCKETS) {
+                    Arrays.fill(sums, 0);
+                    Arrays.fill(counts, 0);
+                    total = 0;
+                    totalCount = 0;
+                    headBucket = bucket;
+                } else {
+                    for (; headBucket < bucket; headBucket++) {
+                        head = (head + 1) % WINDOW_BUCKETS;
+                        total -= sums[head];
+                        totalCount -= counts[head];
+                        sums[head] = 0;
+                        counts[head] = 0;
+                    }
+                }
+                if (totalCount == 0) {
+                    windowStart = now;
+                }
+                sums[head] += sample;
+                counts[head]++;
+                total += sample;
+                totalCount++;
+                value = total / totalCount;
+                covered = now - windowStart >= rule.sustainMs - rule.bucketMs;
+            }
+
+            if (!firing && covered && value > fireAbove) {
+                firing = true;
+                return true;
+            }
+            if (firing && value < clearBelow) {
+                firing = false;
+                cleared = true;
+            }
+            return false;
+        }
+    }
+}
@@ -1,46 +1,104 @@
 package logtracker.pocket.lumenmobileapp.service;
 
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.model.Container;
 import com.github.dockerjava.api.model.Statistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import logtracker.pocket.lumenmobileapp.model.Alert;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.model.SweepReport;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class AlertService {
+public class AlertService implements ContainerStatsListener {
 
-    private final EmailService emailService;
+    private final NotificationQueue notificationQueue;
     private final DockerClient dockerClient;
-    private final List<Alert> alertHistory = new CopyOnWriteArrayList<>();
+    private final AlertHistoryBuffer alertHistory;
+    private final AlertRuleEngine ruleEngine;
+    private final MeterRegistry meterRegistry;
     private final Map<String, Instant> lastAlertTime = new ConcurrentHashMap<>();
+    private final Map<String, String> watcherEmails = new ConcurrentHashMap<>();
+    private final Map<String, Counter> raisedCounters = new ConcurrentHashMap<>();
+    private final ExecutorService sweepExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean sweepRunning = new AtomicBoolean();
+    private final AtomicLong overlappingSweepsSkipped = new AtomicLong();
+    private volatile SweepReport lastSweep;
+    private Timer sweepTimer;
+    private Timer evaluationTimer;
+    private LogSampler debugSampler;
 
     @Value("${app.notification.enabled:true}")
     private boolean notificationsEnabled;
 
-    @Value("${app.alert.cpu-threshold:80.0}")
-    private double cpuThreshold;
-
     @Value("${app.alert.cooldown-minutes:10}")
     private int cooldownMinutes;
 
     @Value("${app.notification.email:recipient@example.com}")
     private String recipientEmail;
 
-    public List<Alert> getAlertHistory() {
-        return new ArrayList<>(alertHistory);
+    @Value("${app.monitoring.poll.enabled:false}")
+    private boolean pollingEnabled;
+
+    @Value("${app.monitoring.max-concurrency:16}")
+    private int maxConcurrency;
+
+    @Value("${app.monitoring.sweep-deadline-seconds:50}")
+    private int sweepDeadlineSeconds;
+
+    @Value("${app.monitoring.sample-timeout-seconds:5}")
+    private int sampleTimeoutSeconds;
+
+    @Value("${app.logging.sample-seconds:60}")
+    private long logSampleSeconds;
+
+    @PostConstruct
+    public void init() {
+        sweepTimer = Timer.builder("lumen.monitoring.sweep")
+                .description("Duration of polling sweeps")
+                .register(meterRegistry);
+        evaluationTimer = Timer.builder("lumen.alerts.evaluation")
+                .description("Alert rule evaluation per stats sample")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        // Per-sample debug lines are written at most once per container and period
+        debugSampler = new LogSampler(TimeUnit.SECONDS.toMillis(logSampleSeconds));
+    }
+
+    /**
+     * Pages backwards through the alert history, newest first. Null filters match everything;
+     * {@code containerId} matches the container id or name, {@code type} is case-insensitive.
+     */
+    public List<Alert> getAlertHistory(Long before, int limit, String containerId, String type, Instant from, Instant to) {
+        return alertHistory.query(before, limit, alert ->
+                (containerId == null || containerId.equals(alert.getContainerId()) || containerId.equals(alert.getContainerName()))
+                        && (type == null || type.equalsIgnoreCase(alert.getType()))
+                        && (from == null || !alert.getTimestamp().isBefore(from))
+                        && (to == null || !alert.getTimestamp().isAfter(to)));
+    }
+
+    public int getHistoryCapacity() {
+        return alertHistory.capacity();
     }
 
     public void clearHistory() {
@@ -63,142 +121,247 @@ public class AlertService {
         return recipientEmail;
     }
 
+    /**
+     * Routes alerts of a container to the email a /stats session asked for while it is being watched.
+     * Passing null removes the override.
+     */
+    public void setWatcherEmail(String containerId, String email) {
+        if (email == null || email.isEmpty()) {
+            watcherEmails.remove(containerId);
+        } else {
+            watcherEmails.put(containerId, email);
+        }
+    }
+
+    /**
+     * Evaluates every sample pushed by the streaming stats collector.
+     */
+    @Override
+    public void onStats(String containerName, ContainerStats stats) {
+        checkStats(containerName, stats);
+    }
+
+    @Override
+    public void onContainerStopped(String containerId) {
+        ruleEngine.forget(containerId);
+        debugSampler.forget(containerId);
+    }
+
     /**
      * Periodically checks all containers in the background every 1 minute.
-     * This ensures alerts are generated even if the stats section is not open in the app.
+     * Alerts normally come from the streaming {@link ContainerStatsCollector}; this polling sweep is only
+     * a fallback and runs when {@code app.monitoring.poll.enabled} is set.
+     * Containers are sampled concurrently on virtual threads, capped by {@code app.monitoring.max-concurrency},
+     * and the sweep gives up on whatever is left once the sweep deadline passes.
      */
     @Scheduled(fixedRate = 1, timeUnit = TimeUnit.MINUTES)
     public void monitorAllContainers() {
-        log.info("Background monitoring started... Checking containers.");
+        if (!pollingEnabled) {
+            return;
+        }
+        if (!sweepRunning.compareAndSet(false, true)) {
+            long skipped = overlappingSweepsSkipped.incrementAndGet();
+            log.warn("Previous monitoring sweep still running, skipping this one ({} skipped so far).", skipped);
+            return;
+        }
+
+        Instant startedAt = Instant.now();
+        long started = System.nanoTime();
         try {
+            log.debug("Background monitoring started... Checking containers.");
             List<Container> containers = dockerClient.listContainersCmd()
                     .withStatusFilter(Collections.singleton("running"))
                     .exec();
 
-            log.info("Found {} running containers to monitor.", containers.size());
+            log.debug("Found {} running containers to monitor.", containers.size());
 
+            long deadline = started + TimeUnit.SECONDS.toNanos(sweepDeadlineSeconds);
+            Semaphore permits = new Semaphore(Math.max(1, maxConcurrency));
+            Map<SampleOutcome, AtomicInteger> outcomes = new EnumMap<>(SampleOutcome.class);
+            for (SampleOutcome outcome : SampleOutcome.values()) {
+                outcomes.put(outcome, new AtomicInteger());
+            }
+
+            List<Future<?>> tasks = new ArrayList<>(containers.size());
             for (Container container : containers) {
                 String containerId = container.getId();
                 String containerName = container.getNames().length > 0 ? container.getNames()[0].replaceFirst("/", "") : containerId;
-                
-                // Get a snapshot of statistics for each container
-                try {
-                    CountDownLatch latch = new CountDownLatch(1);
-                    // statsCmd(...).exec() returns a ResultCallback
-                    dockerClient.statsCmd(containerId).withNoStream(true).exec(new com.github.dockerjava.api.async.ResultCallback.Adapter<Statistics>() {
-                        @Override
-                        public void onNext(Statistics stats) {
-                            double cpuUsage = calculateCpuUsage(stats);
-                            log.info("Stats received for {}: CPU Calculated = {}%", containerName, String.format("%.2f", cpuUsage));
-                            
-                            if (cpuUsage > 0) {
-                                checkStats(containerId, containerName, cpuUsage, null);
-                            } else {
-                                log.info("CPU usage is 0 or invalid for {}. Stats: {}", containerName, stats != null ? "present" : "null");
-                            }
-                            latch.countDown();
-                        }
 
-                        @Override
-                        public void onError(Throwable throwable) {
-                            log.error("Error receiving stats for {}: {}", containerName, throwable.getMessage());
-                            latch.countDown();
-                        }
-                        
-                        @Override
-                        public void onComplete() {
-                            latch.countDown();
+                tasks.add(sweepExecutor.submit(() -> {
+                    SampleOutcome outcome = SampleOutcome.SKIPPED;
+                    try {
+                        if (permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                            try {
+                                long timeout = Math.min(TimeUnit.SECONDS.toNanos(sampleTimeoutSeconds), deadline - System.nanoTime());
+                                outcome = sampleContainer(containerId, containerName, timeout);
+                            } finally {
+                                permits.release();
+                            }
                         }
-                    });
-                    
-                    // Wait for stats to be received (timeout after 5 seconds)
-                    latch.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    outcomes.get(outcome).incrementAndGet();
+                }));
+            }
 
-                } catch (Exception e) {
-                    log.warn("Failed to get stats for container {}: {}", containerName, e.getMessage());
+            for (Future<?> task : tasks) {
+                try {
+                    task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    task.cancel(true);
+                } catch (ExecutionException e) {
+                    log.warn("Monitoring task failed: {}", e.getCause().getMessage());
                 }
             }
+
+            int checked = outcomes.get(SampleOutcome.CHECKED).get();
+            int timedOut = outcomes.get(SampleOutcome.TIMED_OUT).get();
+            int failed = outcomes.get(SampleOutcome.FAILED).get();
+            SweepReport report = SweepReport.builder()
+                    .startedAt(startedAt)
+                    .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))
+                    .containers(containers.size())
+                    .checked(checked)
+                    .timedOut(timedOut)
+                    .failed(failed)
+                    .skipped(containers.size() - checked - timedOut - failed)
+                    .coveragePercent(containers.isEmpty() ? 100.0 : checked * 100.0 / containers.size())
+                    .overlappingSweepsSkipped(overlappingSweepsSkipped.get())
+                    .build();
+            lastSweep = report;
+            sweepTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+
+            log.info("Background monitoring finished in {} ms: {}/{} containers checked ({} timed out, {} failed, {} skipped).",
+                    report.getDurationMs(), checked, containers.size(), timedOut, failed, report.getSkipped());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.error("Error during monitoring: {}", e.getMessage());
+        } finally {
+            sweepRunning.set(false);
         }
     }
 
-    private double calculateCpuUsage(Statistics stats) {
-        if (stats == null || stats.getCpuStats() == null || stats.getPreCpuStats() == null) {
-            log.debug("Stats missing CPU info");
-            return 0.0;
+    public SweepReport getLastSweep() {
+        return lastSweep;
+    }
+
+    private SampleOutcome sampleContainer(String containerId, String containerName, long timeoutNanos) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<SampleOutcome> outcome = new AtomicReference<>(SampleOutcome.FAILED);
+
+        // Get a snapshot of statistics for the container
+        ResultCallback.Adapter<Statistics> callback;
+        try {
+            callback = dockerClient.statsCmd(containerId).withNoStream(true).exec(new ResultCallback.Adapter<Statistics>() {
+                @Override
+                public void onNext(Statistics stats) {
+                    double cpuUsage = StatsDerivation.cpuPercent(stats);
+                    if (cpuUsage > 0) {
+                        // A one-shot sample only carries CPU: memory rules skip it (no limit) and it does not
+                        // touch the network rate baseline (no counters)
+                        checkStats(containerName, ContainerStats.builder().containerId(containerId).cpuUsage(cpuUsage).build());
+                    } else if (log.isDebugEnabled() && debugSampler.sample(containerId)) {
+                        log.debug("CPU usage is 0 or invalid for {}. Stats: {}", containerName, stats != null ? "present" : "null");
+                    }
+                    outcome.set(SampleOutcome.CHECKED);
+                    latch.countDown();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    log.error("Error receiving stats for {}: {}", containerName, throwable.getMessage());
+                    latch.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    latch.countDown();
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to get stats for container {}: {}", containerName, e.getMessage());
+            return SampleOutcome.FAILED;
         }
 
-        // Check for nulls in the deeply nested structures
-        if (stats.getCpuStats().getCpuUsage() == null || 
-            stats.getPreCpuStats().getCpuUsage() == null ||
-            stats.getCpuStats().getSystemCpuUsage() == null ||
-            stats.getPreCpuStats().getSystemCpuUsage() == null) {
-            log.debug("Stats missing nested CPU usage info");
-            return 0.0;
+        try {
+            if (!latch.await(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS)) {
+                log.warn("Timed out waiting for stats of container {}", containerName);
+                return SampleOutcome.TIMED_OUT;
+            }
+            return outcome.get();
+        } finally {
+            try {
+                callback.close();
+            } catch (IOException e) {
+                // ignore
+            }
         }
+    }
 
-        long cpuDelta = stats.getCpuStats().getCpuUsage().getTotalUsage() - 
-                        stats.getPreCpuStats().getCpuUsage().getTotalUsage();
-        long systemDelta = stats.getCpuStats().getSystemCpuUsage() - 
-                           stats.getPreCpuStats().getSystemCpuUsage();
-        
-        if (systemDelta > 0 && cpuDelta > 0) {
-            int numCpus = stats.getCpuStats().getOnlineCpus() != null ? 
-                         stats.getCpuStats().getOnlineCpus().intValue() : 1;
-            return (double) cpuDelta / systemDelta * numCpus * 100.0;
+    @PreDestroy
+    public void shutdown() {
+        sweepExecutor.shutdownNow();
+    }
+
+    public void checkStats(String containerName, ContainerStats stats) {
+        if (log.isDebugEnabled() && debugSampler.sample(stats.getContainerId())) {
+            log.debug("Checking stats for {}: CPU {}%", containerName, String.format("%.2f", stats.getCpuUsage()));
         }
-        return 0.0;
+        long start = System.nanoTime();
+        ruleEngine.evaluate(containerName, stats, this::triggerAlert);
+        evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
 
-    public void checkStats(String containerId, String containerName, double cpuUsage, String overrideEmail) {
-        log.info("Checking stats for {}: CPU {}% (Threshold: {}%)", containerName, String.format("%.2f", cpuUsage), cpuThreshold);
-        if (cpuUsage > cpuThreshold) {
-            triggerAlert(containerId, containerName, "CPU", cpuUsage, overrideEmail);
+    private void triggerAlert(String containerId, String containerName, AlertRuleEngine.CompiledRule rule, double value) {
+        String type = rule.getMetric().name();
+        String unit = rule.getMetric().getUnit();
+        String message = String.format("High %s usage detected: %.2f%s", type, value, "%".equals(unit) ? "%" : " " + unit);
+        if (rule.getSustainMs() > 0) {
+            message += String.format(" (average over %ds)", rule.getSustainMs() / 1000);
         }
+        raiseAlert(containerId, containerName, type, rule.getName(), value, unit, message);
     }
 
-    private void triggerAlert(String containerId, String containerName, String type, double value, String overrideEmail) {
-        String alertKey = containerId + ":" + type;
+    /**
+     * Records an alert and queues its email, unless the same rule fired for the container within the cooldown.
+     */
+    public void raiseAlert(String containerId, String containerName, String type, String ruleName, double value, String unit, String message) {
+        String alertKey = containerId + ":" + ruleName;
         Instant now = Instant.now();
         Instant lastAlert = lastAlertTime.getOrDefault(alertKey, Instant.MIN);
 
         if (now.isAfter(lastAlert.plus(java.time.Duration.ofMinutes(cooldownMinutes)))) {
-            log.info("Triggering alert for container {}: {} is {}%", containerName, type, String.format("%.2f", value));
+            log.info("Triggering alert for container {}: {}", containerName, message);
+            raisedCounters.computeIfAbsent(type, key -> Counter.builder("lumen.alerts.raised")
+                    .description("Alerts recorded, by type")
+                    .tag("type", key)
+                    .register(meterRegistry))
+                    .increment();
             Alert alert = Alert.builder()
                     .id(UUID.randomUUID().toString())
                     .containerId(containerId)
                     .containerName(containerName)
                     .type(type)
+                    .rule(ruleName)
                     .value(value)
-                    .message(String.format("High %s usage detected: %.2f%%", type, value))
+                    .unit(unit)
+                    .message(message)
                     .timestamp(now)
                     .build();
 
-            alertHistory.add(0, alert); // Add to beginning
-            if (alertHistory.size() > 100) {
-                alertHistory.remove(alertHistory.size() - 1);
-            }
+            alertHistory.add(alert);
 
             lastAlertTime.put(alertKey, now);
 
             if (notificationsEnabled) {
+                String overrideEmail = watcherEmails.get(containerId);
                 String targetEmail = (overrideEmail != null && !overrideEmail.isEmpty()) ? overrideEmail : recipientEmail;
                 
                 if (targetEmail != null && !targetEmail.contains("@example.com")) {
-                    log.info("Sending alert email to {}", targetEmail);
-                    Map<String, Object> variables = new HashMap<>();
-                    variables.put("containerName", containerName);
-                    variables.put("containerId", containerId);
-                    variables.put("alertType", type);
-                    variables.put("value", value);
-
-                    emailService.sendHtmlEmail(
-                            targetEmail,
-                            "🚨 Alert: High " + type + " usage in " + containerName,
-                            "alert-email",
-                            variables
-                    );
+                    log.info("Queueing alert email to {}", targetEmail);
+                    notificationQueue.enqueue(targetEmail, alert);
                 } else {
                     log.warn("Notification skipped: Target email is invalid or placeholder ({})", targetEmail);
                 }
@@ -206,7 +369,13 @@ public class AlertService {
                 log.info("Notification skipped: Global notifications are disabled");
             }
         } else {
-            log.info("Alert cooldown active for container {}: {}", containerName, type);
+            if (log.isDebugEnabled() && debugSampler.sample(alertKey)) {
+                log.debug("Alert cooldown active for container {}: {}", containerName, ruleName);
+            }
         }
     }
+
+    private enum SampleOutcome {
+        CHECKED, TIMED_OUT, FAILED, SKIPPED
+    }
 }
@@ -0,0 +1,208 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.DockerClient;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.BulkRequest;
+import logtracker.pocket.lumenmobileapp.model.BulkResult;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Runs start, stop, restart or remove on many containers at once. Every container gets its own
+ * virtual thread; at most {@code app.bulk.parallelism} Docker calls are in flight, and a call that
+ * has not answered within {@code app.bulk.operation-timeout-seconds} is reported as timed out.
+ * Results are handed to the caller as each operation completes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BulkOperationService {
+
+    public enum Action {
+        START, STOP, RESTART, REMOVE
+    }
+
+    private final DockerHostRegistry dockerHostRegistry;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("bulk-", 0).factory());
+
+    @Value("${app.bulk.parallelism:8}")
+    private int parallelism;
+
+    @Value("${app.bulk.operation-timeout-seconds:30}")
+    private int operationTimeoutSeconds;
+
+    @Value("${app.bulk.max-containers:500}")
+    private int maxContainers;
+
+    /**
+     * The containers a request applies to, references that matched no container, and hosts that did
+     * not answer while a label selector was matched.
+     */
+    public record Selection(Action action, List<ContainerInfo> containers, List<String> notFound, Map<String, String> failures) {
+        public int size() {
+            return containers.size() + notFound.size();
+        }
+    }
+
+    /**
+     * Validates a request and resolves its containers.
+     *
+     * @throws IllegalArgumentException if the action is unknown, not exactly one of ids and label is given,
+     *                                  or the request names or selects more than {@code app.bulk.max-containers}
+     */
+    public Selection select(BulkRequest request) {
+        Action action = parseAction(request.getAction());
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean byLabel = request.getLabel() != null && !request.getLabel().isBlank();
+        if (byIds == byLabel) {
+            throw new IllegalArgumentException("Give either 'ids' or 'label'");
+        }
+        // Before resolving, which may ask every host about each reference
+        if (byIds && request.getIds().size() > maxContainers) {
+            throw new IllegalArgumentException("Request names " + request.getIds().size() + " containers, the limit is " + maxContainers);
+        }
+
+        List<ContainerInfo> containers = new ArrayList<>();
+        List<String> notFound = new ArrayList<>();
+        Map<String, String> failures = Map.of();
+        if (byIds) {
+            Set<String> seen = new HashSet<>();
+            for (String reference : request.getIds()) {
+                Optional<ContainerInfo> container = dockerHostRegistry.resolve(reference);
+                if (container.isEmpty()) {
+                    notFound.add(reference);
+                } else if (seen.add(container.get().getId())) {
+                    containers.add(container.get());
+                }
+            }
+        } else {
+            String[] label = request.getLabel().trim().split("=", 2);
+            DockerHostRegistry.Gathered<ContainerInfo> all = dockerHostRegistry.listContainers();
+            for (ContainerInfo container : all.items()) {
+                String value = container.getLabels() != null ? container.getLabels().get(label[0]) : null;
+                if (value != null && (label.length == 1 || label[1].equals(value))) {
+                    containers.add(container);
+                }
+            }
+            failures = all.failures();
+        }
+        Selection selection = new Selection(action, containers, notFound, failures);
+        if (selection.size() > maxContainers) {
+            throw new IllegalArgumentException("Request selects " + selection.size() + " containers, the limit is " + maxContainers);
+        }
+        return selection;
+    }
+
+    /**
+     * Runs the action on every selected container in the background and passes each result to {@code sink}
+     * as it completes, from the thread that ran it. The future completes once all results were delivered.
+     */
+    public CompletableFuture<Void> submit(Selection selection, Consumer<BulkResult> sink) {
+        return CompletableFuture.runAsync(() -> execute(selection, sink), executor);
+    }
+
+    private void execute(Selection selection, Consumer<BulkResult> sink) {
+        String action = selection.action().name().toLowerCase(Locale.ROOT);
+        for (String reference : selection.notFound()) {
+            sink.accept(BulkResult.builder()
+                    .containerId(reference)
+                    .action(action)
+                    .status(BulkResult.NOT_FOUND)
+                    .error("No such container: " + reference)
+                    .build());
+        }
+
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<Future<?>> tasks = new ArrayList<>(selection.containers().size());
+        for (ContainerInfo container : selection.containers()) {
+            tasks.add(executor.submit(() -> sink.accept(run(selection.action(), container, permits))));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                log.error("Bulk task failed: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Bulk " + action + " interrupted");
+            }
+        }
+        log.info("Bulk {} finished on {} containers ({} not found)", action, selection.containers().size(), selection.notFound().size());
+    }
+
+    private BulkResult run(Action action, ContainerInfo container, Semaphore permits) {
+        BulkResult.BulkResultBuilder result = BulkResult.builder()
+                .containerId(container.getId())
+                .name(container.getName())
+                .host(container.getHost())
+                .action(action.name().toLowerCase(Locale.ROOT));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return result.status(BulkResult.FAILED).error("Interrupted").build();
+        }
+
+        long started = System.nanoTime();
+        // The permit is held until Docker answers, so a timed-out call still counts against the cap
+        Future<?> call = executor.submit(() -> {
+            try {
+                perform(action, container);
+            } finally {
+                permits.release();
+            }
+            return null;
+        });
+        try {
+            call.get(operationTimeoutSeconds, TimeUnit.SECONDS);
+            result.status(BulkResult.OK);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            result.status(BulkResult.TIMED_OUT).error("No answer within " + operationTimeoutSeconds + " s");
+        } catch (ExecutionException e) {
+            result.status(BulkResult.FAILED).error(String.valueOf(e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.cancel(true);
+            result.status(BulkResult.FAILED).error("Interrupted");
+        }
+        return result.durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).build();
+    }
+
+    private void perform(Action action, ContainerInfo container) {
+        DockerClient client = dockerHostRegistry.clientOf(container);
+        String id = container.getId();
+        switch (action) {
+            case START -> client.startContainerCmd(id).exec();
+            case STOP -> client.stopContainerCmd(id).exec();
+            case RESTART -> client.restartContainerCmd(id).exec();
+            case REMOVE -> {
+                client.removeContainerCmd(id).withForce(true).exec();
+                dockerHostRegistry.forget(id);
+            }
+        }
+    }
+
+    private static Action parseAction(String action) {
+        if (action == null) {
+            throw new IllegalArgumentException("'action' is required (start, stop, restart or remove)");
+        }
+        try {
+            return Action.valueOf(action.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown action: " + action + " (start, stop, restart or remove)");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,17 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.model.Event;
+
+/**
+ * Receives Docker container lifecycle events (start, die, destroy, rename, ...) from {@link ContainerEventWatcher}.
+ */
+public interface ContainerEventListener {
+
+    void onContainerEvent(String action, String containerId, Event event);
+
+    /**
+     * Called after the event stream was re-established; events may have been missed in between.
+     */
+    default void onEventsResumed() {
+    }
+}
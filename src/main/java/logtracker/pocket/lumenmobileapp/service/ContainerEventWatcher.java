@@ -0,0 +1,115 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.EventType;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the Docker events API for container lifecycle changes and dispatches them to all
+ * {@link ContainerEventListener}s. The subscription is re-established if the stream drops.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContainerEventWatcher {
+
+    private final DockerHostRegistry dockerHostRegistry;
+    private final List<ContainerEventListener> listeners;
+    private volatile Closeable subscription;
+    private volatile boolean connected;
+    private volatile boolean resumed;
+
+    @Scheduled(fixedDelay = 15, timeUnit = TimeUnit.SECONDS)
+    public void ensureConnected() {
+        if (connected) {
+            return;
+        }
+        connected = true;
+        log.info("Subscribing to Docker container events...");
+
+        try {
+            dockerHostRegistry.getCollectorClient(dockerHostRegistry.getLocalName()).eventsCmd()
+                    .withEventTypeFilter(EventType.CONTAINER)
+                    .exec(new ResultCallback.Adapter<Event>() {
+                        @Override
+                        public void onStart(Closeable closeable) {
+                            subscription = closeable;
+                            if (resumed) {
+                                notifyResumed();
+                            }
+                            resumed = true;
+                        }
+
+                        @Override
+                        public void onNext(Event event) {
+                            dispatch(event);
+                        }
+
+                        @Override
+                        public void onError(Throwable throwable) {
+                            log.error("Docker event stream failed: {}. Reconnecting shortly.", throwable.getMessage());
+                            connected = false;
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            log.warn("Docker event stream completed. Reconnecting shortly.");
+                            connected = false;
+                        }
+                    });
+        } catch (Exception e) {
+            log.error("Failed to subscribe to Docker events: {}", e.getMessage());
+            connected = false;
+        }
+    }
+
+    private void dispatch(Event event) {
+        String action = event.getAction() != null ? event.getAction() : event.getStatus();
+        String containerId = event.getActor() != null && event.getActor().getId() != null ? event.getActor().getId() : event.getId();
+        if (action == null || containerId == null) {
+            return;
+        }
+
+        log.debug("Container event: {} {}", action, containerId);
+        for (ContainerEventListener listener : listeners) {
+            try {
+                listener.onContainerEvent(action, containerId, event);
+            } catch (Exception e) {
+                log.error("Container event listener {} failed for {} {}: {}", listener.getClass().getSimpleName(), action, containerId, e.getMessage());
+            }
+        }
+    }
+
+    private void notifyResumed() {
+        log.info("Docker event stream re-established");
+        for (ContainerEventListener listener : listeners) {
+            try {
+                listener.onEventsResumed();
+            } catch (Exception e) {
+                log.error("Container event listener {} failed to resync: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Closeable closeable = subscription;
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
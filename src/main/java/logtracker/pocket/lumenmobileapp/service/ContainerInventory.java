@@ -0,0 +1,361 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Event;
+import jakarta.annotation.PostConstruct;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * In-process cache of all containers on the host, filled once at startup and kept current
+ * through Docker container events. Lookups work by full id, unique id prefix (e.g. the 12 char
+ * short id) and name, so REST endpoints and websocket handlers do not have to hit the daemon.
+ * Every change bumps a version that is used as the ETag of the container list.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContainerInventory implements ContainerEventListener {
+
+    // Events that never change what the inventory shows
+    private static final Set<String> IGNORED_ACTION_PREFIXES = Set.of("exec_", "attach", "top", "resize", "export", "commit", "copy", "archive-path", "extract-to-dir");
+    // How long a key the daemon did not know (or could not be asked about) is answered from memory
+    private static final long MISS_TTL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final int MAX_MISSES = 10_000;
+
+    private final DockerClient dockerClient;
+    private final ConcurrentSkipListMap<String, Entry> byId = new ConcurrentSkipListMap<>();
+    private final Map<String, String> idByName = new ConcurrentHashMap<>();
+    // Keys that missed, until when they are not looked up on the daemon again
+    private final Map<String, Long> misses = new ConcurrentHashMap<>();
+    // Seeded from the wall clock so ETags from before a restart never match
+    private long version = System.currentTimeMillis();
+    private volatile List<ContainerInfo> snapshot = List.of();
+
+    @Value("${app.docker.local-name:local}")
+    private String hostName;
+
+    @PostConstruct
+    public void init() {
+        try {
+            refreshAll();
+        } catch (Exception e) {
+            log.error("Initial container inventory load failed: {}", e.getMessage());
+        }
+    }
+
+    public List<ContainerInfo> list() {
+        return snapshot;
+    }
+
+    public String getETag() {
+        return etag(getVersion());
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Resolves a full id, unique id prefix or container name. Unknown keys are looked up on the daemon once,
+     * so containers created a moment ago are found even before their event has been processed. Misses are
+     * remembered for a few seconds; a daemon that cannot be reached counts as a miss.
+     */
+    public Optional<ContainerInfo> resolve(String idOrName) {
+        if (idOrName == null || idOrName.isEmpty()) {
+            return Optional.empty();
+        }
+        Entry entry = find(idOrName);
+        if (entry == null) {
+            try {
+                entry = loadFromDaemon(idOrName);
+            } catch (RuntimeException e) {
+                log.warn("Could not look up container {}: {}", idOrName, e.getMessage());
+                recordMiss(idOrName);
+            }
+        }
+        return Optional.ofNullable(entry).map(e -> e.summary);
+    }
+
+    /**
+     * Resolves a full id, unique id prefix or container name from memory only; never asks the daemon.
+     */
+    public Optional<ContainerInfo> findCached(String idOrName) {
+        if (idOrName == null || idOrName.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(find(idOrName)).map(e -> e.summary);
+    }
+
+    /**
+     * Returns the detailed (inspected) view of a container, inspecting it only when the cached one is stale.
+     *
+     * @throws NotFoundException if the container does not exist
+     */
+    public ContainerInfo getDetails(String idOrName) {
+        Entry entry = find(idOrName);
+        if (entry == null) {
+            entry = loadFromDaemon(idOrName);
+        }
+        if (entry == null) {
+            throw new NotFoundException("No such container: " + idOrName);
+        }
+
+        ContainerInfo details = entry.details;
+        if (details == null) {
+            InspectContainerResponse response = dockerClient.inspectContainerCmd(entry.summary.getId()).exec();
+            details = mapToContainerInfo(response, entry.summary);
+            entry.details = details;
+        }
+        return details;
+    }
+
+    public String getDetailsETag(String idOrName) {
+        Entry entry = find(idOrName);
+        return entry != null ? etag(entry.revision) : null;
+    }
+
+    /**
+     * Periodic full resync. Keeps relative status strings like "Up 2 hours" fresh and repairs anything
+     * missed by the event stream, while clients keep getting 304s if nothing visible changed.
+     */
+    @Scheduled(fixedRateString = "${app.inventory.resync-seconds:60}", initialDelayString = "${app.inventory.resync-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void resync() {
+        try {
+            refreshAll();
+        } catch (Exception e) {
+            log.error("Container inventory resync failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onContainerEvent(String action, String containerId, Event event) {
+        for (String prefix : IGNORED_ACTION_PREFIXES) {
+            if (action.startsWith(prefix)) {
+                return;
+            }
+        }
+
+        if ("destroy".equals(action)) {
+            remove(containerId);
+            return;
+        }
+
+        try {
+            List<Container> containers = dockerClient.listContainersCmd()
+                    .withShowAll(true)
+                    .withIdFilter(Collections.singleton(containerId))
+                    .exec();
+            if (containers.isEmpty()) {
+                remove(containerId);
+            } else {
+                put(mapToContainerInfo(containers.get(0), hostName), true);
+            }
+        } catch (Exception e) {
+            log.error("Failed to refresh container {} after '{}' event: {}", containerId, action, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onEventsResumed() {
+        resync();
+    }
+
+    private synchronized void refreshAll() {
+        List<Container> containers = dockerClient.listContainersCmd()
+                .withShowAll(true)
+                .exec();
+
+        Set<String> seen = new HashSet<>();
+        boolean changed = false;
+        for (Container container : containers) {
+            seen.add(container.getId());
+            changed |= put(mapToContainerInfo(container, hostName), false);
+        }
+        for (String id : byId.keySet()) {
+            if (!seen.contains(id)) {
+                changed |= remove(id);
+            }
+        }
+        if (changed || snapshot.size() != byId.size()) {
+            publishSnapshot();
+        }
+        log.debug("Container inventory holds {} containers (version {})", byId.size(), version);
+    }
+
+    private synchronized boolean put(ContainerInfo summary, boolean publish) {
+        Entry existing = byId.get(summary.getId());
+        if (existing != null && existing.summary.equals(summary)) {
+            return false;
+        }
+        if (existing != null && !existing.summary.getName().equals(summary.getName())) {
+            idByName.remove(existing.summary.getName(), summary.getId());
+        }
+        version++;
+        byId.put(summary.getId(), new Entry(summary, version));
+        idByName.put(summary.getName(), summary.getId());
+        misses.remove(summary.getId());
+        misses.remove(summary.getName());
+        if (publish) {
+            publishSnapshot();
+        }
+        return true;
+    }
+
+    private synchronized boolean remove(String containerId) {
+        Entry removed = byId.remove(containerId);
+        if (removed == null) {
+            return false;
+        }
+        idByName.remove(removed.summary.getName(), containerId);
+        version++;
+        publishSnapshot();
+        return true;
+    }
+
+    private void publishSnapshot() {
+        snapshot = List.copyOf(byId.values().stream().map(e -> e.summary).collect(Collectors.toList()));
+    }
+
+    private Entry find(String idOrName) {
+        Entry entry = byId.get(idOrName);
+        if (entry != null) {
+            return entry;
+        }
+
+        String id = idByName.get(idOrName.startsWith("/") ? idOrName.substring(1) : idOrName);
+        if (id != null) {
+            return byId.get(id);
+        }
+
+        // Unique id prefix: the first key at or after the prefix must match it, and the next one must not
+        Map.Entry<String, Entry> candidate = byId.ceilingEntry(idOrName);
+        if (candidate != null && candidate.getKey().startsWith(idOrName)) {
+            String next = byId.higherKey(candidate.getKey());
+            if (next == null || !next.startsWith(idOrName)) {
+                return candidate.getValue();
+            }
+            log.warn("Container id prefix '{}' is ambiguous", idOrName);
+        }
+        return null;
+    }
+
+    private Entry loadFromDaemon(String idOrName) {
+        Long retryAt = misses.get(idOrName);
+        if (retryAt != null) {
+            if (System.currentTimeMillis() < retryAt) {
+                return null;
+            }
+            misses.remove(idOrName, retryAt);
+        }
+        try {
+            InspectContainerResponse response = dockerClient.inspectContainerCmd(idOrName).exec();
+            List<Container> containers = dockerClient.listContainersCmd()
+                    .withShowAll(true)
+                    .withIdFilter(Collections.singleton(response.getId()))
+                    .exec();
+            if (containers.isEmpty()) {
+                recordMiss(idOrName);
+                return null;
+            }
+            put(mapToContainerInfo(containers.get(0), hostName), true);
+            Entry entry = byId.get(response.getId());
+            if (entry != null) {
+                entry.details = mapToContainerInfo(response, entry.summary);
+            }
+            return entry;
+        } catch (NotFoundException e) {
+            recordMiss(idOrName);
+            return null;
+        }
+    }
+
+    private void recordMiss(String idOrName) {
+        if (misses.size() >= MAX_MISSES) {
+            misses.clear();
+        }
+        misses.put(idOrName, System.currentTimeMillis() + MISS_TTL_MILLIS);
+    }
+
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static ContainerInfo mapToContainerInfo(Container c, String host) {
+        return ContainerInfo.builder()
+                .id(c.getId())
+                .host(host)
+                .name(c.getNames() != null && c.getNames().length > 0 ? c.getNames()[0].replaceFirst("/", "") : c.getId())
+                .status(c.getStatus())
+                .state(c.getState())
+                .image(c.getImage())
+                .created(c.getCreated())
+                .labels(c.getLabels() != null ? c.getLabels() : Collections.emptyMap())
+                .build();
+    }
+
+    static ContainerInfo mapToContainerInfo(InspectContainerResponse container, ContainerInfo summary) {
+        Map<String, String> envVars = Collections.emptyMap();
+        if (container.getConfig() != null && container.getConfig().getEnv() != null) {
+            envVars = Arrays.stream(container.getConfig().getEnv())
+                    .filter(s -> s.contains("="))
+                    .map(s -> s.split("=", 2))
+                    .collect(Collectors.toMap(s -> s[0], s -> s[1], (v1, v2) -> v1));
+        }
+
+        List<String> ports = Collections.emptyList();
+        if (container.getNetworkSettings() != null && container.getNetworkSettings().getPorts() != null) {
+            ports = container.getNetworkSettings().getPorts().getBindings().entrySet().stream()
+                    .map(entry -> entry.getKey().toString() + " -> " +
+                            (entry.getValue() != null ? Arrays.toString(entry.getValue()) : "none"))
+                    .collect(Collectors.toList());
+        }
+
+        List<String> mounts = Collections.emptyList();
+        if (container.getMounts() != null) {
+            mounts = container.getMounts().stream()
+                    .map(m -> (m.getSource() != null ? m.getSource() : "") + ":" +
+                            (m.getDestination() != null ? m.getDestination() : ""))
+                    .collect(Collectors.toList());
+        }
+
+        return ContainerInfo.builder()
+                .id(container.getId())
+                .host(summary.getHost())
+                .name(container.getName().replaceFirst("/", ""))
+                .status(container.getState().getStatus())
+                .state(container.getState().getStatus())
+                .image(container.getConfig().getImage())
+                .created(summary.getCreated())
+                .env(envVars)
+                .ports(ports)
+                .mounts(mounts)
+                .labels(summary.getLabels())
+                .build();
+    }
+
+    private static class Entry {
+        private final ContainerInfo summary;
+        private final long revision;
+        // Inspected details, loaded lazily and dropped whenever the container changes
+        private volatile ContainerInfo details;
+
+        private Entry(ContainerInfo summary, long revision) {
+            this.summary = summary;
+            this.revision = revision;
+        }
+    }
+}
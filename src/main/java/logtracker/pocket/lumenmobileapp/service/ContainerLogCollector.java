@@ -0,0 +1,261 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.LogContainerCmd;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.Frame;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import logtracker.pocket.lumenmobileapp.storage.LogSegmentStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Follows the output of every running container and hands each parsed line to all
+ * {@link ContainerLogListener}s (the on-disk log store, log pattern alerts, the live /logs streams).
+ * Listeners are told when following of a container starts and stops.
+ * After a restart each container resumes from the last line already stored.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContainerLogCollector implements ContainerEventListener {
+
+    private static final Set<String> STOP_ACTIONS = Set.of("die", "stop", "kill", "destroy", "oom");
+    // How long a stream of an exited container may take to deliver its last lines before reconcile closes it
+    private static final long DRAIN_GRACE_MILLIS = 10_000;
+
+    private final DockerClient dockerClient;
+    private final DockerHostRegistry dockerHostRegistry;
+    private final LogSegmentStore logSegmentStore;
+    private final List<ContainerLogListener> listeners;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, FollowedContainer> followed = new ConcurrentHashMap<>();
+    private Counter framesIn;
+
+    @PostConstruct
+    public void init() {
+        framesIn = Counter.builder("lumen.frames.in")
+                .description("Frames received from Docker streams")
+                .tag("source", "log-collector")
+                .register(meterRegistry);
+    }
+
+    @Value("${app.logs.collect.enabled:true}")
+    private boolean enabled;
+
+    @Scheduled(fixedDelayString = "${app.collector.reconcile-seconds:30}", timeUnit = TimeUnit.SECONDS)
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Container> running = dockerClient.listContainersCmd()
+                    .withStatusFilter(Collections.singleton("running"))
+                    .exec();
+
+            Set<String> runningIds = new HashSet<>();
+            for (Container container : running) {
+                runningIds.add(container.getId());
+                String containerName = container.getNames().length > 0 ? container.getNames()[0].replaceFirst("/", "") : container.getId();
+                startFollowing(container.getId(), containerName);
+            }
+            long now = System.currentTimeMillis();
+            for (FollowedContainer tracked : followed.values()) {
+                if (runningIds.contains(tracked.containerId)) {
+                    continue;
+                }
+                // Normally the stream has ended by now; one that has not gets a grace period to drain first
+                if (tracked.exitedAt == 0) {
+                    tracked.exitedAt = now;
+                } else if (now - tracked.exitedAt >= DRAIN_GRACE_MILLIS) {
+                    stopFollowing(tracked.containerId);
+                }
+            }
+            log.debug("Collecting logs of {} running containers", followed.size());
+        } catch (Exception e) {
+            log.error("Error reconciling log collectors: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onContainerEvent(String action, String containerId, Event event) {
+        if (!enabled) {
+            return;
+        }
+        if ("start".equals(action)) {
+            String containerName = event.getActor() != null && event.getActor().getAttributes() != null
+                    ? event.getActor().getAttributes().getOrDefault("name", containerId)
+                    : containerId;
+            FollowedContainer previous = followed.get(containerId);
+            if (previous != null && previous.exitedAt != 0) {
+                // Restarted before the old stream ended; the new one resumes after the last line taken
+                stopFollowing(containerId);
+            }
+            startFollowing(containerId, containerName);
+        } else if (STOP_ACTIONS.contains(action)) {
+            // Docker may still be delivering the last lines, often the crash output, so the stream is left to
+            // end by itself (onComplete flushes and drops the entry); reconcile closes it if it never does
+            FollowedContainer tracked = followed.get(containerId);
+            if (tracked != null && tracked.exitedAt == 0) {
+                tracked.exitedAt = System.currentTimeMillis();
+            }
+        } else if ("rename".equals(action)) {
+            FollowedContainer tracked = followed.get(containerId);
+            if (tracked != null && event.getActor() != null && event.getActor().getAttributes() != null) {
+                tracked.containerName = event.getActor().getAttributes().getOrDefault("name", tracked.containerName);
+            }
+        }
+    }
+
+    private void startFollowing(String containerId, String containerName) {
+        followed.computeIfAbsent(containerId, id -> {
+            FollowedContainer tracked = new FollowedContainer(id, containerName, logSegmentStore.lastTimestamp(id));
+            log.info("Starting log collection for container: {}", containerName);
+
+            LogContainerCmd cmd = dockerHostRegistry.getCollectorClient(dockerHostRegistry.getLocalName()).logContainerCmd(id)
+                    .withStdOut(true)
+                    .withStdErr(true)
+                    .withFollowStream(true)
+                    .withTimestamps(true);
+            if (tracked.resumeAfter > 0) {
+                cmd.withSince((int) TimeUnit.MILLISECONDS.toSeconds(tracked.resumeAfter));
+            } else {
+                cmd.withTail(0);
+            }
+
+            notify(listener -> listener.onFollowingStarted(id), id);
+            LogFrameParser parser = new LogFrameParser();
+            Consumer<LogMessage> sink = message -> publish(tracked, message);
+            cmd.exec(new ResultCallback.Adapter<Frame>() {
+                @Override
+                public void onStart(Closeable closeable) {
+                    tracked.upstream = closeable;
+                    if (tracked.closed) {
+                        tracked.close();
+                    }
+                }
+
+                @Override
+                public void onNext(Frame frame) {
+                    if (!tracked.closed) {
+                        framesIn.increment();
+                        parser.parse(frame, sink);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    log.error("Error collecting logs for container {}: {}", tracked.containerName, throwable.getMessage());
+                    ended(tracked);
+                }
+
+                @Override
+                public void onComplete() {
+                    log.info("Log collection completed for container: {}", tracked.containerName);
+                    parser.flush(sink);
+                    ended(tracked);
+                }
+            });
+            return tracked;
+        });
+    }
+
+    private void stopFollowing(String containerId) {
+        FollowedContainer tracked = followed.remove(containerId);
+        if (tracked != null) {
+            log.info("Stopping log collection for container: {}", tracked.containerName);
+            tracked.close();
+            notify(listener -> listener.onFollowingStopped(containerId), containerId);
+        }
+    }
+
+    // The stream ended on its own; listeners are told unless stopFollowing or a shutdown already removed it
+    private void ended(FollowedContainer tracked) {
+        boolean current = followed.remove(tracked.containerId, tracked);
+        tracked.close();
+        if (current) {
+            notify(listener -> listener.onFollowingStopped(tracked.containerId), tracked.containerId);
+        }
+    }
+
+    private void notify(Consumer<ContainerLogListener> call, String containerId) {
+        for (ContainerLogListener listener : listeners) {
+            try {
+                call.accept(listener);
+            } catch (Exception e) {
+                log.error("Log listener {} failed for {}: {}", listener.getClass().getSimpleName(), containerId, e.getMessage());
+            }
+        }
+    }
+
+    private void publish(FollowedContainer tracked, LogMessage message) {
+        if (tracked.closed) {
+            return;
+        }
+        // 'since' has second precision, so skip what was already stored before a restart
+        if (tracked.resumeAfter > 0 && message.getTimestampMillis() <= tracked.resumeAfter) {
+            return;
+        }
+        for (ContainerLogListener listener : listeners) {
+            try {
+                listener.onLogLine(tracked.containerId, tracked.containerName, message);
+            } catch (Exception e) {
+                log.error("Log listener {} failed for {}: {}", listener.getClass().getSimpleName(), tracked.containerName, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String containerId : followed.keySet()) {
+            FollowedContainer tracked = followed.remove(containerId);
+            if (tracked != null) {
+                tracked.close();
+            }
+        }
+    }
+
+    private static class FollowedContainer {
+        private final String containerId;
+        private final long resumeAfter;
+        private volatile String containerName;
+        private volatile Closeable upstream;
+        private volatile boolean closed;
+        // When the container was seen to exit, 0 while it runs
+        private volatile long exitedAt;
+
+        private FollowedContainer(String containerId, String containerName, long resumeAfter) {
+            this.containerId = containerId;
+            this.containerName = containerName;
+            this.resumeAfter = resumeAfter;
+        }
+
+        private void close() {
+            closed = true;
+            Closeable closeable = upstream;
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
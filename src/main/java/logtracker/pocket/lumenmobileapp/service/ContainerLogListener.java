@@ -0,0 +1,24 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+
+/**
+ * Receives every log line collected by {@link ContainerLogCollector}.
+ * Called on the Docker callback thread of the container, so implementations must return quickly.
+ */
+public interface ContainerLogListener {
+
+    void onLogLine(String containerId, String containerName, LogMessage message);
+
+    /**
+     * The collector started following the container; its lines are delivered from now on.
+     */
+    default void onFollowingStarted(String containerId) {
+    }
+
+    /**
+     * The collector stopped following the container (it exited, or its stream ended or failed).
+     */
+    default void onFollowingStopped(String containerId) {
+    }
+}
@@ -0,0 +1,222 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Container;
+import com.github.dockerjava.api.model.Event;
+import com.github.dockerjava.api.model.Statistics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.model.HostResource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one long-lived streaming stats subscription per running container and pushes every
+ * sample to all {@link ContainerStatsListener}s (alert evaluation, the /stats hub, ...).
+ * Containers are added and removed through Docker events; a periodic reconcile against the
+ * running container lists of all Docker hosts repairs anything missed while the event stream was
+ * down, and is how containers of hosts other than {@code docker.host} are picked up.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContainerStatsCollector implements ContainerEventListener {
+
+    private static final Set<String> STOP_ACTIONS = Set.of("die", "stop", "kill", "destroy", "oom");
+
+    private final DockerHostRegistry dockerHostRegistry;
+    private final List<ContainerStatsListener> listeners;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CollectedContainer> collected = new ConcurrentHashMap<>();
+    private Counter framesIn;
+
+    @PostConstruct
+    public void init() {
+        framesIn = Counter.builder("lumen.frames.in")
+                .description("Frames received from Docker streams")
+                .tag("source", "stats")
+                .register(meterRegistry);
+    }
+
+    public boolean isCollecting(String containerId) {
+        return collected.containsKey(containerId);
+    }
+
+    public int getCollectedContainerCount() {
+        return collected.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.collector.reconcile-seconds:30}", timeUnit = TimeUnit.SECONDS)
+    public void reconcile() {
+        try {
+            DockerHostRegistry.Gathered<HostResource<Container>> running = dockerHostRegistry.gather(client -> client.listContainersCmd()
+                    .withStatusFilter(Collections.singleton("running"))
+                    .exec());
+
+            Set<String> runningIds = new HashSet<>();
+            for (HostResource<Container> item : running.items()) {
+                Container container = item.getResource();
+                runningIds.add(container.getId());
+                String containerName = container.getNames().length > 0 ? container.getNames()[0].replaceFirst("/", "") : container.getId();
+                startCollecting(item.getHost(), container.getId(), containerName);
+            }
+            for (CollectedContainer tracked : collected.values()) {
+                // Containers of a host that did not answer are kept until it does
+                if (!runningIds.contains(tracked.containerId) && !running.failures().containsKey(tracked.host)) {
+                    stopCollecting(tracked.containerId);
+                }
+            }
+            log.debug("Collecting stats for {} running containers", collected.size());
+        } catch (Exception e) {
+            log.error("Error reconciling stats collectors: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onContainerEvent(String action, String containerId, Event event) {
+        if ("start".equals(action) || "unpause".equals(action)) {
+            String containerName = event.getActor() != null && event.getActor().getAttributes() != null
+                    ? event.getActor().getAttributes().getOrDefault("name", containerId)
+                    : containerId;
+            startCollecting(dockerHostRegistry.getLocalName(), containerId, containerName);
+        } else if (STOP_ACTIONS.contains(action)) {
+            stopCollecting(containerId);
+        } else if ("rename".equals(action)) {
+            CollectedContainer tracked = collected.get(containerId);
+            if (tracked != null && event.getActor() != null && event.getActor().getAttributes() != null) {
+                tracked.containerName = event.getActor().getAttributes().getOrDefault("name", tracked.containerName);
+            }
+        }
+    }
+
+    private void startCollecting(String host, String containerId, String containerName) {
+        collected.computeIfAbsent(containerId, id -> {
+            CollectedContainer tracked = new CollectedContainer(host, id, containerName);
+            log.info("Starting stats collection for container: {}", containerName);
+            dockerHostRegistry.getCollectorClient(host).statsCmd(id).exec(new ResultCallback.Adapter<Statistics>() {
+                @Override
+                public void onStart(Closeable closeable) {
+                    tracked.upstream = closeable;
+                    if (tracked.closed) {
+                        tracked.close();
+                    }
+                }
+
+                @Override
+                public void onNext(Statistics stats) {
+                    publish(tracked, stats);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    log.error("Error collecting stats for container {}: {}", tracked.containerName, throwable.getMessage());
+                    ended(tracked);
+                }
+
+                @Override
+                public void onComplete() {
+                    log.info("Stats collection completed for container: {}", tracked.containerName);
+                    ended(tracked);
+                }
+            });
+            return tracked;
+        });
+    }
+
+    private void stopCollecting(String containerId) {
+        CollectedContainer tracked = collected.remove(containerId);
+        if (tracked == null) {
+            return;
+        }
+        log.info("Stopping stats collection for container: {}", tracked.containerName);
+        tracked.close();
+        notifyStopped(containerId);
+    }
+
+    /**
+     * The stream of a container ended on its own (the container exited, or the daemon dropped it). Listeners are
+     * told like on a stop, unless the entry was already removed by {@link #stopCollecting} or a shutdown.
+     */
+    private void ended(CollectedContainer tracked) {
+        boolean current = collected.remove(tracked.containerId, tracked);
+        tracked.close();
+        if (current) {
+            notifyStopped(tracked.containerId);
+        }
+    }
+
+    private void notifyStopped(String containerId) {
+        for (ContainerStatsListener listener : listeners) {
+            try {
+                listener.onContainerStopped(containerId);
+            } catch (Exception e) {
+                log.error("Stats listener {} failed on stop of {}: {}", listener.getClass().getSimpleName(), containerId, e.getMessage());
+            }
+        }
+    }
+
+    private void publish(CollectedContainer tracked, Statistics stats) {
+        if (tracked.closed) {
+            return;
+        }
+        framesIn.increment();
+        // Reused for every sample of the container; its stream delivers them one at a time
+        ContainerStats sample = tracked.sample;
+        StatsDerivation.derive(tracked.containerId, stats, sample);
+        for (ContainerStatsListener listener : listeners) {
+            try {
+                listener.onStats(tracked.containerName, sample);
+            } catch (Exception e) {
+                log.error("Stats listener {} failed for {}: {}", listener.getClass().getSimpleName(), tracked.containerName, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String containerId : collected.keySet()) {
+            CollectedContainer tracked = collected.remove(containerId);
+            if (tracked != null) {
+                tracked.close();
+            }
+        }
+    }
+
+    private static class CollectedContainer {
+        private final String host;
+        private final String containerId;
+        private final ContainerStats sample = new ContainerStats();
+        private volatile String containerName;
+        private volatile Closeable upstream;
+        private volatile boolean closed;
+
+        private CollectedContainer(String host, String containerId, String containerName) {
+            this.host = host;
+            this.containerId = containerId;
+            this.containerName = containerName;
+        }
+
+        private void close() {
+            closed = true;
+            Closeable closeable = upstream;
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
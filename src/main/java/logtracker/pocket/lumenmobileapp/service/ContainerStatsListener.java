@@ -0,0 +1,17 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+
+/**
+ * Receives every stats sample collected by {@link ContainerStatsCollector}.
+ * Called on the Docker callback thread of the container, so implementations must return quickly.
+ * The stats object is reused for the container's next sample: implementations that keep it beyond
+ * the call (or hand it to another thread) must copy it.
+ */
+public interface ContainerStatsListener {
+
+    void onStats(String containerName, ContainerStats stats);
+
+    default void onContainerStopped(String containerId) {
+    }
+}
@@ -0,0 +1,333 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.Container;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.config.DockerHostProperties;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.model.HostResource;
+import logtracker.pocket.lumenmobileapp.transport.DockerTransport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * One Docker client per configured endpoint: the {@code docker.host} daemon, which the container inventory
+ * mirrors, plus every {@code app.docker.hosts} entry. Listings are fanned out to all hosts at once and each
+ * host gets {@code app.docker.timeout} to answer; whatever the reachable hosts returned is used and the
+ * others are reported as failed. Containers on other hosts are located by asking all of them once, and the
+ * answer is remembered so later commands and streams go straight to the right daemon. Every host has a
+ * request client, a streaming client for sessions and a client for the background collectors, on
+ * separate connection pools (see {@link DockerTransport}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DockerHostRegistry {
+
+    private final DockerClient dockerClient;
+    private final ContainerInventory containerInventory;
+    private final DockerHostProperties properties;
+    private final DockerTransport dockerTransport;
+    private final Map<String, DockerClient> clients = new LinkedHashMap<>();
+    private final Map<String, DockerClient> streamingClients = new HashMap<>();
+    private final Map<String, DockerClient> collectorClients = new HashMap<>();
+    // Containers found on other hosts, by full id
+    private final Map<String, ContainerInfo> remote = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+
+    @Value("${docker.host}")
+    private String dockerHost;
+
+    /**
+     * Results of a call fanned out to several hosts, with the error of each host that did not answer in time.
+     */
+    public record Gathered<T>(List<T> items, Map<String, String> failures) {
+    }
+
+    @PostConstruct
+    public void init() {
+        clients.put(properties.getLocalName(), dockerClient);
+        streamingClients.put(properties.getLocalName(), dockerTransport.streamClient(dockerHost));
+        collectorClients.put(properties.getLocalName(), dockerTransport.collectorClient(properties.getLocalName(), dockerHost));
+        for (DockerHostProperties.Host host : properties.getHosts()) {
+            if (host.getName() == null || host.getName().isBlank() || host.getUrl() == null || host.getUrl().isBlank()) {
+                throw new IllegalStateException("Every app.docker.hosts entry needs a name and a url");
+            }
+            if (clients.containsKey(host.getName())) {
+                throw new IllegalStateException("Duplicate Docker host name: " + host.getName());
+            }
+            // Not pinged: an unreachable host must not keep the others from being watched
+            clients.put(host.getName(), dockerTransport.requestClient(host.getName(), host.getUrl()));
+            streamingClients.put(host.getName(), dockerTransport.streamClient(host.getUrl()));
+            collectorClients.put(host.getName(), dockerTransport.collectorClient(host.getName(), host.getUrl()));
+            log.info("Docker host {}: {}", host.getName(), host.getUrl());
+        }
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("docker-host-", 0).factory());
+    }
+
+    public List<String> getHostNames() {
+        return List.copyOf(clients.keySet());
+    }
+
+    public String getLocalName() {
+        return properties.getLocalName();
+    }
+
+    /**
+     * @return the client of a configured host, or null if there is none by that name
+     */
+    public DockerClient getClient(String host) {
+        return clients.get(host);
+    }
+
+    /**
+     * @return the client for the background collectors' streams from a configured host, or null if there is none
+     */
+    public DockerClient getCollectorClient(String host) {
+        return collectorClients.get(host);
+    }
+
+    /**
+     * @return the client for long-lived session streams from a configured host, or null if there is none by that name
+     */
+    public DockerClient getStreamingClient(String host) {
+        return streamingClients.get(host);
+    }
+
+    /**
+     * The streaming client of the host running a container.
+     *
+     * @throws NotFoundException if no host knows the container
+     */
+    public DockerClient streamingClientFor(String idOrName) {
+        ContainerInfo container = resolve(idOrName)
+                .orElseThrow(() -> new NotFoundException("No such container: " + idOrName));
+        DockerClient client = container.getHost() != null ? streamingClients.get(container.getHost()) : null;
+        return client != null ? client : streamingClients.get(properties.getLocalName());
+    }
+
+    public boolean isFederated() {
+        return clients.size() > 1;
+    }
+
+    /**
+     * Runs a listing on every host in parallel and tags each item with its host.
+     */
+    public <T> Gathered<HostResource<T>> gather(Function<DockerClient, List<T>> call) {
+        return gather(clients.keySet(), (host, client) -> call.apply(client).stream()
+                .map(item -> HostResource.<T>builder().host(host).resource(item).build())
+                .toList());
+    }
+
+    /**
+     * All containers of all hosts; the local ones come from the inventory without a daemon call.
+     */
+    public Gathered<ContainerInfo> listContainers() {
+        List<ContainerInfo> local = containerInventory.list();
+        if (!isFederated()) {
+            return new Gathered<>(local, Map.of());
+        }
+        Gathered<ContainerInfo> others = gather(remoteHosts(), (host, client) -> {
+            List<Container> containers = client.listContainersCmd().withShowAll(true).exec();
+            List<ContainerInfo> result = new ArrayList<>(containers.size());
+            for (Container container : containers) {
+                result.add(ContainerInventory.mapToContainerInfo(container, host));
+            }
+            return result;
+        });
+
+        // Refresh what is remembered about the hosts that answered
+        Set<String> seen = new HashSet<>();
+        for (ContainerInfo container : others.items()) {
+            seen.add(container.getId());
+            remote.put(container.getId(), container);
+        }
+        remote.values().removeIf(c -> !others.failures().containsKey(c.getHost()) && !seen.contains(c.getId()));
+
+        List<ContainerInfo> all = new ArrayList<>(local.size() + others.items().size());
+        all.addAll(local);
+        all.addAll(others.items());
+        return new Gathered<>(all, others.failures());
+    }
+
+    /**
+     * Resolves a full id, id prefix or name on any host: the local inventory first, then containers already
+     * located elsewhere, and finally all other hosts at once.
+     */
+    public Optional<ContainerInfo> resolve(String idOrName) {
+        Optional<ContainerInfo> local = containerInventory.resolve(idOrName);
+        if (local.isPresent() || !isFederated() || idOrName == null || idOrName.isEmpty()) {
+            return local;
+        }
+        ContainerInfo known = findRemote(idOrName);
+        return known != null ? Optional.of(known) : locate(idOrName);
+    }
+
+    /**
+     * Like {@link #resolve}, but answers only from the local inventory and the containers already located
+     * elsewhere, without asking any daemon. For threads that must not block.
+     */
+    public Optional<ContainerInfo> findCached(String idOrName) {
+        Optional<ContainerInfo> local = containerInventory.findCached(idOrName);
+        if (local.isPresent() || !isFederated() || idOrName == null || idOrName.isEmpty()) {
+            return local;
+        }
+        return Optional.ofNullable(findRemote(idOrName));
+    }
+
+    /**
+     * The client of the host running a container.
+     *
+     * @throws NotFoundException if no host knows the container
+     */
+    public DockerClient clientFor(String idOrName) {
+        ContainerInfo container = resolve(idOrName)
+                .orElseThrow(() -> new NotFoundException("No such container: " + idOrName));
+        return clientOf(container);
+    }
+
+    public DockerClient clientOf(ContainerInfo container) {
+        DockerClient client = container.getHost() != null ? clients.get(container.getHost()) : null;
+        return client != null ? client : dockerClient;
+    }
+
+    /**
+     * Detailed view of a container on any host.
+     *
+     * @throws NotFoundException if no host knows the container
+     */
+    public ContainerInfo getDetails(String idOrName) {
+        if (!isFederated() || containerInventory.resolve(idOrName).isPresent()) {
+            return containerInventory.getDetails(idOrName);
+        }
+        ContainerInfo container = resolve(idOrName)
+                .orElseThrow(() -> new NotFoundException("No such container: " + idOrName));
+        try {
+            InspectContainerResponse response = clientOf(container).inspectContainerCmd(container.getId()).exec();
+            return ContainerInventory.mapToContainerInfo(response, container);
+        } catch (NotFoundException e) {
+            forget(container.getId());
+            throw e;
+        }
+    }
+
+    /**
+     * Drops what is remembered about a container of another host, e.g. after it was removed.
+     */
+    public void forget(String containerId) {
+        remote.remove(containerId);
+    }
+
+    private ContainerInfo findRemote(String idOrName) {
+        ContainerInfo container = remote.get(idOrName);
+        if (container != null) {
+            return container;
+        }
+        String name = idOrName.startsWith("/") ? idOrName.substring(1) : idOrName;
+        ContainerInfo match = null;
+        for (ContainerInfo candidate : remote.values()) {
+            if (candidate.getName().equals(name)) {
+                return candidate;
+            }
+            if (candidate.getId().startsWith(idOrName)) {
+                if (match != null) {
+                    return null;
+                }
+                match = candidate;
+            }
+        }
+        return match;
+    }
+
+    private Optional<ContainerInfo> locate(String idOrName) {
+        Gathered<ContainerInfo> found = gather(remoteHosts(), (host, client) -> {
+            try {
+                InspectContainerResponse response = client.inspectContainerCmd(idOrName).exec();
+                List<Container> containers = client.listContainersCmd()
+                        .withShowAll(true)
+                        .withIdFilter(Collections.singleton(response.getId()))
+                        .exec();
+                return containers.isEmpty() ? List.of() : List.of(ContainerInventory.mapToContainerInfo(containers.get(0), host));
+            } catch (NotFoundException e) {
+                return List.of();
+            }
+        });
+        if (found.items().size() > 1) {
+            log.warn("Container '{}' exists on several hosts, using the one on {}", idOrName, found.items().get(0).getHost());
+        }
+        if (found.items().isEmpty()) {
+            return Optional.empty();
+        }
+        ContainerInfo container = found.items().get(0);
+        remote.put(container.getId(), container);
+        return Optional.of(container);
+    }
+
+    private List<String> remoteHosts() {
+        List<String> hosts = new ArrayList<>(clients.keySet());
+        hosts.remove(properties.getLocalName());
+        return hosts;
+    }
+
+    private <R> Gathered<R> gather(Collection<String> hosts, BiFunction<String, DockerClient, List<R>> call) {
+        Map<String, Future<List<R>>> pending = new LinkedHashMap<>();
+        for (String host : hosts) {
+            DockerClient client = clients.get(host);
+            pending.put(host, executor.submit(() -> call.apply(host, client)));
+        }
+
+        long deadline = System.nanoTime() + properties.getTimeout().toNanos();
+        List<R> items = new ArrayList<>();
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<List<R>>> entry : pending.entrySet()) {
+            String host = entry.getKey();
+            Future<List<R>> future = entry.getValue();
+            try {
+                items.addAll(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                failures.put(host, "No answer within " + properties.getTimeout().toMillis() + " ms");
+            } catch (ExecutionException e) {
+                failures.put(host, String.valueOf(e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                failures.put(host, "Interrupted");
+            }
+        }
+        if (!failures.isEmpty()) {
+            log.warn("Docker hosts without an answer: {}", failures);
+        }
+        return new Gathered<>(items, failures);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        List<Map.Entry<String, DockerClient>> owned = new ArrayList<>(streamingClients.entrySet());
+        owned.addAll(collectorClients.entrySet());
+        for (Map.Entry<String, DockerClient> entry : clients.entrySet()) {
+            if (entry.getValue() != dockerClient) {
+                owned.add(entry);
+            }
+        }
+        for (Map.Entry<String, DockerClient> entry : owned) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                log.warn("Error closing Docker client for {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+}
@@ -28,21 +28,7 @@ public class EmailService {
     public void sendHtmlEmail(String to, String subject, String templateName, Map<String, Object> variables) {
         log.info("Attempting to send email to {} with subject: {}", to, subject);
         try {
-            Context context = new Context();
-            if (variables != null) {
-                context.setVariables(variables);
-            }
-            String htmlContent = templateEngine.process(templateName, context);
-
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setFrom(fromEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true);
-
-            mailSender.send(message);
+            mailSender.send(createHtmlMessage(to, subject, templateName, variables));
             log.info("Email successfully sent to {} with subject: {}", to, subject);
         } catch (MessagingException e) {
             log.error("Failed to send email to {}: {}", to, e.getMessage());
@@ -50,4 +36,33 @@ public class EmailService {
             log.error("Unexpected error sending email to {}: {}", to, e.getMessage(), e);
         }
     }
+
+    /**
+     * Renders a template into a ready-to-send message without sending it.
+     */
+    public MimeMessage createHtmlMessage(String to, String subject, String templateName, Map<String, Object> variables) throws MessagingException {
+        Context context = new Context();
+        if (variables != null) {
+            context.setVariables(variables);
+        }
+        String htmlContent = templateEngine.process(templateName, context);
+
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setFrom(fromEmail);
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText(htmlContent, true);
+        return message;
+    }
+
+    /**
+     * Sends all messages over a single SMTP connection.
+     *
+     * @throws org.springframework.mail.MailSendException listing the messages that failed
+     */
+    public void send(MimeMessage... messages) {
+        mailSender.send(messages);
+    }
 }
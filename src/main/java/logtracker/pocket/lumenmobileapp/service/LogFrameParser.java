@@ -0,0 +1,284 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Splits the frames of one Docker log stream (requested with timestamps) into {@link LogMessage}s.
+ * Docker does not align frames with lines: a frame may hold several lines, and a long line arrives
+ * as several frames, each with its own timestamp prefix. Incomplete lines are carried over per
+ * stdout/stderr until their newline arrives, so multi-byte UTF-8 characters split across frames
+ * decode correctly. Timestamps are parsed from the bytes; the only objects created per line are
+ * the line and timestamp strings and the message itself.
+ * <p>
+ * One instance per stream; not thread-safe (docker-java delivers a stream's frames on one thread).
+ */
+public final class LogFrameParser {
+
+    // A line longer than this is emitted in pieces, cut between characters, rather than buffered without bound
+    static final int MAX_LINE_BYTES = 1 << 20;
+
+    private final Partial stdout = new Partial("stdout");
+    private final Partial stderr = new Partial("stderr");
+
+    public void parse(Frame frame, Consumer<LogMessage> sink) {
+        byte[] payload = frame.getPayload();
+        if (payload == null || payload.length == 0) {
+            return;
+        }
+        Partial partial = frame.getStreamType() == StreamType.STDERR ? stderr : stdout;
+        partial.consume(payload, sink);
+    }
+
+    /**
+     * Emits lines still waiting for their newline, e.g. when the stream ends.
+     */
+    public void flush(Consumer<LogMessage> sink) {
+        stdout.emit(sink);
+        stderr.emit(sink);
+    }
+
+    /**
+     * Epoch millis of an RFC3339 timestamp, or -1 if it cannot be parsed.
+     */
+    public static long toEpochMillis(String timestamp) {
+        byte[] bytes = timestamp.getBytes(StandardCharsets.US_ASCII);
+        long[] parsed = new long[1];
+        return parseTimestamp(bytes, 0, bytes.length, parsed) > 0 ? parsed[0] : -1;
+    }
+
+    /**
+     * Parses {@code YYYY-MM-DDTHH:MM:SS[.fraction](Z|±HH:MM)} at {@code from} and stores epoch millis in
+     * {@code out[0]}. Returns the length of the timestamp, or -1 if there is none.
+     */
+    static int parseTimestamp(byte[] b, int from, int to, long[] out) {
+        int p = from;
+        if (to - p < 20 || b[p + 4] != '-' || b[p + 7] != '-' || (b[p + 10] != 'T' && b[p + 10] != 't')
+                || b[p + 13] != ':' || b[p + 16] != ':') {
+            return -1;
+        }
+        int year = digits(b, p, 4);
+        int month = digits(b, p + 5, 2);
+        int day = digits(b, p + 8, 2);
+        int hour = digits(b, p + 11, 2);
+        int minute = digits(b, p + 14, 2);
+        int second = digits(b, p + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return -1;
+        }
+        p += 19;
+
+        int millis = 0;
+        if (b[p] == '.') {
+            p++;
+            int start = p;
+            while (p < to && b[p] >= '0' && b[p] <= '9') {
+                if (p - start < 3) {
+                    millis = millis * 10 + (b[p] - '0');
+                }
+                p++;
+            }
+            if (p == start) {
+                return -1;
+            }
+            for (int i = p - start; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+
+        int offsetMinutes;
+        if (p < to && (b[p] == 'Z' || b[p] == 'z')) {
+            offsetMinutes = 0;
+            p++;
+        } else if (p + 6 <= to && (b[p] == '+' || b[p] == '-') && b[p + 3] == ':') {
+            int offsetHours = digits(b, p + 1, 2);
+            int offsetMins = digits(b, p + 4, 2);
+            if (offsetHours < 0 || offsetMins < 0) {
+                return -1;
+            }
+            offsetMinutes = (offsetHours * 60 + offsetMins) * (b[p] == '-' ? -1 : 1);
+            p += 6;
+        } else {
+            return -1;
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second - offsetMinutes * 60L;
+        out[0] = seconds * 1000 + millis;
+        return p - from;
+    }
+
+    private static int digits(byte[] b, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date (Howard Hinnant's algorithm)
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+
+    /**
+     * Bytes of the current incomplete line of one stream, with the timestamp of its first frame.
+     */
+    private static final class Partial {
+        private final String stream;
+        private final long[] parsed = new long[1];
+        private byte[] buffer = new byte[256];
+        private int length;
+        private boolean started;
+        private String timestamp;
+        private long timestampMillis;
+
+        private Partial(String stream) {
+            this.stream = stream;
+        }
+
+        private void consume(byte[] payload, Consumer<LogMessage> sink) {
+            int p = 0;
+            // Every frame starts with a timestamp; for a continuation it repeats the one already kept
+            p = skipTimestamp(payload, p, !started);
+            while (p < payload.length) {
+                int newline = indexOf(payload, p, (byte) '\n');
+                int end = newline < 0 ? payload.length : newline;
+                if (length + (end - p) > MAX_LINE_BYTES) {
+                    int room = Math.max(0, MAX_LINE_BYTES - length);
+                    append(payload, p, room);
+                    p += room;
+                    emitPiece(payload[p], sink);
+                    continue;
+                }
+                if (newline < 0) {
+                    append(payload, p, end - p);
+                    return;
+                }
+                if (length == 0) {
+                    // Common case: the whole line is in this frame, decode it in place
+                    emit(payload, p, end, sink);
+                } else {
+                    append(payload, p, end - p);
+                    emit(sink);
+                }
+                p = skipTimestamp(payload, newline + 1, true);
+            }
+        }
+
+        private int skipTimestamp(byte[] payload, int p, boolean lineStart) {
+            int length = p < payload.length ? parseTimestamp(payload, p, payload.length, parsed) : -1;
+            if (length < 0 || p + length >= payload.length || payload[p + length] != ' ') {
+                if (lineStart && p < payload.length) {
+                    started = true;
+                    timestamp = null;
+                    timestampMillis = 0;
+                }
+                return p;
+            }
+            if (lineStart) {
+                started = true;
+                timestamp = new String(payload, p, length, StandardCharsets.US_ASCII);
+                timestampMillis = parsed[0];
+            }
+            return p + length + 1;
+        }
+
+        private void append(byte[] payload, int from, int count) {
+            if (count <= 0) {
+                return;
+            }
+            started = true;
+            if (length + count > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+            }
+            System.arraycopy(payload, from, buffer, length, count);
+            length += count;
+        }
+
+        private void emit(Consumer<LogMessage> sink) {
+            if (!started) {
+                return;
+            }
+            emit(buffer, 0, length, sink);
+            length = 0;
+            if (buffer.length > 64 * 1024) {
+                buffer = new byte[256];
+            }
+        }
+
+        /**
+         * Emits the buffer as one piece of an over-long line, ending it before a UTF-8 sequence that
+         * {@code next} would continue; the bytes of that sequence start the next piece, which keeps
+         * the line's timestamp.
+         */
+        private void emitPiece(byte next, Consumer<LogMessage> sink) {
+            int cut = length;
+            if (isContinuation(next)) {
+                int lead = length - 1;
+                while (lead > 0 && lead > length - 3 && isContinuation(buffer[lead])) {
+                    lead--;
+                }
+                if (lead > 0 && (buffer[lead] & 0xC0) == 0xC0) {
+                    cut = lead;
+                }
+            }
+            String time = timestamp;
+            long millis = timestampMillis;
+            emit(buffer, 0, cut, sink);
+            System.arraycopy(buffer, cut, buffer, 0, length - cut);
+            length -= cut;
+            started = true;
+            timestamp = time;
+            timestampMillis = millis;
+        }
+
+        private static boolean isContinuation(byte b) {
+            return (b & 0xC0) == 0x80;
+        }
+
+        private void emit(byte[] bytes, int from, int to, Consumer<LogMessage> sink) {
+            if (to > from && bytes[to - 1] == '\r') {
+                to--;
+            }
+            String time = timestamp;
+            long millis = timestampMillis;
+            if (time == null) {
+                millis = System.currentTimeMillis();
+                time = Instant.ofEpochMilli(millis).toString();
+            }
+            started = false;
+            timestamp = null;
+            sink.accept(LogMessage.builder()
+                    .timestamp(time)
+                    .timestampMillis(millis)
+                    .stream(stream)
+                    .line(new String(bytes, from, to - from, StandardCharsets.UTF_8))
+                    .build());
+        }
+
+        private static int indexOf(byte[] bytes, int from, byte value) {
+            for (int i = from; i < bytes.length; i++) {
+                if (bytes[i] == value) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lets one log line per key through per period, for messages that would otherwise be written for
+ * every sample of every container.
+ */
+final class LogSampler {
+
+    private final long periodMillis;
+    private final Map<String, Long> lastLogged = new ConcurrentHashMap<>();
+
+    LogSampler(long periodMillis) {
+        this.periodMillis = periodMillis;
+    }
+
+    boolean sample(String key) {
+        long now = System.currentTimeMillis();
+        Long last = lastLogged.get(key);
+        if (last != null && now - last < periodMillis) {
+            return false;
+        }
+        // Two threads may both log once in a race; that is fine for a sampled debug line
+        lastLogged.put(key, now);
+        return true;
+    }
+
+    void forget(String key) {
+        lastLogged.remove(key);
+    }
+}
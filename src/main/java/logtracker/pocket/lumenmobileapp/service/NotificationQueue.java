@@ -0,0 +1,247 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import logtracker.pocket.lumenmobileapp.model.Alert;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers alert emails off the stats and scheduler threads. Alerts are queued (bounded, newest dropped
+ * when full) and picked up by a dispatcher that coalesces them per recipient: the first alert goes out
+ * right away, further alerts within the digest window are sent together as one digest email when the
+ * window ends. A small worker pool renders and sends each batch over one SMTP connection and retries
+ * failed messages with exponential backoff.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationQueue {
+
+    private final EmailService emailService;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Digest> digests = new HashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private BlockingQueue<Notification> queue;
+    private ScheduledExecutorService dispatcher;
+    private ExecutorService workers;
+
+    @Value("${app.notification.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.notification.workers:2}")
+    private int workerCount;
+
+    @Value("${app.notification.digest-seconds:60}")
+    private int digestSeconds;
+
+    @Value("${app.notification.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.notification.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.notification.retry-backoff-ms:2000}")
+    private long retryBackoffMs;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        dispatcher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "notification-dispatcher"));
+        workers = Executors.newFixedThreadPool(Math.max(1, workerCount), new ThreadFactory() {
+            private int index;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                return new Thread(r, "notification-worker-" + (++index));
+            }
+        });
+        dispatcher.scheduleWithFixedDelay(this::dispatch, 1, 1, TimeUnit.SECONDS);
+        for (Map.Entry<String, AtomicLong> outcome : Map.of("sent", sent, "failed", failed, "dropped", dropped).entrySet()) {
+            FunctionCounter.builder("lumen.notifications", outcome.getValue(), AtomicLong::get)
+                    .description("Alert emails by outcome (dropped: queue full)")
+                    .tag("outcome", outcome.getKey())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Queues an alert email. Never blocks; returns false if the queue is full and the alert was dropped.
+     */
+    public boolean enqueue(String recipient, Alert alert) {
+        if (queue.offer(new Notification(recipient, alert))) {
+            return true;
+        }
+        log.warn("Notification queue full, dropping alert for {} ({} dropped so far)", alert.getContainerName(), dropped.incrementAndGet());
+        return false;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Dispatcher thread only
+    private void dispatch() {
+        try {
+            long now = System.currentTimeMillis();
+            long window = TimeUnit.SECONDS.toMillis(digestSeconds);
+            List<Outgoing> ready = new ArrayList<>();
+
+            Notification notification;
+            while ((notification = queue.poll()) != null) {
+                Digest digest = digests.computeIfAbsent(notification.recipient, r -> new Digest());
+                if (digest.windowEnd <= now) {
+                    ready.add(new Outgoing(notification.recipient, List.of(notification.alert), 1));
+                    digest.windowEnd = now + window;
+                } else {
+                    digest.pending.add(notification.alert);
+                }
+            }
+
+            for (Iterator<Map.Entry<String, Digest>> it = digests.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Digest> entry = it.next();
+                Digest digest = entry.getValue();
+                if (digest.windowEnd > now) {
+                    continue;
+                }
+                if (digest.pending.isEmpty()) {
+                    it.remove();
+                } else {
+                    ready.add(new Outgoing(entry.getKey(), List.copyOf(digest.pending), 1));
+                    digest.pending.clear();
+                    digest.windowEnd = now + window;
+                }
+            }
+
+            for (int i = 0; i < ready.size(); i += batchSize) {
+                List<Outgoing> batch = ready.subList(i, Math.min(ready.size(), i + batchSize));
+                List<Outgoing> copy = List.copyOf(batch);
+                workers.submit(() -> deliver(copy));
+            }
+        } catch (Exception e) {
+            log.error("Notification dispatch failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void deliver(List<Outgoing> batch) {
+        Map<MimeMessage, Outgoing> messages = new LinkedHashMap<>();
+        for (Outgoing outgoing : batch) {
+            try {
+                messages.put(render(outgoing), outgoing);
+            } catch (MessagingException | RuntimeException e) {
+                // e.g. a template error; only this message is lost, not the rest of the batch
+                log.error("Failed to render notification for {}: {}", outgoing.recipient, e.getMessage());
+                failed.incrementAndGet();
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        try {
+            emailService.send(messages.keySet().toArray(new MimeMessage[0]));
+            sent.addAndGet(messages.size());
+            log.info("Sent {} notification emails", messages.size());
+        } catch (MailSendException e) {
+            Set<Object> failedMessages = e.getFailedMessages().keySet();
+            int delivered = 0;
+            for (Map.Entry<MimeMessage, Outgoing> entry : messages.entrySet()) {
+                // Without per-message details (e.g. connect failure) everything is retried
+                if (failedMessages.isEmpty() || failedMessages.contains(entry.getKey())) {
+                    retry(entry.getValue(), e);
+                } else {
+                    delivered++;
+                }
+            }
+            sent.addAndGet(delivered);
+        } catch (MailException e) {
+            messages.values().forEach(outgoing -> retry(outgoing, e));
+        }
+    }
+
+    private void retry(Outgoing outgoing, Exception cause) {
+        if (outgoing.attempt >= maxAttempts) {
+            failed.incrementAndGet();
+            log.error("Giving up on notification to {} after {} attempts: {}", outgoing.recipient, outgoing.attempt, cause.getMessage());
+            return;
+        }
+        long delay = retryBackoffMs << Math.min(outgoing.attempt - 1, 16);
+        log.warn("Sending notification to {} failed (attempt {}), retrying in {} ms: {}", outgoing.recipient, outgoing.attempt, delay, cause.getMessage());
+        Outgoing next = new Outgoing(outgoing.recipient, outgoing.alerts, outgoing.attempt + 1);
+        try {
+            dispatcher.schedule(() -> workers.submit(() -> deliver(List.of(next))), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private MimeMessage render(Outgoing outgoing) throws MessagingException {
+        if (outgoing.alerts.size() == 1) {
+            Alert alert = outgoing.alerts.get(0);
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("containerName", alert.getContainerName());
+            variables.put("containerId", alert.getContainerId());
+            variables.put("alertType", alert.getType());
+            variables.put("value", alert.getValue());
+            variables.put("unit", alert.getUnit() == null || "%".equals(alert.getUnit()) ? "%" : " " + alert.getUnit());
+            return emailService.createHtmlMessage(outgoing.recipient,
+                    "LOG".equals(alert.getType())
+                            ? "🚨 Alert: Log pattern '" + alert.getRule() + "' in " + alert.getContainerName()
+                            : "🚨 Alert: High " + alert.getType() + " usage in " + alert.getContainerName(),
+                    "alert-email", variables);
+        }
+
+        long containers = outgoing.alerts.stream().map(Alert::getContainerId).distinct().count();
+        return emailService.createHtmlMessage(outgoing.recipient,
+                "🚨 " + outgoing.alerts.size() + " alerts on " + containers + (containers == 1 ? " container" : " containers"),
+                "alert-digest", Map.of("alerts", outgoing.alerts));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdown();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Notification(String recipient, Alert alert) {
+    }
+
+    private record Outgoing(String recipient, List<Alert> alerts, int attempt) {
+    }
+
+    private static class Digest {
+        private final List<Alert> pending = new ArrayList<>();
+        private long windowEnd;
+    }
+}
@@ -0,0 +1,83 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.model.CpuStatsConfig;
+import com.github.dockerjava.api.model.MemoryStatsConfig;
+import com.github.dockerjava.api.model.StatisticNetworksConfig;
+import com.github.dockerjava.api.model.Statistics;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The figures derived from a raw Docker stats sample: CPU percent (relative to one core, as
+ * {@code docker stats} shows it), memory usage, limit and percent, and network counters summed
+ * over all interfaces. Works on primitives and writes into a caller-owned {@link ContainerStats},
+ * so deriving a sample allocates nothing.
+ */
+public final class StatsDerivation {
+
+    private StatsDerivation() {
+    }
+
+    /**
+     * CPU usage between the sample and the previous one, or 0 if the sample lacks either reading.
+     */
+    public static double cpuPercent(Statistics stats) {
+        if (stats == null) {
+            return 0.0;
+        }
+        CpuStatsConfig cpu = stats.getCpuStats();
+        CpuStatsConfig preCpu = stats.getPreCpuStats();
+        if (cpu == null || preCpu == null || cpu.getCpuUsage() == null || preCpu.getCpuUsage() == null
+                || cpu.getCpuUsage().getTotalUsage() == null || preCpu.getCpuUsage().getTotalUsage() == null
+                || cpu.getSystemCpuUsage() == null || preCpu.getSystemCpuUsage() == null) {
+            return 0.0;
+        }
+        long cpuDelta = cpu.getCpuUsage().getTotalUsage() - preCpu.getCpuUsage().getTotalUsage();
+        long systemDelta = cpu.getSystemCpuUsage() - preCpu.getSystemCpuUsage();
+        if (systemDelta <= 0 || cpuDelta <= 0) {
+            return 0.0;
+        }
+        return (double) cpuDelta / systemDelta * onlineCpus(cpu) * 100.0;
+    }
+
+    /**
+     * Overwrites every field of {@code target} with the figures of a sample.
+     */
+    public static void derive(String containerId, Statistics stats, ContainerStats target) {
+        MemoryStatsConfig memory = stats.getMemoryStats();
+        long usage = memory != null && memory.getUsage() != null ? memory.getUsage() : 0L;
+        long limit = memory != null && memory.getLimit() != null ? memory.getLimit() : 0L;
+
+        long rx = 0;
+        long tx = 0;
+        Map<String, StatisticNetworksConfig> networks = stats.getNetworks();
+        if (networks != null) {
+            for (StatisticNetworksConfig network : networks.values()) {
+                if (network.getRxBytes() != null) {
+                    rx += network.getRxBytes();
+                }
+                if (network.getTxBytes() != null) {
+                    tx += network.getTxBytes();
+                }
+            }
+        }
+
+        target.setContainerId(containerId);
+        target.setCpuUsage(cpuPercent(stats));
+        target.setMemoryUsage(usage);
+        target.setMemoryLimit(limit);
+        target.setMemoryPercent(limit > 0 ? (double) usage / limit * 100.0 : 0.0);
+        target.setNetworkRx(rx);
+        target.setNetworkTx(tx);
+    }
+
+    private static long onlineCpus(CpuStatsConfig cpu) {
+        if (cpu.getOnlineCpus() != null) {
+            return cpu.getOnlineCpus();
+        }
+        List<Long> perCpu = cpu.getCpuUsage().getPercpuUsage();
+        return perCpu != null && !perCpu.isEmpty() ? perCpu.size() : 1L;
+    }
+}
@@ -0,0 +1,174 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * One segment of a container's stored logs: a data file of deflate-compressed blocks and an index
+ * file with one fixed-size entry per block (time range, location, line count, token bloom filter).
+ * Index entries are written after their block, and the whole index is kept in memory so searches
+ * can skip blocks without reading or decompressing them.
+ */
+final class LogSegment {
+
+    private static final int INDEX_ENTRY_SIZE = 8 + 8 + 8 + 4 + 4 + TokenBloom.WORDS * 8;
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final FileChannel data;
+    private final FileChannel index;
+    private final List<Block> blocks = new CopyOnWriteArrayList<>();
+    private long dataSize;
+    // Lines are not strictly ordered across blocks, so the range covers all blocks
+    private volatile long minTimestamp = Long.MAX_VALUE;
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+
+    record Block(long minTimestamp, long maxTimestamp, long offset, int length, int lines, long[] bloom) {
+    }
+
+    private LogSegment(Path dataFile, Path indexFile, FileChannel data, FileChannel index) {
+        this.dataFile = dataFile;
+        this.indexFile = indexFile;
+        this.data = data;
+        this.index = index;
+    }
+
+    static LogSegment create(Path dir, long startTimestamp) throws IOException {
+        Path dataFile = dir.resolve(startTimestamp + ".log");
+        Path indexFile = dir.resolve(startTimestamp + ".idx");
+        return new LogSegment(dataFile, indexFile,
+                FileChannel.open(dataFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                FileChannel.open(indexFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Reopens a segment from its index file alone. Trailing entries that point past the end of the
+     * data file (a crash between the two writes) are dropped.
+     */
+    static LogSegment open(Path dataFile) throws IOException {
+        String name = dataFile.getFileName().toString();
+        Path indexFile = dataFile.resolveSibling(name.substring(0, name.length() - ".log".length()) + ".idx");
+        LogSegment segment = new LogSegment(dataFile, indexFile,
+                FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        segment.dataSize = segment.data.size();
+
+        long entries = segment.index.size() / INDEX_ENTRY_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(entries * INDEX_ENTRY_SIZE, Integer.MAX_VALUE - 8));
+        segment.index.read(buffer, 0);
+        buffer.flip();
+        List<Block> loaded = new ArrayList<>();
+        long validEnd = 0;
+        while (buffer.remaining() >= INDEX_ENTRY_SIZE) {
+            long min = buffer.getLong();
+            long max = buffer.getLong();
+            long offset = buffer.getLong();
+            int length = buffer.getInt();
+            int lines = buffer.getInt();
+            long[] bloom = new long[TokenBloom.WORDS];
+            for (int i = 0; i < bloom.length; i++) {
+                bloom[i] = buffer.getLong();
+            }
+            if (offset + length > segment.dataSize) {
+                break;
+            }
+            loaded.add(new Block(min, max, offset, length, lines, bloom));
+            segment.minTimestamp = Math.min(segment.minTimestamp, min);
+            segment.maxTimestamp = Math.max(segment.maxTimestamp, max);
+            validEnd = offset + length;
+        }
+        segment.blocks.addAll(loaded);
+        segment.index.truncate((long) loaded.size() * INDEX_ENTRY_SIZE);
+        segment.data.truncate(validEnd);
+        segment.dataSize = validEnd;
+        return segment;
+    }
+
+    List<Block> blocks() {
+        return blocks;
+    }
+
+    boolean isEmpty() {
+        return blocks.isEmpty();
+    }
+
+    long minTimestamp() {
+        return minTimestamp;
+    }
+
+    long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    static long startTimestamp(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - ".log".length()));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    long sizeInBytes() {
+        return dataSize;
+    }
+
+    /**
+     * Appends one compressed block. Only the writer thread calls this.
+     */
+    void append(byte[] compressed, int compressedLength, long minTimestamp, long maxTimestamp, int lines, long[] bloom) throws IOException {
+        long offset = dataSize;
+        ByteBuffer payload = ByteBuffer.wrap(compressed, 0, compressedLength);
+        while (payload.hasRemaining()) {
+            data.write(payload, offset + payload.position());
+        }
+
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+        entry.putLong(minTimestamp).putLong(maxTimestamp).putLong(offset).putInt(compressedLength).putInt(lines);
+        for (long word : bloom) {
+            entry.putLong(word);
+        }
+        entry.flip();
+        long indexPosition = (long) blocks.size() * INDEX_ENTRY_SIZE;
+        while (entry.hasRemaining()) {
+            index.write(entry, indexPosition + entry.position());
+        }
+
+        dataSize = offset + compressedLength;
+        this.minTimestamp = Math.min(this.minTimestamp, minTimestamp);
+        this.maxTimestamp = Math.max(this.maxTimestamp, maxTimestamp);
+        blocks.add(new Block(minTimestamp, maxTimestamp, offset, compressedLength, lines, bloom.clone()));
+    }
+
+    byte[] readBlock(Block block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(block.length());
+        while (buffer.hasRemaining()) {
+            if (data.read(buffer, block.offset() + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + dataFile);
+            }
+        }
+        return buffer.array();
+    }
+
+    void close() {
+        try {
+            data.close();
+            index.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(dataFile);
+        Files.deleteIfExists(indexFile);
+    }
+}
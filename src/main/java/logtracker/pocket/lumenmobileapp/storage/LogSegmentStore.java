@@ -0,0 +1,494 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import logtracker.pocket.lumenmobileapp.model.LogSearchResult;
+import logtracker.pocket.lumenmobileapp.service.ContainerLogListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Durable, searchable container logs. Lines are handed over through a bounded queue, so Docker callback
+ * threads never wait on disk; a single writer thread groups them into per-container blocks, compresses
+ * each block and appends it to the container's current {@link LogSegment}. Searches use the in-memory
+ * block index (time range and token bloom filter) to decompress only blocks that can contain a match.
+ */
+@Slf4j
+@Service
+public class LogSegmentStore implements ContainerLogListener {
+
+    private final BlockingQueue<Line> queue;
+    private final Map<String, ContainerLogs> containers = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastTimestamps = new ConcurrentHashMap<>();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    @Value("${app.storage.logs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.logs.dir:./data/logs}")
+    private String directory;
+
+    @Value("${app.storage.logs.block-kb:64}")
+    private int blockKb;
+
+    @Value("${app.storage.logs.flush-seconds:5}")
+    private int flushSeconds;
+
+    @Value("${app.storage.logs.segment-size-mb:16}")
+    private int segmentSizeMb;
+
+    @Value("${app.storage.logs.retention-hours:168}")
+    private long retentionHours;
+
+    public LogSegmentStore(@Value("${app.storage.logs.queue-capacity:100000}") int queueCapacity) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Log storage is disabled");
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            Path root = Paths.get(directory);
+            Files.createDirectories(root);
+            int segmentCount = 0;
+            try (DirectoryStream<Path> dirs = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path dir : dirs) {
+                    ContainerLogs logs = new ContainerLogs(dir);
+                    List<Path> files = new ArrayList<>();
+                    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.log")) {
+                        stream.forEach(files::add);
+                    }
+                    files.sort(Comparator.comparingLong(LogSegment::startTimestamp));
+                    for (Path file : files) {
+                        try {
+                            logs.segments.add(LogSegment.open(file));
+                            logs.lastSegmentStart = Math.max(logs.lastSegmentStart, LogSegment.startTimestamp(file));
+                            segmentCount++;
+                        } catch (IOException e) {
+                            log.error("Skipping unreadable log segment {}: {}", file, e.getMessage());
+                        }
+                    }
+                    String containerId = dir.getFileName().toString();
+                    containers.put(containerId, logs);
+                    if (!logs.segments.isEmpty()) {
+                        lastTimestamps.put(containerId, logs.segments.stream().mapToLong(LogSegment::maxTimestamp).max().orElse(0));
+                    }
+                }
+            }
+            log.info("Opened {} log segments for {} containers in {} ms", segmentCount, containers.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException e) {
+            log.error("Log storage unavailable at {}: {}", directory, e.getMessage());
+            return;
+        }
+
+        running = true;
+        writer = new Thread(this::writeLoop, "log-segment-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Epoch millis of the newest line accepted for the container, or 0 if none is stored.
+     */
+    public long lastTimestamp(String containerId) {
+        return lastTimestamps.getOrDefault(containerId, 0L);
+    }
+
+    public long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    public int getQueuedLines() {
+        return queue.size();
+    }
+
+    @Override
+    public void onLogLine(String containerId, String containerName, LogMessage message) {
+        if (!running) {
+            return;
+        }
+        long timestamp = message.getTimestampMillis();
+        if (queue.offer(new Line(containerId, timestamp, message.getTimestamp(), message.getLine()))) {
+            lastTimestamps.merge(containerId, timestamp, Math::max);
+        } else if (droppedLines.incrementAndGet() % 10_000 == 1) {
+            log.warn("Log storage queue full, dropped {} lines so far", droppedLines.get());
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} lines in {@code [from, to]} containing all words of {@code query}, newest first.
+     * Lines become searchable once their block is flushed (at most {@code flush-seconds} after arrival).
+     */
+    public LogSearchResult search(String containerId, String query, long from, long to, int limit) {
+        long[] tokens = tokenize(query);
+        List<LogMessage> matches = new ArrayList<>();
+        int scanned = 0;
+        int skipped = 0;
+        boolean truncated = false;
+
+        ContainerLogs logs = containers.get(containerId);
+        List<LogSegment> segments = logs != null ? new ArrayList<>(logs.segments) : List.of();
+        Inflater inflater = new Inflater();
+        try {
+            search:
+            for (int s = segments.size() - 1; s >= 0; s--) {
+                LogSegment segment = segments.get(s);
+                if (segment.isEmpty() || segment.maxTimestamp() < from || segment.minTimestamp() > to) {
+                    skipped += segment.blocks().size();
+                    continue;
+                }
+
+                List<LogSegment.Block> blocks = segment.blocks();
+                for (int b = blocks.size() - 1; b >= 0; b--) {
+                    LogSegment.Block block = blocks.get(b);
+                    if (block.maxTimestamp() < from || block.minTimestamp() > to || !mightContainAll(block.bloom(), tokens)) {
+                        skipped++;
+                        continue;
+                    }
+                    if (matches.size() >= limit) {
+                        truncated = true;
+                        break search;
+                    }
+                    scanned++;
+
+                    List<LogMessage> blockMatches = new ArrayList<>();
+                    readBlock(segment, block, inflater, (timestamp, rawTimestamp, line) -> {
+                        if (timestamp >= from && timestamp <= to && containsAll(line, tokens)) {
+                            blockMatches.add(LogMessage.builder().timestamp(rawTimestamp).line(line).build());
+                        }
+                    });
+                    for (int i = blockMatches.size() - 1; i >= 0; i--) {
+                        if (matches.size() >= limit) {
+                            truncated = true;
+                            break search;
+                        }
+                        matches.add(blockMatches.get(i));
+                    }
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+
+        log.debug("Log search in {} for '{}' scanned {} blocks, skipped {}", containerId, query, scanned, skipped);
+        return LogSearchResult.builder()
+                .containerId(containerId)
+                .query(query)
+                .from(from)
+                .to(to)
+                .truncated(truncated)
+                .blocksScanned(scanned)
+                .blocksSkipped(skipped)
+                .lines(matches)
+                .build();
+    }
+
+    @Scheduled(fixedRate = 10, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void enforceRetention() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+        for (Map.Entry<String, ContainerLogs> entry : containers.entrySet()) {
+            ContainerLogs logs = entry.getValue();
+            for (LogSegment segment : logs.segments) {
+                synchronized (logs) {
+                    if (segment == logs.active || segment.maxTimestamp() >= cutoff) {
+                        continue;
+                    }
+                    logs.segments.remove(segment);
+                }
+                try {
+                    segment.delete();
+                } catch (IOException e) {
+                    log.error("Failed to delete log segment of {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+            synchronized (logs) {
+                if (logs.segments.isEmpty() && logs.pending == null && lastTimestamp(entry.getKey()) < cutoff) {
+                    containers.remove(entry.getKey(), logs);
+                    lastTimestamps.remove(entry.getKey());
+                    try {
+                        Files.deleteIfExists(logs.dir);
+                        log.info("Removed expired log storage of container {}", entry.getKey());
+                    } catch (IOException e) {
+                        log.error("Failed to remove log directory {}: {}", logs.dir, e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Not interrupted: an interrupt during a write would close the segment's channels. The writer polls
+        // with a timeout, sees the flag and flushes what is open
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (ContainerLogs logs : containers.values()) {
+            for (LogSegment segment : logs.segments) {
+                segment.close();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        List<Line> batch = new ArrayList<>(4096);
+        long flushMillis = TimeUnit.SECONDS.toMillis(flushSeconds);
+        long lastAgeCheck = System.currentTimeMillis();
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Line first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, 4095);
+                    }
+                } catch (InterruptedException e) {
+                    queue.drainTo(batch);
+                    running = false;
+                }
+
+                // The writer is the only one, so a failure costs this batch at most and never ends the loop
+                try {
+                    for (Line line : batch) {
+                        ContainerLogs logs = containers.computeIfAbsent(line.containerId, id -> new ContainerLogs(Paths.get(directory).resolve(id)));
+                        BlockBuilder pending = logs.pending;
+                        if (pending == null) {
+                            pending = new BlockBuilder();
+                            logs.pending = pending;
+                        }
+                        pending.add(line);
+                        if (pending.buffer.size() >= blockKb * 1024) {
+                            flush(logs, deflater);
+                        }
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastAgeCheck >= 1000) {
+                        lastAgeCheck = now;
+                        for (ContainerLogs logs : containers.values()) {
+                            BlockBuilder pending = logs.pending;
+                            if (pending != null && now - pending.createdAt >= flushMillis) {
+                                flush(logs, deflater);
+                            }
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Log segment writer failed on a batch of {} lines: {}", batch.size(), e.getMessage(), e);
+                } finally {
+                    batch.clear();
+                }
+            }
+
+            // Shutting down with the queue drained: write the blocks still open. FileChannel writes fail on
+            // an interrupted thread, so a pending interrupt is cleared first
+            Thread.interrupted();
+            for (ContainerLogs logs : containers.values()) {
+                try {
+                    flush(logs, deflater);
+                } catch (RuntimeException e) {
+                    log.error("Log segment writer failed to flush {} on shutdown: {}", logs.dir, e.getMessage(), e);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        log.info("Log segment writer stopped");
+    }
+
+    private void flush(ContainerLogs logs, Deflater deflater) {
+        BlockBuilder pending = logs.pending;
+        logs.pending = null;
+        if (pending == null || pending.lines == 0) {
+            return;
+        }
+        try {
+            byte[] raw = pending.buffer.toByteArray();
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] compressed = new byte[Math.max(64, raw.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+
+            synchronized (logs) {
+                if (logs.active == null || logs.active.sizeInBytes() >= (long) segmentSizeMb * 1024 * 1024) {
+                    Files.createDirectories(logs.dir);
+                    // Segment files are named after their start, which must keep increasing
+                    logs.lastSegmentStart = Math.max(pending.minTimestamp, logs.lastSegmentStart + 1);
+                    logs.active = LogSegment.create(logs.dir, logs.lastSegmentStart);
+                    logs.segments.add(logs.active);
+                }
+                logs.active.append(compressed, length, pending.minTimestamp, pending.maxTimestamp, pending.lines, pending.bloom);
+            }
+        } catch (IOException e) {
+            log.error("Failed to write log block to {}: {}", logs.dir, e.getMessage());
+        }
+    }
+
+    private static void readBlock(LogSegment segment, LogSegment.Block block, Inflater inflater, LineConsumer consumer) {
+        try {
+            byte[] compressed = segment.readBlock(block);
+            inflater.reset();
+            inflater.setInput(compressed);
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] chunk = new byte[16 * 1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                raw.write(chunk, 0, n);
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw.toByteArray()));
+            for (int i = 0; i < block.lines(); i++) {
+                long timestamp = in.readLong();
+                String rawTimestamp = readString(in);
+                String line = readString(in);
+                consumer.accept(timestamp, rawTimestamp, line);
+            }
+        } catch (EOFException e) {
+            log.warn("Truncated log block at offset {}", block.offset());
+        } catch (IOException | DataFormatException e) {
+            log.error("Failed to read log block at offset {}: {}", block.offset(), e.getMessage());
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long[] tokenize(String query) {
+        if (query == null || query.isBlank()) {
+            return new long[0];
+        }
+        List<Long> hashes = new ArrayList<>();
+        TokenBloom.forEachToken(query, hashes::add);
+        return hashes.stream().distinct().mapToLong(Long::longValue).toArray();
+    }
+
+    private static boolean mightContainAll(long[] bloom, long[] tokens) {
+        for (long token : tokens) {
+            if (!TokenBloom.mightContain(bloom, token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsAll(String line, long[] tokens) {
+        if (tokens.length == 0) {
+            return true;
+        }
+        boolean[] found = new boolean[tokens.length];
+        int[] remaining = {tokens.length};
+        TokenBloom.forEachToken(line, hash -> {
+            for (int i = 0; i < tokens.length; i++) {
+                if (!found[i] && tokens[i] == hash) {
+                    found[i] = true;
+                    remaining[0]--;
+                }
+            }
+        });
+        return remaining[0] == 0;
+    }
+
+    @FunctionalInterface
+    private interface LineConsumer {
+        void accept(long timestamp, String rawTimestamp, String line);
+    }
+
+    private record Line(String containerId, long timestamp, String rawTimestamp, String text) {
+    }
+
+    private static class ContainerLogs {
+        private final Path dir;
+        private final List<LogSegment> segments = new CopyOnWriteArrayList<>();
+        // Owned by the writer thread
+        private volatile BlockBuilder pending;
+        private LogSegment active;
+        private long lastSegmentStart;
+
+        private ContainerLogs(Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    /**
+     * Uncompressed block being filled by the writer thread: [epoch millis][timestamp][line] per line.
+     */
+    private static class BlockBuilder {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(16 * 1024);
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private final long[] bloom = new long[TokenBloom.WORDS];
+        private final long createdAt = System.currentTimeMillis();
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+        private int lines;
+
+        private void add(Line line) {
+            try {
+                out.writeLong(line.timestamp);
+                writeString(line.rawTimestamp);
+                writeString(line.text);
+            } catch (IOException e) {
+                // ByteArrayOutputStream does not throw
+            }
+            TokenBloom.forEachToken(line.text, hash -> TokenBloom.add(bloom, hash));
+            minTimestamp = Math.min(minTimestamp, line.timestamp);
+            maxTimestamp = Math.max(maxTimestamp, line.timestamp);
+            lines++;
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One fixed-size, append-only segment file of metric records, accessed through a {@link MappedByteBuffer}.
+ * <pre>
+ * header (64 bytes): magic, version, record size, partition start, committed record count
+ * record (64 bytes): timestamp, container key, cpu, memory usage, memory limit, memory percent, rx, tx
+ * </pre>
+ * The record count is written after the record itself, so a crash never exposes a half-written record.
+ * Records are appended in timestamp order; a sparse in-memory index of every {@value #INDEX_STRIDE}th
+ * timestamp lets range reads jump close to the first matching record.
+ */
+final class MetricsSegment implements AutoCloseable {
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 64;
+    private static final int MAGIC = 0x4C4D5453; // "LMTS"
+    private static final int VERSION = 1;
+    private static final int INDEX_STRIDE = 128;
+    private static final int COUNT_OFFSET = 24;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long partitionStart;
+    private long[] sparseIndex;
+    private volatile int count;
+
+    private MetricsSegment(Path path, FileChannel channel, MappedByteBuffer buffer, long partitionStart, int count) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        this.partitionStart = partitionStart;
+        this.count = count;
+        this.sparseIndex = new long[Math.max(1, (count + INDEX_STRIDE - 1) / INDEX_STRIDE)];
+        for (int i = 0; i * INDEX_STRIDE < count; i++) {
+            sparseIndex[i] = buffer.getLong(recordOffset(i * INDEX_STRIDE));
+        }
+    }
+
+    static MetricsSegment create(Path path, long partitionStart, int sizeBytes) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putLong(16, partitionStart);
+        buffer.putLong(COUNT_OFFSET, 0);
+        return new MetricsSegment(path, channel, buffer, partitionStart, 0);
+    }
+
+    static MetricsSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE) {
+            channel.close();
+            throw new IOException("Not a metrics segment: " + path);
+        }
+        int capacity = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+        int count = (int) Math.min(capacity, buffer.getLong(COUNT_OFFSET));
+        return new MetricsSegment(path, channel, buffer, buffer.getLong(16), count);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long partitionStart() {
+        return partitionStart;
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    long firstTimestamp() {
+        return count > 0 ? buffer.getLong(recordOffset(0)) : Long.MAX_VALUE;
+    }
+
+    long lastTimestamp() {
+        int n = count;
+        return n > 0 ? buffer.getLong(recordOffset(n - 1)) : Long.MIN_VALUE;
+    }
+
+    /**
+     * Appends one record. Callers serialize appends and keep timestamps non-decreasing.
+     */
+    void append(long timestamp, long containerKey, double cpu, long memoryUsage, long memoryLimit, double memoryPercent, long rx, long tx) {
+        int index = count;
+        int offset = recordOffset(index);
+        buffer.putLong(offset, timestamp);
+        buffer.putLong(offset + 8, containerKey);
+        buffer.putDouble(offset + 16, cpu);
+        buffer.putLong(offset + 24, memoryUsage);
+        buffer.putLong(offset + 32, memoryLimit);
+        buffer.putDouble(offset + 40, memoryPercent);
+        buffer.putLong(offset + 48, rx);
+        buffer.putLong(offset + 56, tx);
+        buffer.putLong(COUNT_OFFSET, index + 1);
+
+        if (index % INDEX_STRIDE == 0) {
+            int slot = index / INDEX_STRIDE;
+            if (slot >= sparseIndex.length) {
+                sparseIndex = Arrays.copyOf(sparseIndex, sparseIndex.length * 2);
+            }
+            sparseIndex[slot] = timestamp;
+        }
+        count = index + 1;
+    }
+
+    /**
+     * Reads the records of one container (or all, when {@code containerKey} is 0) with timestamps in {@code [from, to]}.
+     */
+    void read(long containerKey, long from, long to, MetricsSegmentStore.RecordConsumer consumer) {
+        int n = count;
+        for (int i = firstCandidate(from, n); i < n; i++) {
+            int offset = recordOffset(i);
+            long timestamp = buffer.getLong(offset);
+            if (timestamp > to) {
+                return;
+            }
+            if (timestamp < from || (containerKey != 0 && buffer.getLong(offset + 8) != containerKey)) {
+                continue;
+            }
+            consumer.accept(timestamp,
+                    buffer.getDouble(offset + 16),
+                    buffer.getLong(offset + 24),
+                    buffer.getLong(offset + 32),
+                    buffer.getDouble(offset + 40),
+                    buffer.getLong(offset + 48),
+                    buffer.getLong(offset + 56));
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    // Last indexed record before 'from'; everything ahead of it is older than the range
+    private int firstCandidate(long from, int n) {
+        int slots = Math.min(sparseIndex.length, (n + INDEX_STRIDE - 1) / INDEX_STRIDE);
+        int low = 0;
+        int high = slots;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sparseIndex[mid] < from) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Math.max(0, low - 1) * INDEX_STRIDE;
+    }
+
+    private static int recordOffset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    static void delete(MetricsSegment segment) throws IOException {
+        segment.close();
+        Files.deleteIfExists(segment.path);
+    }
+}
@@ -0,0 +1,299 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.service.ContainerStatsListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable stats history on a local volume. Samples are averaged per container over a short interval and
+ * appended as fixed-size records to memory-mapped segment files, one or more per time partition.
+ * On startup existing segments are only mapped and their sparse index rebuilt, nothing is replayed.
+ * Segments older than the retention period are deleted as a whole.
+ */
+@Slf4j
+@Service
+public class MetricsSegmentStore implements ContainerStatsListener {
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    // Ordered by partition and roll index, which is also time order
+    private final List<MetricsSegment> segments = new CopyOnWriteArrayList<>();
+    private MetricsSegment active;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private volatile boolean enabled;
+
+    @Value("${app.storage.metrics.enabled:true}")
+    private boolean configuredEnabled;
+
+    @Value("${app.storage.metrics.dir:./data/metrics}")
+    private String directory;
+
+    @Value("${app.storage.metrics.segment-size-mb:8}")
+    private int segmentSizeMb;
+
+    @Value("${app.storage.metrics.partition-minutes:60}")
+    private long partitionMinutes;
+
+    @Value("${app.storage.metrics.interval-seconds:10}")
+    private long intervalSeconds;
+
+    @Value("${app.storage.metrics.retention-hours:168}")
+    private long retentionHours;
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long timestamp, double cpu, long memoryUsage, long memoryLimit, double memoryPercent, long networkRx, long networkTx);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!configuredEnabled) {
+            log.info("Durable metrics storage is disabled");
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            Path dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "metrics-*.seg")) {
+                stream.forEach(files::add);
+            }
+            files.sort(Comparator.comparingLong((Path p) -> nameParts(p)[0]).thenComparingLong(p -> nameParts(p)[1]));
+
+            for (Path file : files) {
+                try {
+                    MetricsSegment segment = MetricsSegment.open(file);
+                    segments.add(segment);
+                    lastTimestamp = Math.max(lastTimestamp, segment.lastTimestamp());
+                } catch (IOException e) {
+                    log.error("Skipping unreadable metrics segment {}: {}", file, e.getMessage());
+                }
+            }
+            if (!segments.isEmpty()) {
+                active = segments.get(segments.size() - 1);
+            }
+            enabled = true;
+            log.info("Opened {} metric segments from {} in {} ms", segments.size(), dir.toAbsolutePath(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException e) {
+            log.error("Durable metrics storage unavailable at {}: {}", directory, e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getIntervalMillis() {
+        return TimeUnit.SECONDS.toMillis(intervalSeconds);
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void onStats(String containerName, ContainerStats stats) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Window window = windows.computeIfAbsent(stats.getContainerId(), id -> new Window(containerKey(id)));
+        synchronized (window) {
+            if (window.count > 0 && now - window.start >= getIntervalMillis()) {
+                window.flushTo(this);
+            }
+            window.add(now, stats);
+        }
+    }
+
+    @Override
+    public void onContainerStopped(String containerId) {
+        Window window = windows.remove(containerId);
+        if (window != null && enabled) {
+            synchronized (window) {
+                window.flushTo(this);
+            }
+        }
+    }
+
+    /**
+     * Reads the stored records of a container with timestamps in {@code [from, to]}, in time order.
+     * Only segments overlapping the range are touched.
+     */
+    public void read(String containerId, long from, long to, RecordConsumer consumer) {
+        if (!enabled) {
+            return;
+        }
+        long key = containerKey(containerId);
+        for (MetricsSegment segment : segments) {
+            if (segment.isEmpty() || segment.lastTimestamp() < from) {
+                continue;
+            }
+            if (segment.firstTimestamp() > to) {
+                break;
+            }
+            segment.read(key, from, to, consumer);
+        }
+    }
+
+    @Scheduled(fixedRate = 10, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void enforceRetention() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+        for (MetricsSegment segment : segments) {
+            synchronized (this) {
+                if (segment == active || segment.isEmpty() || segment.lastTimestamp() >= cutoff) {
+                    continue;
+                }
+                segments.remove(segment);
+            }
+            try {
+                MetricsSegment.delete(segment);
+                log.info("Deleted expired metrics segment {}", segment.path().getFileName());
+            } catch (IOException e) {
+                log.error("Failed to delete metrics segment {}: {}", segment.path(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Window window : windows.values()) {
+            synchronized (window) {
+                window.flushTo(this);
+            }
+        }
+        windows.clear();
+        enabled = false;
+        synchronized (this) {
+            for (MetricsSegment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    log.error("Failed to close metrics segment {}: {}", segment.path(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Stamped at write time so records from all containers arrive in time order
+    private synchronized void append(long key, double cpu, long memoryUsage, long memoryLimit, double memoryPercent, long rx, long tx) {
+        if (!enabled) {
+            return;
+        }
+        // Keep every segment sorted by time even if the wall clock steps back
+        long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+        long partitionStart = timestamp - Math.floorMod(timestamp, TimeUnit.MINUTES.toMillis(partitionMinutes));
+        try {
+            if (active == null || active.isFull() || active.partitionStart() != partitionStart) {
+                roll(partitionStart);
+            }
+            active.append(timestamp, key, cpu, memoryUsage, memoryLimit, memoryPercent, rx, tx);
+            lastTimestamp = timestamp;
+        } catch (IOException e) {
+            log.error("Failed to write metrics segment: {}", e.getMessage());
+        }
+    }
+
+    private void roll(long partitionStart) throws IOException {
+        int index = 0;
+        if (active != null) {
+            active.force();
+            if (active.partitionStart() == partitionStart) {
+                index = (int) nameParts(active.path())[1] + 1;
+            }
+        }
+        Path file = Paths.get(directory).resolve("metrics-" + partitionStart + "-" + index + ".seg");
+        MetricsSegment segment = MetricsSegment.create(file, partitionStart, segmentSizeMb * 1024 * 1024);
+        segments.add(segment);
+        active = segment;
+        log.info("Started metrics segment {}", file.getFileName());
+    }
+
+    // metrics-<partitionStart>-<index>.seg
+    private static long[] nameParts(Path path) {
+        String name = path.getFileName().toString();
+        String[] parts = name.substring("metrics-".length(), name.length() - ".seg".length()).split("-");
+        try {
+            return new long[]{Long.parseLong(parts[0]), parts.length > 1 ? Long.parseLong(parts[1]) : 0};
+        } catch (NumberFormatException e) {
+            return new long[]{Long.MAX_VALUE, Long.MAX_VALUE};
+        }
+    }
+
+    /**
+     * Records store the first 64 bits of the container id instead of the id itself; 0 is reserved for "any container".
+     */
+    private static long containerKey(String containerId) {
+        long key;
+        try {
+            key = Long.parseUnsignedLong(containerId.substring(0, Math.min(16, containerId.length())), 16);
+        } catch (NumberFormatException e) {
+            key = containerId.hashCode();
+        }
+        return key != 0 ? key : 1;
+    }
+
+    /**
+     * Samples of one container within the current interval. CPU and memory are averaged,
+     * the cumulative network counters and the memory limit keep their latest value.
+     */
+    private static class Window {
+        private final long key;
+        private long start;
+        private int count;
+        private double cpuSum;
+        private double memoryUsageSum;
+        private double memoryPercentSum;
+        private long memoryLimit;
+        private long rx;
+        private long tx;
+
+        private Window(long key) {
+            this.key = key;
+        }
+
+        private void add(long timestamp, ContainerStats stats) {
+            if (count == 0) {
+                start = timestamp;
+            }
+            count++;
+            cpuSum += stats.getCpuUsage();
+            memoryUsageSum += stats.getMemoryUsage();
+            memoryPercentSum += stats.getMemoryPercent();
+            memoryLimit = stats.getMemoryLimit();
+            rx = stats.getNetworkRx();
+            tx = stats.getNetworkTx();
+        }
+
+        private void flushTo(MetricsSegmentStore store) {
+            if (count == 0) {
+                return;
+            }
+            store.append(key, cpuSum / count, Math.round(memoryUsageSum / count), memoryLimit,
+                    memoryPercentSum / count, rx, tx);
+            count = 0;
+            cpuSum = 0;
+            memoryUsageSum = 0;
+            memoryPercentSum = 0;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Fixed-size bloom filter over the words of log lines. A word is a run of letters or digits,
+ * compared case-insensitively; words are hashed straight from the characters, so indexing
+ * a line allocates nothing.
+ */
+final class TokenBloom {
+
+    static final int BITS = 8192;
+    static final int WORDS = BITS / 64;
+    private static final int HASHES = 3;
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private TokenBloom() {
+    }
+
+    static void forEachToken(CharSequence text, LongConsumer consumer) {
+        long hash = 0;
+        int length = 0;
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (length == 0) {
+                    hash = 0xcbf29ce484222325L;
+                }
+                hash = (hash ^ Character.toLowerCase(c)) * 0x100000001b3L;
+                length++;
+            } else {
+                if (length >= MIN_TOKEN_LENGTH) {
+                    consumer.accept(hash);
+                }
+                length = 0;
+            }
+        }
+    }
+
+    static void add(long[] bits, long tokenHash) {
+        int h1 = (int) tokenHash;
+        int h2 = (int) (tokenHash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, BITS);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    static boolean mightContain(long[] bits, long tokenHash) {
+        int h1 = (int) tokenHash;
+        int h2 = (int) (tokenHash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, BITS);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
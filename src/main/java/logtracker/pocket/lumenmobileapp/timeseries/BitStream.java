@@ -0,0 +1,94 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Append-only bit buffer backed by a {@code long[]}. Values are written most significant bit first.
+ */
+final class BitStream {
+
+    private long[] words;
+    private int bitLength;
+
+    BitStream(int initialWords) {
+        this.words = new long[Math.max(1, initialWords)];
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1L : 0L, 1);
+    }
+
+    /**
+     * Writes the lowest {@code bits} bits (1..64) of {@code value}.
+     */
+    void write(long value, int bits) {
+        ensureCapacity(bitLength + bits);
+        if (bits < 64) {
+            value &= (1L << bits) - 1;
+        }
+        int index = bitLength >>> 6;
+        int free = 64 - (bitLength & 63);
+        if (bits <= free) {
+            words[index] |= value << (free - bits);
+        } else {
+            int overflow = bits - free;
+            words[index] |= value >>> overflow;
+            words[index + 1] |= value << (64 - overflow);
+        }
+        bitLength += bits;
+    }
+
+    int bitLength() {
+        return bitLength;
+    }
+
+    long sizeInBytes() {
+        return 16L + words.length * 8L;
+    }
+
+    /**
+     * Drops the unused tail of the backing array once nothing more will be written.
+     */
+    void trim() {
+        int used = (bitLength + 63) >>> 6;
+        if (used < words.length) {
+            words = Arrays.copyOf(words, Math.max(1, used));
+        }
+    }
+
+    Reader reader() {
+        return new Reader();
+    }
+
+    private void ensureCapacity(int bits) {
+        int needed = (bits + 63) >>> 6;
+        if (needed > words.length) {
+            words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+        }
+    }
+
+    final class Reader {
+        private int position;
+
+        boolean readBit() {
+            return read(1) != 0;
+        }
+
+        long read(int bits) {
+            int index = position >>> 6;
+            int offset = position & 63;
+            int available = 64 - offset;
+            long result;
+            if (bits <= available) {
+                result = (words[index] << offset) >>> (64 - bits);
+            } else {
+                int overflow = bits - available;
+                long high = (words[index] << offset) >>> (64 - available);
+                long low = words[index + 1] >>> (64 - overflow);
+                result = (high << overflow) | low;
+            }
+            position += bits;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+/**
+ * A block of (timestamp, value) points compressed the Gorilla way: timestamps as delta-of-delta with
+ * variable-width buckets, values as the XOR against the previous value storing only the meaningful bits.
+ * Regular one-second samples cost about one bit for the timestamp and a few bits for slowly changing values.
+ */
+final class GorillaChunk {
+
+    private final BitStream bits;
+    private final int maxPoints;
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long previousDelta;
+    private long previousValueBits;
+    private int previousLeading = -1;
+    private int previousTrailing;
+
+    GorillaChunk(int maxPoints) {
+        this.maxPoints = maxPoints;
+        this.bits = new BitStream(Math.max(4, maxPoints / 16));
+    }
+
+    boolean isFull() {
+        return count >= maxPoints;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    long sizeInBytes() {
+        return 64L + bits.sizeInBytes();
+    }
+
+    void seal() {
+        bits.trim();
+    }
+
+    void append(long timestamp, double value) {
+        // Points must not go back in time, otherwise the delta-of-delta decoding breaks
+        timestamp = Math.max(timestamp, lastTimestamp);
+        long valueBits = Double.doubleToRawLongBits(value);
+
+        if (count == 0) {
+            bits.write(timestamp, 64);
+            bits.write(valueBits, 64);
+            firstTimestamp = timestamp;
+        } else {
+            writeTimestamp(timestamp);
+            writeValue(valueBits);
+        }
+
+        lastTimestamp = timestamp;
+        previousValueBits = valueBits;
+        count++;
+    }
+
+    private void writeTimestamp(long timestamp) {
+        long delta = timestamp - lastTimestamp;
+        long deltaOfDelta = delta - previousDelta;
+        previousDelta = delta;
+
+        if (deltaOfDelta == 0) {
+            bits.writeBit(false);
+        } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+            bits.write(0b10, 2);
+            bits.write(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+            bits.write(0b110, 3);
+            bits.write(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+            bits.write(0b1110, 4);
+            bits.write(deltaOfDelta, 12);
+        } else {
+            bits.write(0b1111, 4);
+            bits.write(deltaOfDelta, 64);
+        }
+    }
+
+    private void writeValue(long valueBits) {
+        long xor = valueBits ^ previousValueBits;
+        if (xor == 0) {
+            bits.writeBit(false);
+            return;
+        }
+        bits.writeBit(true);
+
+        int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+            // Meaningful bits fit in the previous window
+            bits.writeBit(false);
+            bits.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+        } else {
+            int significant = 64 - leading - trailing;
+            bits.writeBit(true);
+            bits.write(leading, 5);
+            bits.write(significant - 1, 6);
+            bits.write(xor >>> trailing, significant);
+            previousLeading = leading;
+            previousTrailing = trailing;
+        }
+    }
+
+    /**
+     * Decodes the points in {@code [from, to]} in time order.
+     */
+    void forEach(long from, long to, PointConsumer consumer) {
+        if (count == 0 || lastTimestamp < from || firstTimestamp > to) {
+            return;
+        }
+
+        BitStream.Reader reader = bits.reader();
+        long timestamp = reader.read(64);
+        long valueBits = reader.read(64);
+        long delta = 0;
+        int leading = 0;
+        int trailing = 0;
+
+        for (int i = 0; ; i++) {
+            if (timestamp > to) {
+                return;
+            }
+            if (timestamp >= from) {
+                consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+            }
+            if (i + 1 >= count) {
+                return;
+            }
+
+            delta += readDeltaOfDelta(reader);
+            timestamp += delta;
+
+            if (reader.readBit()) {
+                if (reader.readBit()) {
+                    leading = (int) reader.read(5);
+                    int significant = (int) reader.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                valueBits ^= reader.read(64 - leading - trailing) << trailing;
+            }
+        }
+    }
+
+    private static long readDeltaOfDelta(BitStream.Reader reader) {
+        if (!reader.readBit()) {
+            return 0;
+        }
+        if (!reader.readBit()) {
+            return signExtend(reader.read(7), 7);
+        }
+        if (!reader.readBit()) {
+            return signExtend(reader.read(9), 9);
+        }
+        if (!reader.readBit()) {
+            return signExtend(reader.read(12), 12);
+        }
+        return reader.read(64);
+    }
+
+    private static long signExtend(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+
+    @FunctionalInterface
+    interface PointConsumer {
+        void accept(long timestamp, double value);
+    }
+}
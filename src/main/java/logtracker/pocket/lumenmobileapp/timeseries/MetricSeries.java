@@ -0,0 +1,103 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * One metric of one container: recent raw points in Gorilla-compressed chunks plus 10s/1m/5m rollups.
+ */
+final class MetricSeries {
+
+    static final long[] TIER_WIDTHS_MS = {10_000L, 60_000L, 300_000L};
+    // 1 hour of 10s buckets, 24 hours of 1m buckets, 7 days of 5m buckets
+    private static final int[] TIER_CAPACITIES = {360, 1440, 2016};
+
+    private final int chunkPoints;
+    private final Deque<GorillaChunk> sealed = new ArrayDeque<>();
+    private final RollupTier[] tiers = new RollupTier[TIER_WIDTHS_MS.length];
+    private GorillaChunk active;
+
+    MetricSeries(int chunkPoints) {
+        this.chunkPoints = chunkPoints;
+        for (int i = 0; i < tiers.length; i++) {
+            tiers[i] = new RollupTier(TIER_WIDTHS_MS[i], TIER_CAPACITIES[i]);
+        }
+    }
+
+    /**
+     * Appends a point and returns the chunk that was sealed by it, if any.
+     */
+    synchronized GorillaChunk append(long timestamp, double value) {
+        GorillaChunk sealedChunk = null;
+        if (active == null) {
+            active = new GorillaChunk(chunkPoints);
+        } else if (active.isFull()) {
+            active.seal();
+            sealed.addLast(active);
+            sealedChunk = active;
+            active = new GorillaChunk(chunkPoints);
+        }
+        active.append(timestamp, value);
+        for (RollupTier tier : tiers) {
+            tier.add(timestamp, value);
+        }
+        return sealedChunk;
+    }
+
+    /**
+     * Drops a sealed chunk to free memory. Chunks are evicted oldest first.
+     */
+    synchronized boolean evict(GorillaChunk chunk) {
+        return sealed.remove(chunk);
+    }
+
+    /**
+     * Drops all sealed chunks and returns their size.
+     */
+    synchronized long evictAll() {
+        long bytes = 0;
+        for (GorillaChunk chunk : sealed) {
+            bytes += chunk.sizeInBytes();
+        }
+        sealed.clear();
+        return bytes;
+    }
+
+    synchronized long rawCoverageStart() {
+        if (!sealed.isEmpty()) {
+            return sealed.peekFirst().firstTimestamp();
+        }
+        return active != null && active.count() > 0 ? active.firstTimestamp() : Long.MAX_VALUE;
+    }
+
+    synchronized long tierCoverageStart(int tier) {
+        return tiers[tier].coverageStart();
+    }
+
+    synchronized long sizeInBytes() {
+        long bytes = 64;
+        for (GorillaChunk chunk : sealed) {
+            bytes += chunk.sizeInBytes();
+        }
+        if (active != null) {
+            bytes += active.sizeInBytes();
+        }
+        for (RollupTier tier : tiers) {
+            bytes += tier.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    synchronized void forEachRaw(long from, long to, GorillaChunk.PointConsumer consumer) {
+        for (GorillaChunk chunk : sealed) {
+            chunk.forEach(from, to, consumer);
+        }
+        if (active != null) {
+            active.forEach(from, to, consumer);
+        }
+    }
+
+    synchronized void forEachBucket(int tier, long from, long to, RollupTier.BucketConsumer consumer) {
+        tiers[tier].forEach(from, to, consumer);
+    }
+}
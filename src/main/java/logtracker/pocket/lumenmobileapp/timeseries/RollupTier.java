@@ -0,0 +1,143 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-width min/max/avg buckets kept in a ring of primitive arrays. The bucket currently being filled
+ * is accumulated in doubles; closed buckets are stored as floats. Arrays start small and grow up to
+ * {@code capacity}, so short-lived containers do not pay for the full retention.
+ */
+final class RollupTier {
+
+    private static final int INITIAL_SLOTS = 16;
+
+    private final long widthMs;
+    private final int capacity;
+    private int[] buckets;
+    private float[] mins;
+    private float[] maxs;
+    private float[] avgs;
+    private int head;
+    private int size;
+
+    private long openBucket = -1;
+    private double openMin;
+    private double openMax;
+    private double openSum;
+    private int openCount;
+
+    RollupTier(long widthMs, int capacity) {
+        this.widthMs = widthMs;
+        this.capacity = capacity;
+        int slots = Math.min(INITIAL_SLOTS, capacity);
+        this.buckets = new int[slots];
+        this.mins = new float[slots];
+        this.maxs = new float[slots];
+        this.avgs = new float[slots];
+    }
+
+    long widthMs() {
+        return widthMs;
+    }
+
+    long sizeInBytes() {
+        return 96L + buckets.length * 16L;
+    }
+
+    /**
+     * Start of the oldest bucket still held, or {@code Long.MAX_VALUE} if the tier is empty.
+     */
+    long coverageStart() {
+        if (size > 0) {
+            return (long) buckets[index(0)] * widthMs;
+        }
+        return openCount > 0 ? openBucket * widthMs : Long.MAX_VALUE;
+    }
+
+    void add(long timestamp, double value) {
+        long bucket = timestamp / widthMs;
+        if (openCount > 0 && bucket < openBucket) {
+            // Late sample for an already closed bucket; fold it into the open one
+            bucket = openBucket;
+        }
+        if (openCount == 0 || bucket != openBucket) {
+            if (openCount > 0) {
+                close();
+            }
+            openBucket = bucket;
+            openMin = value;
+            openMax = value;
+            openSum = value;
+            openCount = 1;
+            return;
+        }
+        openMin = Math.min(openMin, value);
+        openMax = Math.max(openMax, value);
+        openSum += value;
+        openCount++;
+    }
+
+    /**
+     * Emits the buckets overlapping {@code [from, to]} in time order, including the one still open.
+     */
+    void forEach(long from, long to, BucketConsumer consumer) {
+        long fromBucket = Math.floorDiv(from, widthMs);
+        long toBucket = Math.floorDiv(to, widthMs);
+        for (int i = firstIndexAtOrAfter(fromBucket); i < size; i++) {
+            int slot = index(i);
+            if (buckets[slot] > toBucket) {
+                return;
+            }
+            consumer.accept((long) buckets[slot] * widthMs, mins[slot], maxs[slot], avgs[slot]);
+        }
+        if (openCount > 0 && openBucket >= fromBucket && openBucket <= toBucket) {
+            consumer.accept(openBucket * widthMs, openMin, openMax, openSum / openCount);
+        }
+    }
+
+    private void close() {
+        if (size == buckets.length && size < capacity) {
+            int grown = Math.min(capacity, buckets.length * 2);
+            buckets = Arrays.copyOf(buckets, grown);
+            mins = Arrays.copyOf(mins, grown);
+            maxs = Arrays.copyOf(maxs, grown);
+            avgs = Arrays.copyOf(avgs, grown);
+            // The ring was full and unwrapped (head == 0), so the next free slot is right after the old data
+            head = size;
+        }
+        int slot = head;
+        buckets[slot] = (int) openBucket;
+        mins[slot] = (float) openMin;
+        maxs[slot] = (float) openMax;
+        avgs[slot] = (float) (openSum / openCount);
+        head = (head + 1) % buckets.length;
+        if (size < buckets.length) {
+            size++;
+        }
+        openCount = 0;
+    }
+
+    // Buckets are written in time order, so the ring can be binary searched by logical position
+    private int firstIndexAtOrAfter(long bucket) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buckets[index(mid)] < bucket) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int index(int logical) {
+        return Math.floorMod(head - size + logical, buckets.length);
+    }
+
+    @FunctionalInterface
+    interface BucketConsumer {
+        void accept(long start, double min, double max, double avg);
+    }
+}
@@ -0,0 +1,32 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Metrics of {@link ContainerStats} that are kept as time series.
+ */
+public enum StatsMetric {
+    CPU("cpuUsage", ContainerStats::getCpuUsage),
+    MEMORY_USAGE("memoryUsage", ContainerStats::getMemoryUsage),
+    MEMORY_PERCENT("memoryPercent", ContainerStats::getMemoryPercent),
+    NETWORK_RX("networkRx", ContainerStats::getNetworkRx),
+    NETWORK_TX("networkTx", ContainerStats::getNetworkTx);
+
+    private final String key;
+    private final ToDoubleFunction<ContainerStats> extractor;
+
+    StatsMetric(String key, ToDoubleFunction<ContainerStats> extractor) {
+        this.key = key;
+        this.extractor = extractor;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public double valueOf(ContainerStats stats) {
+        return extractor.applyAsDouble(stats);
+    }
+}
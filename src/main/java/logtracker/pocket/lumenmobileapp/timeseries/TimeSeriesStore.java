@@ -0,0 +1,271 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.model.HistoryPoint;
+import logtracker.pocket.lumenmobileapp.model.StatsHistory;
+import logtracker.pocket.lumenmobileapp.service.ContainerStatsListener;
+import logtracker.pocket.lumenmobileapp.storage.MetricsSegmentStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory history of every collected {@link ContainerStats} sample, one compressed series per container and metric.
+ * Raw points live in Gorilla chunks under a global memory budget (oldest chunks are evicted first);
+ * 10s/1m/5m rollups are fixed-size per series and outlive the raw points.
+ * The budget covers sealed chunks only. Rollups and the chunk each series is filling are bounded per
+ * container instead: about 300 KB once 7 days of rollups are held, plus the open chunks (a few KB each),
+ * for every container that sent a sample within the last 7 days.
+ * Ranges older than what memory still covers are read from the durable {@link MetricsSegmentStore}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimeSeriesStore implements ContainerStatsListener {
+
+    private static final String[] TIER_NAMES = {"10s", "1m", "5m"};
+    private static final long SERIES_RETENTION_MS = TimeUnit.DAYS.toMillis(7);
+
+    private final MetricsSegmentStore segmentStore;
+    private final Map<String, ContainerSeries> series = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<SealedChunk> sealedChunks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong rawBytes = new AtomicLong();
+
+    @Value("${app.history.raw-budget-mb:64}")
+    private long rawBudgetMb;
+
+    @Value("${app.history.chunk-points:600}")
+    private int chunkPoints;
+
+    @Value("${app.history.max-points:500}")
+    private int maxPoints;
+
+    @Override
+    public void onStats(String containerName, ContainerStats stats) {
+        long now = System.currentTimeMillis();
+        ContainerSeries containerSeries = series.computeIfAbsent(stats.getContainerId(), id -> new ContainerSeries(chunkPoints));
+        containerSeries.lastUpdate = now;
+
+        for (StatsMetric metric : StatsMetric.values()) {
+            MetricSeries metricSeries = containerSeries.metrics.get(metric);
+            GorillaChunk sealed = metricSeries.append(now, metric.valueOf(stats));
+            if (sealed != null) {
+                sealedChunks.add(new SealedChunk(metricSeries, sealed));
+                if (rawBytes.addAndGet(sealed.sizeInBytes()) > rawBudgetMb * 1024 * 1024) {
+                    evictRaw();
+                }
+            }
+        }
+    }
+
+    public StatsHistory query(String containerId, long from, long to, long step) {
+        long minimumStep = Math.max(1000, (to - from + maxPoints - 1) / Math.max(1, maxPoints));
+        step = Math.max(step, minimumStep);
+
+        ContainerSeries containerSeries = series.get(containerId);
+        String resolution = "raw";
+        int tier = -1;
+        long memoryStart = Long.MAX_VALUE;
+
+        if (containerSeries != null) {
+            MetricSeries reference = containerSeries.metrics.get(StatsMetric.CPU);
+            tier = chooseTier(reference, from, step);
+            if (tier >= 0) {
+                resolution = TIER_NAMES[tier];
+                step = Math.max(step, MetricSeries.TIER_WIDTHS_MS[tier]);
+            }
+            memoryStart = tier < 0 ? reference.rawCoverageStart() : reference.tierCoverageStart(tier);
+        }
+
+        boolean fromDisk = from < memoryStart && segmentStore.isEnabled();
+        if (fromDisk) {
+            step = Math.max(step, segmentStore.getIntervalMillis());
+            resolution = containerSeries != null ? "disk+" + resolution : "disk";
+        }
+
+        StepAggregator[] aggregators = new StepAggregator[StatsMetric.values().length];
+        for (StatsMetric metric : StatsMetric.values()) {
+            aggregators[metric.ordinal()] = new StepAggregator(from, step);
+        }
+
+        // Older part first, so every aggregator still sees its points in time order
+        if (fromDisk) {
+            segmentStore.read(containerId, from, Math.min(to, memoryStart - 1), (timestamp, cpu, memoryUsage, memoryLimit, memoryPercent, rx, tx) -> {
+                aggregators[StatsMetric.CPU.ordinal()].add(timestamp, cpu, cpu, cpu);
+                aggregators[StatsMetric.MEMORY_USAGE.ordinal()].add(timestamp, memoryUsage, memoryUsage, memoryUsage);
+                aggregators[StatsMetric.MEMORY_PERCENT.ordinal()].add(timestamp, memoryPercent, memoryPercent, memoryPercent);
+                aggregators[StatsMetric.NETWORK_RX.ordinal()].add(timestamp, rx, rx, rx);
+                aggregators[StatsMetric.NETWORK_TX.ordinal()].add(timestamp, tx, tx, tx);
+            });
+        }
+
+        Map<String, List<HistoryPoint>> metrics = new LinkedHashMap<>();
+        for (StatsMetric metric : StatsMetric.values()) {
+            StepAggregator aggregator = aggregators[metric.ordinal()];
+            if (containerSeries != null && memoryStart <= to) {
+                long memoryFrom = Math.max(from, memoryStart);
+                MetricSeries metricSeries = containerSeries.metrics.get(metric);
+                if (tier < 0) {
+                    metricSeries.forEachRaw(memoryFrom, to, (timestamp, value) -> aggregator.add(timestamp, value, value, value));
+                } else {
+                    metricSeries.forEachBucket(tier, memoryFrom, to, aggregator::add);
+                }
+            }
+            metrics.put(metric.getKey(), aggregator.finish());
+        }
+
+        return StatsHistory.builder()
+                .containerId(containerId)
+                .from(from)
+                .to(to)
+                .step(step)
+                .resolution(resolution)
+                .metrics(metrics)
+                .build();
+    }
+
+    /**
+     * Returns the earliest timestamp for which this store can answer a query for the container,
+     * or {@code Long.MAX_VALUE} if it has nothing.
+     */
+    public long coverageStart(String containerId) {
+        ContainerSeries containerSeries = series.get(containerId);
+        if (containerSeries == null) {
+            return Long.MAX_VALUE;
+        }
+        return containerSeries.metrics.get(StatsMetric.CPU).tierCoverageStart(TIER_NAMES.length - 1);
+    }
+
+    public long getRawBytes() {
+        return rawBytes.get();
+    }
+
+    @Scheduled(fixedRate = 1, timeUnit = TimeUnit.HOURS)
+    public void dropStaleSeries() {
+        long cutoff = System.currentTimeMillis() - SERIES_RETENTION_MS;
+        Set<MetricSeries> dropped = new HashSet<>();
+        series.entrySet().removeIf(entry -> {
+            if (entry.getValue().lastUpdate < cutoff) {
+                log.info("Dropping stats history of container {} (no samples for 7 days)", entry.getKey());
+                dropped.addAll(entry.getValue().metrics.values());
+                return true;
+            }
+            return false;
+        });
+        if (dropped.isEmpty()) {
+            return;
+        }
+        // The series gives up its chunks under its own lock, so a concurrent eviction cannot subtract them again
+        for (MetricSeries metricSeries : dropped) {
+            rawBytes.addAndGet(-metricSeries.evictAll());
+        }
+        sealedChunks.removeIf(sealed -> dropped.contains(sealed.series));
+    }
+
+    /**
+     * Picks raw points (-1) when the step is finer than the first rollup and raw data still covers the range,
+     * otherwise the coarsest tier not wider than the step, moving to coarser tiers until one covers {@code from}.
+     */
+    private int chooseTier(MetricSeries reference, long from, long step) {
+        if (step < MetricSeries.TIER_WIDTHS_MS[0] && reference.rawCoverageStart() <= from) {
+            return -1;
+        }
+        int tier = 0;
+        while (tier + 1 < TIER_NAMES.length && MetricSeries.TIER_WIDTHS_MS[tier + 1] <= step) {
+            tier++;
+        }
+        while (tier + 1 < TIER_NAMES.length && reference.tierCoverageStart(tier) > from) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private void evictRaw() {
+        long budget = rawBudgetMb * 1024 * 1024;
+        while (rawBytes.get() > budget) {
+            SealedChunk oldest = sealedChunks.poll();
+            if (oldest == null) {
+                return;
+            }
+            if (oldest.series.evict(oldest.chunk)) {
+                rawBytes.addAndGet(-oldest.chunk.sizeInBytes());
+            }
+        }
+    }
+
+    private record SealedChunk(MetricSeries series, GorillaChunk chunk) {
+    }
+
+    private static class ContainerSeries {
+        private final Map<StatsMetric, MetricSeries> metrics = new EnumMap<>(StatsMetric.class);
+        private volatile long lastUpdate;
+
+        private ContainerSeries(int chunkPoints) {
+            for (StatsMetric metric : StatsMetric.values()) {
+                metrics.put(metric, new MetricSeries(chunkPoints));
+            }
+        }
+    }
+
+    /**
+     * Folds points or buckets (arriving in time order) into fixed steps aligned to the query start.
+     */
+    private static class StepAggregator {
+        private final long from;
+        private final long step;
+        private final List<HistoryPoint> points = new ArrayList<>();
+        private long current = Long.MIN_VALUE;
+        private double min;
+        private double max;
+        private double sum;
+        private int count;
+
+        private StepAggregator(long from, long step) {
+            this.from = from;
+            this.step = step;
+        }
+
+        private void add(long timestamp, double bucketMin, double bucketMax, double bucketAvg) {
+            long start = from + Math.floorDiv(timestamp - from, step) * step;
+            if (start != current) {
+                flush();
+                current = start;
+                min = bucketMin;
+                max = bucketMax;
+                sum = bucketAvg;
+                count = 1;
+                return;
+            }
+            min = Math.min(min, bucketMin);
+            max = Math.max(max, bucketMax);
+            sum += bucketAvg;
+            count++;
+        }
+
+        private List<HistoryPoint> finish() {
+            flush();
+            return points;
+        }
+
+        private void flush() {
+            if (count > 0) {
+                points.add(new HistoryPoint(current, min, max, sum / count));
+                count = 0;
+            }
+        }
+    }
+}
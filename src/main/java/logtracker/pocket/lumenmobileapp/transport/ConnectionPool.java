@@ -0,0 +1,133 @@
+package logtracker.pocket.lumenmobileapp.transport;
+
+import logtracker.pocket.lumenmobileapp.model.ConnectionPoolStats;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gate in front of Docker HTTP clients: at most {@code capacity} responses are open at once, up to
+ * {@code maxQueued} callers wait in order for at most {@code acquireTimeout}, and anyone beyond that is
+ * turned away immediately. A slot is held from sending the request until the response is closed, so a
+ * follow-mode log or stats stream holds one for its whole lifetime.
+ */
+public final class ConnectionPool {
+
+    private final String name;
+    private final int capacity;
+    private final int maxQueued;
+    private final Duration acquireTimeout;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String name, int capacity, int maxQueued, Duration acquireTimeout) {
+        if (capacity < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Pool " + name + " needs a capacity of at least 1 and a non-negative queue");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.maxQueued = maxQueued;
+        this.acquireTimeout = acquireTimeout;
+        this.permits = new Semaphore(capacity, true);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Takes a slot, waiting in line if none is free.
+     *
+     * @throws PoolExhaustedException if the queue is full or no slot frees up within the acquire timeout
+     */
+    public void acquire() {
+        // Timed tryAcquire honours fairness, so callers already in line are not overtaken
+        if (tryAcquire(0)) {
+            acquired.increment();
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw new PoolExhaustedException("Docker " + name + " pool exhausted: " + capacity + " in use and " + maxQueued + " waiting");
+        }
+        long start = System.nanoTime();
+        boolean granted;
+        try {
+            granted = tryAcquire(acquireTimeout.toNanos());
+        } finally {
+            queued.decrementAndGet();
+        }
+        long wait = System.nanoTime() - start;
+        waited.increment();
+        waitNanos.add(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+        if (!granted) {
+            rejected.increment();
+            throw new PoolExhaustedException("No Docker " + name + " connection free within " + acquireTimeout.toMillis() + " ms");
+        }
+        acquired.increment();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    int inUse() {
+        return capacity - permits.availablePermits();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    long rejected() {
+        return rejected.sum();
+    }
+
+    long waits() {
+        return waited.sum();
+    }
+
+    double waitNanos() {
+        return waitNanos.sum();
+    }
+
+    public ConnectionPoolStats getStats() {
+        long waits = waited.sum();
+        return ConnectionPoolStats.builder()
+                .name(name)
+                .capacity(capacity)
+                .inUse(capacity - permits.availablePermits())
+                .queued(queued.get())
+                .maxQueued(maxQueued)
+                .acquired(acquired.sum())
+                .rejected(rejected.sum())
+                .waits(waits)
+                .averageWaitMillis(waits > 0 ? waitNanos.sum() / 1e6 / waits : 0)
+                .maxWaitMillis(maxWaitNanos.get() / 1e6)
+                .build();
+    }
+
+    private boolean tryAcquire(long timeoutNanos) {
+        try {
+            return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
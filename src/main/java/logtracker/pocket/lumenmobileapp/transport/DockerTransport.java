@@ -0,0 +1,128 @@
+package logtracker.pocket.lumenmobileapp.transport;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.zerodep.ZerodepDockerHttpClient;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import logtracker.pocket.lumenmobileapp.config.DockerHostProperties;
+import logtracker.pocket.lumenmobileapp.model.ConnectionPoolStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the Docker clients of every host on two kinds of connection pool. Short request/response
+ * calls (listings, inspect, start/stop) get a pool per host with a response timeout; long-lived
+ * streams (follow-mode logs, streaming stats, events) share one global budget across all hosts and
+ * never time out. A burst of websocket sessions therefore queues for, or is refused, a stream slot
+ * instead of taking the connections REST calls need. The background collectors' streams (stats and
+ * logs of every running container, events) grow with the number of containers rather than with user
+ * activity, so they use a separate {@code collectors@host} pool that never queues and is kept out of
+ * the session budget.
+ */
+public class DockerTransport {
+
+    public static final String STREAMS = "streams";
+
+    private final DockerHostProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConnectionPool streams;
+    private final Map<String, ConnectionPool> requests = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionPool> collectors = new ConcurrentHashMap<>();
+
+    public DockerTransport(DockerHostProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        DockerHostProperties.Pool settings = properties.getStreams();
+        this.streams = register(new ConnectionPool(STREAMS, settings.getMaxConnections(), settings.getMaxQueued(), settings.getAcquireTimeout()));
+    }
+
+    /**
+     * Client for short calls to a host. Does not contact the host.
+     */
+    public DockerClient requestClient(String host, String dockerHost) {
+        DockerHostProperties.Pool settings = properties.getRequests();
+        ConnectionPool pool = requests.computeIfAbsent(host, h -> register(new ConnectionPool("requests@" + h,
+                settings.getMaxConnections(), settings.getMaxQueued(), settings.getAcquireTimeout())));
+        var config = DefaultDockerClientConfig.createDefaultConfigBuilder()
+                .withDockerHost(dockerHost)
+                .build();
+        var httpClient = new ZerodepDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .maxConnections(pool.getCapacity())
+                .responseTimeout(properties.getResponseTimeout())
+                .build();
+        return DockerClientImpl.getInstance(config, new PooledDockerHttpClient(httpClient, pool, meterRegistry, "requests"));
+    }
+
+    /**
+     * Client for the always-on streams of the background collectors of a host. Does not contact the host.
+     */
+    public DockerClient collectorClient(String host, String dockerHost) {
+        DockerHostProperties.Pool settings = properties.getCollectors();
+        ConnectionPool pool = collectors.computeIfAbsent(host, h -> register(new ConnectionPool("collectors@" + h,
+                settings.getMaxConnections(), settings.getMaxQueued(), settings.getAcquireTimeout())));
+        var config = DefaultDockerClientConfig.createDefaultConfigBuilder()
+                .withDockerHost(dockerHost)
+                .build();
+        var httpClient = new ZerodepDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .maxConnections(pool.getCapacity())
+                .build();
+        return DockerClientImpl.getInstance(config, new PooledDockerHttpClient(httpClient, pool, meterRegistry, "collectors"));
+    }
+
+    /**
+     * Client for long-lived streams opened for websocket sessions, drawing on the global stream budget.
+     * Does not contact the host.
+     */
+    public DockerClient streamClient(String dockerHost) {
+        var config = DefaultDockerClientConfig.createDefaultConfigBuilder()
+                .withDockerHost(dockerHost)
+                .build();
+        var httpClient = new ZerodepDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .maxConnections(streams.getCapacity())
+                .build();
+        return DockerClientImpl.getInstance(config, new PooledDockerHttpClient(httpClient, streams, meterRegistry, STREAMS));
+    }
+
+    private ConnectionPool register(ConnectionPool pool) {
+        Gauge.builder("lumen.docker.pool.in-use", pool, ConnectionPool::inUse)
+                .description("Docker connections currently held")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+        Gauge.builder("lumen.docker.pool.queued", pool, ConnectionPool::queued)
+                .description("Callers waiting for a Docker connection")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+        FunctionCounter.builder("lumen.docker.pool.rejected", pool, ConnectionPool::rejected)
+                .description("Callers refused a Docker connection")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+        FunctionTimer.builder("lumen.docker.pool.wait", pool, ConnectionPool::waits, ConnectionPool::waitNanos, TimeUnit.NANOSECONDS)
+                .description("Waits for a Docker connection")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+        return pool;
+    }
+
+    public List<ConnectionPoolStats> getStats() {
+        List<ConnectionPoolStats> stats = new ArrayList<>();
+        stats.add(streams.getStats());
+        for (ConnectionPool pool : requests.values()) {
+            stats.add(pool.getStats());
+        }
+        for (ConnectionPool pool : collectors.values()) {
+            stats.add(pool.getStats());
+        }
+        return stats;
+    }
+}
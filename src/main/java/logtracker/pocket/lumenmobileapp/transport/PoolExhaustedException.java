@@ -0,0 +1,15 @@
+package logtracker.pocket.lumenmobileapp.transport;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * No Docker connection slot became free in time, or too many callers were already waiting for one.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PoolExhaustedException extends RuntimeException {
+
+    public PoolExhaustedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,137 @@
+package logtracker.pocket.lumenmobileapp.transport;
+
+import com.github.dockerjava.transport.DockerHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds a {@link ConnectionPool} slot for every request from sending it until its response is closed,
+ * and times each request up to the response headers ({@code lumen.docker.requests}, by command).
+ */
+final class PooledDockerHttpClient implements DockerHttpClient {
+
+    // Path segments followed by an id or name, e.g. /containers/{id}/start
+    private static final Set<String> RESOURCES = Set.of("containers", "images", "volumes", "networks", "exec", "plugins");
+    private static final Set<String> ACTIONS = Set.of("json", "create", "prune", "load", "search", "get");
+
+    private final DockerHttpClient delegate;
+    private final ConnectionPool pool;
+    private final MeterRegistry meterRegistry;
+    private final String kind;
+    // Registered timers by command and status, so a request only costs a map lookup
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    PooledDockerHttpClient(DockerHttpClient delegate, ConnectionPool pool, MeterRegistry meterRegistry, String kind) {
+        this.delegate = delegate;
+        this.pool = pool;
+        this.meterRegistry = meterRegistry;
+        this.kind = kind;
+    }
+
+    @Override
+    public Response execute(Request request) {
+        pool.acquire();
+        long start = System.nanoTime();
+        String status = "error";
+        try {
+            Response response = delegate.execute(request);
+            status = response.getStatusCode() / 100 + "xx";
+            return new PooledResponse(response);
+        } catch (RuntimeException | Error e) {
+            pool.release();
+            throw e;
+        } finally {
+            timer(command(request.method(), request.path()), status).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String command, String status) {
+        return timers.computeIfAbsent(command + ' ' + status, key -> Timer.builder("lumen.docker.requests")
+                .description("Docker API calls up to the response headers")
+                .tag("command", command)
+                .tag("pool", kind)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Request line with ids, names and the API version taken out, e.g. {@code POST /containers/{id}/start}.
+     */
+    static String command(String method, String path) {
+        int query = path.indexOf('?');
+        String[] segments = (query >= 0 ? path.substring(0, query) : path).split("/");
+        StringBuilder command = new StringBuilder(method).append(' ');
+        int length = command.length();
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.isEmpty() || (command.length() == length && segment.startsWith("v1."))) {
+                continue;
+            }
+            command.append('/').append(segment);
+            if (RESOURCES.contains(segment) && i + 1 < segments.length && !ACTIONS.contains(segments[i + 1])) {
+                // Image names may contain slashes: everything up to the final action is the id
+                command.append("/{id}");
+                if (i + 2 < segments.length) {
+                    command.append('/').append(segments[segments.length - 1]);
+                }
+                break;
+            }
+        }
+        return command.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    private final class PooledResponse implements Response {
+        private final Response response;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PooledResponse(Response response) {
+            this.response = response;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return response.getHeader(name);
+        }
+
+        @Override
+        public InputStream getBody() {
+            return response.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                response.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    pool.release();
+                }
+            }
+        }
+    }
+}
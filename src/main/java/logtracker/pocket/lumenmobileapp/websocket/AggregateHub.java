@@ -0,0 +1,155 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.AggregateMetrics;
+import logtracker.pocket.lumenmobileapp.model.AggregateUpdate;
+import logtracker.pocket.lumenmobileapp.service.AggregateMetricsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes the running totals of {@link AggregateMetricsService} to /aggregates sessions. Each dimension
+ * is read once per flush however many sessions follow it; a session is sent only the groups that
+ * differ from what it last received plus the keys of groups that disappeared.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AggregateHub {
+
+    private final AggregateMetricsService aggregateMetricsService;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    private ExecutorService senders;
+    private Timer sendTimer;
+
+    @Value("${app.aggregates.flush-ms:2000}")
+    private long flushMillis;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "aggregate-flush"));
+        sendTimer = Timer.builder("lumen.websocket.send")
+                .description("Websocket message sends; the count is the number of messages sent")
+                .tag("endpoint", "aggregates")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("lumen.websocket.sessions", feeds, Map::size)
+                .description("Open websocket sessions")
+                .tag("endpoint", "aggregates")
+                .register(meterRegistry);
+        senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("aggregate-sender-", 0).factory());
+        flusher.scheduleWithFixedDelay(this::flush, 0, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void subscribe(WebSocketSession session, String dimension) {
+        feeds.put(session.getId(), new Feed(session, dimension));
+        log.info("Session {} following aggregates by {}", session.getId(), dimension);
+    }
+
+    public void unsubscribe(String sessionId) {
+        feeds.remove(sessionId);
+    }
+
+    // Flush thread only
+    private void flush() {
+        try {
+            if (feeds.isEmpty()) {
+                return;
+            }
+            Map<String, List<AggregateMetrics>> current = new HashMap<>();
+            for (Feed feed : feeds.values()) {
+                if (feed.busy.get()) {
+                    continue;
+                }
+                AggregateUpdate update = feed.diff(current.computeIfAbsent(feed.dimension, aggregateMetricsService::get));
+                if (update == null) {
+                    continue;
+                }
+                TextMessage message = new TextMessage(objectMapper.writeValueAsString(update));
+                feed.busy.set(true);
+                senders.execute(() -> feed.send(message, sendTimer));
+            }
+        } catch (Exception e) {
+            log.error("Aggregate flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        senders.shutdown();
+    }
+
+    /**
+     * One session's dimension and what it was last sent; only touched by the flush thread, except {@code busy}.
+     */
+    private static final class Feed {
+        private final WebSocketSession session;
+        private final String dimension;
+        private final Map<String, AggregateMetrics> sent = new HashMap<>();
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        private Feed(WebSocketSession session, String dimension) {
+            this.session = session;
+            this.dimension = dimension;
+        }
+
+        private AggregateUpdate diff(List<AggregateMetrics> groups) {
+            List<AggregateMetrics> changed = new ArrayList<>();
+            Set<String> present = new HashSet<>();
+            for (AggregateMetrics group : groups) {
+                present.add(group.getKey());
+                if (!group.equals(sent.put(group.getKey(), group))) {
+                    changed.add(group);
+                }
+            }
+            List<String> removed = new ArrayList<>();
+            for (Iterator<String> it = sent.keySet().iterator(); it.hasNext(); ) {
+                String key = it.next();
+                if (!present.contains(key)) {
+                    removed.add(key);
+                    it.remove();
+                }
+            }
+            if (changed.isEmpty() && removed.isEmpty()) {
+                return null;
+            }
+            return AggregateUpdate.builder().groups(changed).removed(removed).build();
+        }
+
+        private void send(TextMessage message, Timer sendTimer) {
+            ReentrantLock sendLock = SessionLocks.of(session);
+            sendLock.lock();
+            try {
+                if (session.isOpen()) {
+                    long start = System.nanoTime();
+                    session.sendMessage(message);
+                    sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException e) {
+                log.error("Error sending aggregates to session {}: {}", session.getId(), e.getMessage());
+            } finally {
+                sendLock.unlock();
+                busy.set(false);
+            }
+        }
+    }
+}
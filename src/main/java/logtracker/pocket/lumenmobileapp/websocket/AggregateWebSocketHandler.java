@@ -0,0 +1,51 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import logtracker.pocket.lumenmobileapp.service.AggregateMetricsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * /aggregates: running totals per compose project, image or label. Query parameter {@code by}
+ * (project, image or label:&lt;key&gt;, default project).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AggregateWebSocketHandler extends TextWebSocketHandler {
+
+    private final AggregateHub aggregateHub;
+    private final AggregateMetricsService aggregateMetricsService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Map<String, String> queryParams = UriComponentsBuilder.fromUri(session.getUri())
+                .build()
+                .getQueryParams()
+                .toSingleValueMap();
+
+        String by = queryParams.getOrDefault("by", AggregateMetricsService.PROJECT);
+        if (!aggregateMetricsService.hasDimension(by)) {
+            log.warn("Unknown aggregate dimension: {} (Session: {})", by, session.getId());
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of("error", "Unknown dimension: " + by))));
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
+        aggregateHub.subscribe(session, by);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        log.info("Closing aggregates for session: {} (Status: {})", session.getId(), status);
+        aggregateHub.unsubscribe(session.getId());
+    }
+}
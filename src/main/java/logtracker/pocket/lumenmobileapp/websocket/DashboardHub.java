@@ -0,0 +1,272 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.model.DashboardRow;
+import logtracker.pocket.lumenmobileapp.model.DashboardUpdate;
+import logtracker.pocket.lumenmobileapp.service.ContainerStatsListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live overview of all containers for /stats/all sessions, fed by the shared stats collector.
+ * The latest sample of every container is kept in two rankings (CPU, memory) that are updated
+ * incrementally as samples arrive. Once per flush interval each session's view (optionally a top N
+ * and/or a container list) is read off its ranking and only rows that are new, changed rank or moved
+ * by at least the session's delta are sent. A session still busy sending skips the flush and gets the
+ * accumulated changes with the next one.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DashboardHub implements ContainerStatsListener {
+
+    public enum Sort {
+        CPU, MEMORY
+    }
+
+    private static final Comparator<Sample> BY_CPU = Comparator.comparingDouble(Sample::cpuUsage).reversed()
+            .thenComparing(Sample::containerId);
+    private static final Comparator<Sample> BY_MEMORY = Comparator.comparingLong(Sample::memoryUsage).reversed()
+            .thenComparing(Sample::containerId);
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Sample> latest = new HashMap<>();
+    private final TreeSet<Sample> byCpu = new TreeSet<>(BY_CPU);
+    private final TreeSet<Sample> byMemory = new TreeSet<>(BY_MEMORY);
+    private final Map<String, View> views = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    private ExecutorService senders;
+    private Timer sendTimer;
+
+    @Value("${app.dashboard.flush-ms:1000}")
+    private long flushMillis;
+
+    @Value("${app.dashboard.stale-seconds:30}")
+    private long staleSeconds;
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "dashboard-flush"));
+        sendTimer = Timer.builder("lumen.websocket.send")
+                .description("Websocket message sends; the count is the number of messages sent")
+                .tag("endpoint", "stats-all")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("lumen.websocket.sessions", views, Map::size)
+                .description("Open websocket sessions")
+                .tag("endpoint", "stats-all")
+                .register(meterRegistry);
+        senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dashboard-sender-", 0).factory());
+        flusher.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param top        number of rows to keep in view, or 0 for all
+     * @param containers full ids to restrict the view to, or null for all containers
+     * @param delta      minimum change of CPU or memory percentage that is pushed
+     */
+    public void subscribe(WebSocketSession session, Sort sort, int top, Set<String> containers, double delta) {
+        views.put(session.getId(), new View(session, sort, top, containers, delta));
+        log.info("Session {} joined dashboard (sort {}, top {}, {} containers)", session.getId(), sort,
+                top > 0 ? top : "all", containers != null ? containers.size() : "all");
+    }
+
+    public void unsubscribe(String sessionId) {
+        views.remove(sessionId);
+    }
+
+    @Override
+    public void onStats(String containerName, ContainerStats stats) {
+        Sample sample = new Sample(stats.getContainerId(), containerName, stats.getCpuUsage(), stats.getMemoryUsage(),
+                stats.getMemoryPercent(), stats.getNetworkRx(), stats.getNetworkTx(), System.currentTimeMillis());
+        synchronized (latest) {
+            Sample previous = latest.put(sample.containerId, sample);
+            if (previous != null) {
+                byCpu.remove(previous);
+                byMemory.remove(previous);
+            }
+            byCpu.add(sample);
+            byMemory.add(sample);
+        }
+    }
+
+    @Override
+    public void onContainerStopped(String containerId) {
+        synchronized (latest) {
+            remove(containerId);
+        }
+    }
+
+    // Flush thread only
+    private void flush() {
+        try {
+            if (views.isEmpty()) {
+                return;
+            }
+            long staleBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(staleSeconds);
+            int total;
+            Map<View, List<Sample>> snapshots = new HashMap<>();
+            synchronized (latest) {
+                latest.values().removeIf(sample -> {
+                    if (sample.updatedAt < staleBefore) {
+                        byCpu.remove(sample);
+                        byMemory.remove(sample);
+                        return true;
+                    }
+                    return false;
+                });
+                total = latest.size();
+                for (View view : views.values()) {
+                    if (!view.busy.get()) {
+                        snapshots.put(view, view.select(view.sort == Sort.CPU ? byCpu : byMemory));
+                    }
+                }
+            }
+
+            for (Map.Entry<View, List<Sample>> entry : snapshots.entrySet()) {
+                View view = entry.getKey();
+                DashboardUpdate update = view.diff(entry.getValue(), total);
+                if (update == null) {
+                    continue;
+                }
+                TextMessage message = new TextMessage(objectMapper.writeValueAsString(update));
+                view.busy.set(true);
+                senders.execute(() -> view.send(message, sendTimer));
+            }
+        } catch (Exception e) {
+            log.error("Dashboard flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void remove(String containerId) {
+        Sample previous = latest.remove(containerId);
+        if (previous != null) {
+            byCpu.remove(previous);
+            byMemory.remove(previous);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        senders.shutdown();
+    }
+
+    private record Sample(String containerId, String name, double cpuUsage, long memoryUsage, double memoryPercent,
+                          long networkRx, long networkTx, long updatedAt) {
+    }
+
+    /**
+     * One session's view and what it was last sent; only touched by the flush thread, except {@code busy}.
+     */
+    private static final class View {
+        private final WebSocketSession session;
+        private final Sort sort;
+        private final int top;
+        private final Set<String> containers;
+        private final double delta;
+        private final Map<String, DashboardRow> sent = new HashMap<>();
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        private View(WebSocketSession session, Sort sort, int top, Set<String> containers, double delta) {
+            this.session = session;
+            this.sort = sort;
+            this.top = top;
+            this.containers = containers;
+            this.delta = delta;
+        }
+
+        // Callers hold the ranking lock
+        private List<Sample> select(TreeSet<Sample> ranking) {
+            List<Sample> rows = new ArrayList<>(top > 0 ? top : ranking.size());
+            for (Sample sample : ranking) {
+                if (containers == null || containers.contains(sample.containerId)) {
+                    rows.add(sample);
+                    if (top > 0 && rows.size() >= top) {
+                        break;
+                    }
+                }
+            }
+            return rows;
+        }
+
+        private DashboardUpdate diff(List<Sample> rows, int total) {
+            List<DashboardRow> changed = new ArrayList<>();
+            Set<String> inView = new HashSet<>();
+            for (int i = 0; i < rows.size(); i++) {
+                Sample sample = rows.get(i);
+                String id = shortId(sample.containerId);
+                inView.add(id);
+                DashboardRow previous = sent.get(id);
+                if (previous != null && previous.getRank() == i + 1
+                        && Math.abs(previous.getCpuUsage() - sample.cpuUsage) < delta
+                        && Math.abs(previous.getMemoryPercent() - sample.memoryPercent) < delta
+                        && Objects.equals(previous.getName(), sample.name)) {
+                    continue;
+                }
+                DashboardRow row = DashboardRow.builder()
+                        .containerId(id)
+                        .name(sample.name)
+                        .rank(i + 1)
+                        .cpuUsage(sample.cpuUsage)
+                        .memoryUsage(sample.memoryUsage)
+                        .memoryPercent(sample.memoryPercent)
+                        .networkRx(sample.networkRx)
+                        .networkTx(sample.networkTx)
+                        .build();
+                sent.put(id, row);
+                changed.add(row);
+            }
+            List<String> removed = new ArrayList<>();
+            for (Iterator<String> it = sent.keySet().iterator(); it.hasNext(); ) {
+                String id = it.next();
+                if (!inView.contains(id)) {
+                    removed.add(id);
+                    it.remove();
+                }
+            }
+            if (changed.isEmpty() && removed.isEmpty()) {
+                return null;
+            }
+            return DashboardUpdate.builder().rows(changed).removed(removed).total(total).build();
+        }
+
+        private void send(TextMessage message, Timer sendTimer) {
+            ReentrantLock sendLock = SessionLocks.of(session);
+            sendLock.lock();
+            try {
+                if (session.isOpen()) {
+                    long start = System.nanoTime();
+                    session.sendMessage(message);
+                    sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            } catch (IOException e) {
+                log.error("Error sending dashboard update to session {}: {}", session.getId(), e.getMessage());
+            } finally {
+                sendLock.unlock();
+                busy.set(false);
+            }
+        }
+
+        private static String shortId(String containerId) {
+            return containerId.length() > 12 ? containerId.substring(0, 12) : containerId;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.service.DockerHostRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * /stats/all: live stats of many containers over one connection.
+ * Query parameters: {@code sort} (cpu or memory), {@code top} (N rows, default all),
+ * {@code containers} (comma-separated ids or names, default all) and {@code delta}
+ * (minimum change in percentage points that is pushed, default 0.5).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DashboardWebSocketHandler extends TextWebSocketHandler {
+
+    private static final double DEFAULT_DELTA = 0.5;
+
+    private final DashboardHub dashboardHub;
+    private final DockerHostRegistry dockerHostRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        Map<String, String> queryParams = UriComponentsBuilder.fromUri(session.getUri())
+                .build()
+                .getQueryParams()
+                .toSingleValueMap();
+
+        DashboardHub.Sort sort;
+        int top;
+        double delta;
+        Set<String> containers = null;
+        try {
+            String sortParam = queryParams.getOrDefault("sort", "cpu");
+            sort = DashboardHub.Sort.valueOf(sortParam.toUpperCase(Locale.ROOT));
+            top = Integer.parseInt(queryParams.getOrDefault("top", "0"));
+            delta = Double.parseDouble(queryParams.getOrDefault("delta", String.valueOf(DEFAULT_DELTA)));
+            if (top < 0 || delta < 0) {
+                throw new IllegalArgumentException("top and delta must not be negative");
+            }
+            String list = queryParams.get("containers");
+            if (list != null && !list.isEmpty()) {
+                containers = new HashSet<>();
+                for (String reference : list.split(",")) {
+                    Optional<ContainerInfo> container = dockerHostRegistry.resolve(reference.trim());
+                    if (container.isEmpty()) {
+                        throw new IllegalArgumentException("Container not found: " + reference.trim());
+                    }
+                    containers.add(container.get().getId());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid dashboard request: {} (Session: {})", e.getMessage(), session.getId());
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(Map.of("error", e.getMessage()))));
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
+
+        dashboardHub.subscribe(session, sort, top, containers, delta);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        log.info("Closing dashboard for session: {} (Status: {})", session.getId(), status);
+        dashboardHub.unsubscribe(session.getId());
+    }
+}
@@ -0,0 +1,237 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Per-session /logs filter, compiled once from the query string:
+ * <ul>
+ *     <li>{@code level}: minimum level (trace, debug, info, warn, error, fatal) detected in the line;
+ *     lines without a recognizable level are dropped</li>
+ *     <li>{@code include} / {@code exclude}: case-insensitive substrings (repeatable; any include must
+ *     match, no exclude may match)</li>
+ *     <li>{@code regex}: Java regular expression the line must contain</li>
+ *     <li>{@code stream}: stdout or stderr</li>
+ *     <li>{@code since} / {@code until}: epoch millis or RFC3339</li>
+ * </ul>
+ */
+public final class LogFilter implements Predicate<LogMessage> {
+
+    enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR, FATAL
+    }
+
+    // Levels are looked for near the start of the line only, where log formats put them
+    private static final int LEVEL_SCAN_LIMIT = 256;
+
+    private final Level minLevel;
+    private final String[] include;
+    private final String[] exclude;
+    private final Pattern regex;
+    private final String stream;
+    private final Long since;
+    private final Long until;
+
+    private LogFilter(Level minLevel, String[] include, String[] exclude, Pattern regex, String stream, Long since, Long until) {
+        this.minLevel = minLevel;
+        this.include = include;
+        this.exclude = exclude;
+        this.regex = regex;
+        this.stream = stream;
+        this.since = since;
+        this.until = until;
+    }
+
+    /**
+     * Builds the filter from the raw (still URL-encoded) query parameters.
+     *
+     * @return null if no filter parameter is present
+     * @throws IllegalArgumentException if a parameter is invalid
+     */
+    public static LogFilter fromQuery(MultiValueMap<String, String> params) {
+        String level = first(params, "level");
+        String[] include = all(params, "include");
+        String[] exclude = all(params, "exclude");
+        String regex = first(params, "regex");
+        String stream = first(params, "stream");
+        String since = first(params, "since");
+        String until = first(params, "until");
+        if (level == null && include.length == 0 && exclude.length == 0 && regex == null && stream == null
+                && since == null && until == null) {
+            return null;
+        }
+
+        Level minLevel = null;
+        if (level != null) {
+            minLevel = parseLevel(level, 0, level.length());
+            if (minLevel == null) {
+                throw new IllegalArgumentException("Invalid level: " + level);
+            }
+        }
+        Pattern pattern = null;
+        if (regex != null) {
+            try {
+                pattern = Pattern.compile(regex);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regex: " + e.getDescription());
+            }
+        }
+        if (stream != null) {
+            stream = stream.toLowerCase(Locale.ROOT);
+            if (!stream.equals("stdout") && !stream.equals("stderr")) {
+                throw new IllegalArgumentException("Invalid stream: " + stream);
+            }
+        }
+        Long sinceMillis = since != null ? parseTime(since) : null;
+        Long untilMillis = until != null ? parseTime(until) : null;
+        if (sinceMillis != null && untilMillis != null && untilMillis < sinceMillis) {
+            throw new IllegalArgumentException("until is before since");
+        }
+        return new LogFilter(minLevel, include, exclude, pattern, stream, sinceMillis, untilMillis);
+    }
+
+    public boolean hasTimeRange() {
+        return since != null || until != null;
+    }
+
+    public Long getSince() {
+        return since;
+    }
+
+    public Long getUntil() {
+        return until;
+    }
+
+    @Override
+    public boolean test(LogMessage message) {
+        String line = message.getLine();
+        if (line == null) {
+            return false;
+        }
+        if (stream != null && !stream.equals(message.getStream())) {
+            return false;
+        }
+        long timestamp = message.getTimestampMillis();
+        if ((since != null && timestamp < since) || (until != null && timestamp > until)) {
+            return false;
+        }
+        if (minLevel != null) {
+            Level level = detectLevel(line);
+            if (level == null || level.compareTo(minLevel) < 0) {
+                return false;
+            }
+        }
+        if (include.length > 0) {
+            boolean found = false;
+            for (String term : include) {
+                if (containsIgnoreCase(line, term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        for (String term : exclude) {
+            if (containsIgnoreCase(line, term)) {
+                return false;
+            }
+        }
+        return regex == null || regex.matcher(line).find();
+    }
+
+    /**
+     * First level keyword standing as a word of its own near the start of the line, e.g.
+     * {@code INFO}, {@code [warn]}, {@code level=error}, {@code "level":"debug"}.
+     */
+    static Level detectLevel(String line) {
+        int limit = Math.min(line.length(), LEVEL_SCAN_LIMIT);
+        int i = 0;
+        while (i < limit) {
+            if (!isAsciiLetter(line.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < line.length() && isAsciiLetter(line.charAt(i))) {
+                i++;
+            }
+            boolean standalone = i >= line.length() || !Character.isLetterOrDigit(line.charAt(i));
+            if (standalone && (start == 0 || !Character.isLetterOrDigit(line.charAt(start - 1)))) {
+                Level level = parseLevel(line, start, i);
+                if (level != null) {
+                    return level;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Level parseLevel(String text, int from, int to) {
+        return switch (to - from) {
+            case 3 -> matches(text, from, "err") ? Level.ERROR : null;
+            case 4 -> matches(text, from, "info") ? Level.INFO : matches(text, from, "warn") ? Level.WARN : null;
+            case 5 -> matches(text, from, "trace") ? Level.TRACE : matches(text, from, "debug") ? Level.DEBUG
+                    : matches(text, from, "error") ? Level.ERROR : matches(text, from, "fatal") ? Level.FATAL : null;
+            case 7 -> matches(text, from, "warning") ? Level.WARN : null;
+            case 8 -> matches(text, from, "critical") ? Level.FATAL : null;
+            default -> null;
+        };
+    }
+
+    private static boolean matches(String text, int from, String keyword) {
+        return text.regionMatches(true, from, keyword, 0, keyword.length());
+    }
+
+    private static boolean containsIgnoreCase(String text, String term) {
+        for (int i = 0, last = text.length() - term.length(); i <= last; i++) {
+            if (text.regionMatches(true, i, term, 0, term.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static long parseTime(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return Instant.parse(value).toEpochMilli();
+            } catch (DateTimeParseException ex) {
+                throw new IllegalArgumentException("Invalid time: " + value);
+            }
+        }
+    }
+
+    private static String first(MultiValueMap<String, String> params, String name) {
+        String[] values = all(params, name);
+        return values.length > 0 ? values[0] : null;
+    }
+
+    private static String[] all(MultiValueMap<String, String> params, String name) {
+        List<String> values = params.get(name);
+        if (values == null) {
+            return new String[0];
+        }
+        return values.stream()
+                .filter(value -> value != null && !value.isEmpty())
+                .map(value -> UriUtils.decode(value, StandardCharsets.UTF_8))
+                .toArray(String[]::new);
+    }
+}
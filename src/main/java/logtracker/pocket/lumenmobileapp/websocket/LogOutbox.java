@@ -0,0 +1,276 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded outbound queue of one /logs session. The publishing thread only queues lines; a sender on its
+ * own (virtual) thread writes them to the socket, so a slow client never holds up the Docker log reader
+ * or other sessions. In batch mode lines are coalesced into JSON arrays, sent once {@code batchLines}
+ * are queued or {@code batchMillis} after the first one. When the queue is full the oldest lines are
+ * dropped and a {@code {"skipped":N}} marker takes their place, or the session is closed.
+ * The session's {@link LogFilter} is applied by the sender, so a costly regex never runs on the publishing
+ * thread; the queue limit and the skipped count therefore cover lines before filtering.
+ */
+@Slf4j
+final class LogOutbox {
+
+    record Settings(int capacity, boolean batch, long batchMillis, int batchLines, boolean disconnectOnOverflow) {
+    }
+
+    private final WebSocketSession session;
+    private final ReentrantLock sendLock;
+    private final Settings settings;
+    // Null when the session receives every line
+    private final LogFilter filter;
+    private final Executor senders;
+    private final ScheduledExecutorService timer;
+    private final Timer sendTimer;
+    private final ArrayDeque<LogStreamHub.Entry> queue = new ArrayDeque<>();
+    // Live lines that arrive while the replay is still being collected; null once the replay is queued
+    private List<LogStreamHub.Entry> pending = new ArrayList<>();
+    private long lastQueued = Long.MIN_VALUE;
+    private long skipped;
+    private boolean sending;
+    private boolean timerArmed;
+    private boolean closed;
+    private CloseStatus finishStatus;
+
+    LogOutbox(WebSocketSession session, Settings settings, LogFilter filter, Executor senders, ScheduledExecutorService timer,
+              Timer sendTimer) {
+        this.session = session;
+        this.sendLock = SessionLocks.of(session);
+        this.settings = settings;
+        this.filter = filter;
+        this.senders = senders;
+        this.timer = timer;
+        this.sendTimer = sendTimer;
+    }
+
+    String sessionId() {
+        return session.getId();
+    }
+
+    synchronized int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Queues the replay ahead of everything published since the session attached.
+     */
+    synchronized void replay(List<LogStreamHub.Entry> replay) {
+        List<LogStreamHub.Entry> live = pending;
+        pending = null;
+        replay.forEach(this::enqueue);
+        live.forEach(this::enqueue);
+        if (finishStatus != null && !closed && !sending) {
+            sending = true;
+            submit(true);
+        }
+    }
+
+    synchronized void offer(LogStreamHub.Entry entry) {
+        if (pending != null) {
+            pending.add(entry);
+        } else {
+            enqueue(entry);
+        }
+    }
+
+    /**
+     * Sends what is still queued, then closes the session. Before the replay is queued this only records
+     * the status; the replay is sent first.
+     */
+    void finish(CloseStatus status) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            finishStatus = status;
+            if (sending || pending != null) {
+                return;
+            }
+            sending = true;
+        }
+        submit(true);
+    }
+
+    /**
+     * Stops delivery; queued lines are discarded.
+     */
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    // Callers hold the outbox lock
+    private void enqueue(LogStreamHub.Entry entry) {
+        if (closed || entry.sequence() <= lastQueued) {
+            return;
+        }
+        lastQueued = entry.sequence();
+        if (queue.size() >= settings.capacity()) {
+            if (settings.disconnectOnOverflow()) {
+                log.warn("Log session {} fell {} lines behind, disconnecting", session.getId(), queue.size());
+                close();
+                senders.execute(() -> closeSession(CloseStatus.SESSION_NOT_RELIABLE.withReason("Outbound queue full")));
+                return;
+            }
+            queue.pollFirst();
+            skipped++;
+        }
+        queue.addLast(entry);
+
+        if (!sending) {
+            if (!settings.batch() || queue.size() >= settings.batchLines()) {
+                sending = true;
+                submit(false);
+            } else {
+                armTimer();
+            }
+        }
+    }
+
+    private void armTimer() {
+        if (timerArmed) {
+            return;
+        }
+        timerArmed = true;
+        try {
+            timer.schedule(this::onTimer, settings.batchMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            timerArmed = false;
+        }
+    }
+
+    private void onTimer() {
+        synchronized (this) {
+            timerArmed = false;
+            if (sending || closed || queue.isEmpty()) {
+                return;
+            }
+            sending = true;
+        }
+        submit(true);
+    }
+
+    private void submit(boolean flush) {
+        try {
+            senders.execute(() -> drain(flush));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    // Taking and sending happen under the session's send lock, so chunks go out in queue order
+    private void drain(boolean flush) {
+        sendLock.lock();
+        try {
+            boolean force = flush;
+            while (true) {
+                List<LogStreamHub.Entry> chunk;
+                long gap;
+                CloseStatus finishing;
+                synchronized (this) {
+                    finishing = finishStatus;
+                    boolean partial = settings.batch() && !force && finishing == null && queue.size() < settings.batchLines();
+                    if (closed || queue.isEmpty() || partial) {
+                        sending = false;
+                        if (!closed && !queue.isEmpty()) {
+                            armTimer();
+                        }
+                        if (!closed && finishing != null) {
+                            closed = true;
+                            break;
+                        }
+                        return;
+                    }
+                    int size = Math.min(queue.size(), settings.batchLines());
+                    chunk = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        chunk.add(queue.pollFirst());
+                    }
+                    gap = skipped;
+                    skipped = 0;
+                }
+                force = false;
+                if (filter != null) {
+                    chunk.removeIf(entry -> !filter.test(entry.message()));
+                    if (chunk.isEmpty() && gap == 0) {
+                        continue;
+                    }
+                }
+                if (!send(chunk, gap)) {
+                    close();
+                    return;
+                }
+            }
+        } finally {
+            sendLock.unlock();
+        }
+        closeSession(finishStatus);
+    }
+
+    private boolean send(List<LogStreamHub.Entry> chunk, long gap) {
+        if (!session.isOpen()) {
+            return false;
+        }
+        try {
+            if (settings.batch()) {
+                StringBuilder batch = new StringBuilder(chunk.size() * 128).append('[');
+                if (gap > 0) {
+                    batch.append("{\"skipped\":").append(gap).append('}');
+                }
+                for (LogStreamHub.Entry entry : chunk) {
+                    if (batch.length() > 1) {
+                        batch.append(',');
+                    }
+                    batch.append(entry.payload().getPayload());
+                }
+                sendTimed(new TextMessage(batch.append(']')));
+            } else {
+                if (gap > 0) {
+                    sendTimed(new TextMessage("{\"skipped\":" + gap + "}"));
+                }
+                for (LogStreamHub.Entry entry : chunk) {
+                    sendTimed(entry.payload());
+                }
+            }
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void sendTimed(WebSocketMessage<?> message) throws IOException {
+        long start = System.nanoTime();
+        session.sendMessage(message);
+        sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void closeSession(CloseStatus status) {
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
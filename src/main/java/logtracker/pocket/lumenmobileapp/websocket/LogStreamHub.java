@@ -0,0 +1,572 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.LogContainerCmd;
+import com.github.dockerjava.api.model.Frame;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import logtracker.pocket.lumenmobileapp.service.ContainerLogCollector;
+import logtracker.pocket.lumenmobileapp.service.ContainerLogListener;
+import logtracker.pocket.lumenmobileapp.service.DockerHostRegistry;
+import logtracker.pocket.lumenmobileapp.service.LogFrameParser;
+import logtracker.pocket.lumenmobileapp.transport.PoolExhaustedException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Multiplexes the output of a container to all /logs sessions watching it. Containers the
+ * {@link ContainerLogCollector} follows are fed from its stream; for the others (remote hosts, collection
+ * disabled, stopped containers) the hub opens one follow stream of its own, shared by all their sessions.
+ * Recent parsed lines are kept in a bounded ring so late joiners and reconnecting clients
+ * (with a sequence cursor) are served from memory instead of re-reading the tail from the daemon.
+ * A collector-fed ring is seeded once, with a one-shot tail read on a sender thread, when its first session
+ * joins; sessions joining before the seed is in get their replay once it is.
+ * Each session has its own {@link LogOutbox}, so the Docker callback thread never writes to a socket.
+ * Lines are serialized at most once, and only when some session's filter lets them through. Sessions
+ * with a since/until range get a dedicated stream that asks the daemon for just that range.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LogStreamHub implements ContainerLogListener {
+
+    // Seeded from the wall clock so cursors stay monotonic across restarts of the backend
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final long SEED_TIMEOUT_SECONDS = 5;
+
+    private final DockerHostRegistry dockerHostRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LogStream> streams = new ConcurrentHashMap<>();
+    // Dedicated since/until streams by session id
+    private final Map<String, LogStream> rangeStreams = new ConcurrentHashMap<>();
+    // Containers the collector follows
+    private final Set<String> followed = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.logs.replay-capacity:1000}")
+    private int replayCapacity;
+
+    @Value("${app.logs.initial-tail:100}")
+    private int initialTail;
+
+    @Value("${app.logs.linger-seconds:30}")
+    private int lingerSeconds;
+
+    @Value("${app.logs.outbound-capacity:5000}")
+    private int outboundCapacity;
+
+    @Value("${app.logs.overflow-policy:drop-oldest}")
+    private String overflowPolicy;
+
+    @Value("${app.logs.batch-ms:200}")
+    private long batchMillis;
+
+    @Value("${app.logs.batch-lines:200}")
+    private int batchLines;
+
+    private ExecutorService senders;
+    private ScheduledExecutorService batchTimer;
+    private Timer sendTimer;
+    private Counter framesIn;
+
+    @PostConstruct
+    public void init() {
+        senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("log-sender-", 0).factory());
+        batchTimer = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "log-batch-timer"));
+        sendTimer = Timer.builder("lumen.websocket.send")
+                .description("Websocket message sends; the count is the number of messages sent")
+                .tag("endpoint", "logs")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        framesIn = Counter.builder("lumen.frames.in")
+                .description("Frames received from Docker streams")
+                .tag("source", "logs")
+                .register(meterRegistry);
+        Gauge.builder("lumen.logs.outbound.queued", this, LogStreamHub::queuedLines)
+                .description("Lines waiting in the outbound queues of all /logs sessions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Attaches a session to the container's shared stream. Without a cursor the session receives the
+     * last {@code initialTail} lines; with a cursor it receives only the lines after that sequence.
+     * In batch mode lines are delivered as JSON arrays. A filter (may be null) applies to replayed
+     * and live lines; if it has a since/until range the session gets its own stream for that range.
+     */
+    public void subscribe(String containerId, WebSocketSession session, Long cursor, boolean batch, LogFilter filter) {
+        LogOutbox.Settings settings = new LogOutbox.Settings(Math.max(1, outboundCapacity), batch,
+                Math.max(1, batchMillis), Math.max(1, batchLines), "disconnect".equalsIgnoreCase(overflowPolicy));
+        LogOutbox subscriber = new LogOutbox(session, settings, filter, senders, batchTimer, sendTimer);
+
+        if (filter != null && filter.hasTimeRange()) {
+            LogStream stream = new LogStream(containerId, 1, false);
+            stream.attach(subscriber);
+            rangeStreams.put(session.getId(), stream);
+            subscriber.replay(List.of());
+            start(stream, filter.getSince(), filter.getUntil());
+            log.info("Session {} opened log range stream for {} (since {}, until {})", session.getId(), containerId, filter.getSince(), filter.getUntil());
+            return;
+        }
+
+        LogStream stream = streams.compute(containerId, (id, existing) -> {
+            LogStream current = existing != null && !existing.completed ? existing : null;
+            if (current == null) {
+                if (existing != null) {
+                    existing.closeUpstream();
+                }
+                current = new LogStream(id, replayCapacity, followed.contains(id));
+                if (!current.fed) {
+                    start(current, null, null);
+                }
+            }
+            // Keeps the stream from being evicted until the session is attached
+            current.joining.incrementAndGet();
+            return current;
+        });
+        try {
+            stream.attach(subscriber);
+        } finally {
+            stream.joining.decrementAndGet();
+        }
+
+        if (!stream.fed || stream.seeded) {
+            replay(stream, subscriber, cursor, batch);
+            return;
+        }
+        // The tail read can take seconds; live lines wait in the outbox until the replay is queued
+        try {
+            senders.execute(() -> {
+                seed(stream);
+                replay(stream, subscriber, cursor, batch);
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void replay(LogStream stream, LogOutbox subscriber, Long cursor, boolean batch) {
+        List<Entry> replay = stream.replay(cursor, initialTail);
+        subscriber.replay(replay);
+        log.info("Session {} joined {}log stream for {} (replayed {} lines)", subscriber.sessionId(), batch ? "batched " : "", stream.containerId, replay.size());
+    }
+
+    public void unsubscribe(String containerId, String sessionId) {
+        LogStream range = rangeStreams.remove(sessionId);
+        if (range != null) {
+            range.detach(sessionId);
+            range.closeUpstream();
+            return;
+        }
+        LogStream stream = streams.get(containerId);
+        if (stream != null) {
+            stream.detach(sessionId);
+        }
+    }
+
+    /**
+     * Closes follow streams nobody has watched for longer than the linger period.
+     * Lingering keeps the replay ring around for clients that reconnect shortly after dropping.
+     */
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.SECONDS)
+    public void evictIdleStreams() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(lingerSeconds);
+        for (String containerId : streams.keySet()) {
+            streams.computeIfPresent(containerId, (id, stream) -> {
+                if (stream.subscribers.isEmpty() && stream.joining.get() == 0 && stream.idleSince < cutoff) {
+                    log.info("Closing idle log stream for container: {}", id);
+                    stream.closeUpstream();
+                    return null;
+                }
+                return stream;
+            });
+        }
+    }
+
+    @Override
+    public void onFollowingStarted(String containerId) {
+        followed.add(containerId);
+    }
+
+    @Override
+    public void onFollowingStopped(String containerId) {
+        followed.remove(containerId);
+        // Under the key's lock, so a session joining right now either sees the fed stream ended or gets its own
+        streams.computeIfPresent(containerId, (id, stream) -> {
+            if (stream.fed) {
+                stream.terminate(CloseStatus.NORMAL);
+            }
+            return stream;
+        });
+    }
+
+    @Override
+    public void onLogLine(String containerId, String containerName, LogMessage message) {
+        LogStream stream = streams.get(containerId);
+        if (stream == null || !stream.fed || stream.completed) {
+            return;
+        }
+        // The collector's listeners share the message; the ring keeps its own copy with a sequence
+        stream.publish(LogMessage.builder()
+                .timestamp(message.getTimestamp())
+                .line(message.getLine())
+                .stream(message.getStream())
+                .timestampMillis(message.getTimestampMillis())
+                .build());
+    }
+
+    /**
+     * Puts the last {@code initialTail} lines ahead of what the collector delivered since the stream was
+     * created, unless the ring already holds that many. Sessions attached meanwhile still hold their live
+     * lines back for the replay, so nobody has seen the sequences it reassigns.
+     */
+    private void seed(LogStream stream) {
+        stream.seedLock.lock();
+        try {
+            if (stream.seeded) {
+                return;
+            }
+            List<LogMessage> tail = stream.size() < initialTail ? readTail(stream.containerId) : List.of();
+            stream.prepend(tail);
+            stream.seeded = true;
+        } finally {
+            stream.seedLock.unlock();
+        }
+    }
+
+    private List<LogMessage> readTail(String containerId) {
+        List<LogMessage> tail = new ArrayList<>();
+        LogFrameParser parser = new LogFrameParser();
+        Consumer<LogMessage> sink = tail::add;
+        try {
+            ResultCallback.Adapter<Frame> callback = dockerHostRegistry.streamingClientFor(containerId).logContainerCmd(containerId)
+                    .withStdOut(true)
+                    .withStdErr(true)
+                    .withTimestamps(true)
+                    .withTail(initialTail)
+                    .exec(new ResultCallback.Adapter<>() {
+                        @Override
+                        public void onNext(Frame frame) {
+                            parser.parse(frame, sink);
+                        }
+
+                        @Override
+                        public void onComplete() {
+                            parser.flush(sink);
+                            super.onComplete();
+                        }
+                    });
+            if (callback.awaitCompletion(SEED_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                return tail;
+            }
+            callback.close();
+            log.warn("Reading the log tail of {} timed out; starting without it", containerId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Could not read the log tail of {}; starting without it: {}", containerId, e.getMessage());
+        }
+        return List.of();
+    }
+
+    /**
+     * Follows the container's output. Without a range it starts from the last {@code initialTail} lines;
+     * with one the daemon sends only lines from {@code since} (and stops at {@code until}).
+     */
+    private void start(LogStream stream, Long since, Long until) {
+        String containerId = stream.containerId;
+        log.info("Starting {} log stream for container: {}", since != null || until != null ? "range" : "shared", containerId);
+
+        LogFrameParser parser = new LogFrameParser();
+        Consumer<LogMessage> sink = stream::publish;
+        LogContainerCmd cmd = dockerHostRegistry.streamingClientFor(containerId).logContainerCmd(containerId)
+                .withStdOut(true)
+                .withStdErr(true)
+                .withFollowStream(until == null || until > System.currentTimeMillis())
+                .withTimestamps(true);
+        if (since != null) {
+            // Second precision; the session filter drops the rest
+            cmd.withSince((int) TimeUnit.MILLISECONDS.toSeconds(since));
+        } else if (until == null) {
+            cmd.withTail(initialTail);
+        }
+        if (until != null) {
+            cmd.withUntil((int) TimeUnit.MILLISECONDS.toSeconds(until + 999));
+        }
+        cmd.exec(new ResultCallback.Adapter<Frame>() {
+                    @Override
+                    public void onStart(Closeable closeable) {
+                        stream.upstream = closeable;
+                        if (stream.completed) {
+                            stream.closeUpstream();
+                        }
+                    }
+
+                    @Override
+                    public void onNext(Frame frame) {
+                        framesIn.increment();
+                        parser.parse(frame, sink);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        log.error("Error streaming logs for container {}: {}", containerId, throwable.getMessage());
+                        // Out of stream budget: tell clients to come back later rather than that something broke
+                        stream.terminate(throwable instanceof PoolExhaustedException ? CloseStatus.SERVICE_OVERLOAD : CloseStatus.SERVER_ERROR);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        log.info("Log stream completed for container: {}", containerId);
+                        parser.flush(sink);
+                        stream.terminate(CloseStatus.NORMAL);
+                    }
+                });
+    }
+
+    private int queuedLines() {
+        int queued = 0;
+        for (Map<String, LogStream> byKey : List.of(streams, rangeStreams)) {
+            for (LogStream stream : byKey.values()) {
+                for (LogOutbox subscriber : stream.subscribers.values()) {
+                    queued += subscriber.queued();
+                }
+            }
+        }
+        return queued;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchTimer.shutdownNow();
+        senders.shutdown();
+    }
+
+    /**
+     * A published line; serialized on first use, so lines no session accepts are never serialized.
+     */
+    static final class Entry {
+        private final long sequence;
+        private final LogMessage message;
+        private volatile TextMessage payload;
+
+        private Entry(LogMessage message) {
+            this.sequence = message.getSequence();
+            this.message = message;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+
+        LogMessage message() {
+            return message;
+        }
+
+        TextMessage payload() {
+            TextMessage result = payload;
+            if (result == null) {
+                try {
+                    result = new TextMessage(OBJECT_MAPPER.writeValueAsString(message));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                payload = result;
+            }
+            return result;
+        }
+    }
+
+    private class LogStream {
+        private final String containerId;
+        private final Entry[] ring;
+        private final Map<String, LogOutbox> subscribers = new ConcurrentHashMap<>();
+        // Fed by the collector rather than a follow stream of its own
+        private final boolean fed;
+        private final AtomicInteger joining = new AtomicInteger();
+        // Held across the tail read, which runs on a virtual thread
+        private final ReentrantLock seedLock = new ReentrantLock();
+        private volatile boolean seeded;
+        private long appended;
+        private volatile long idleSince = System.currentTimeMillis();
+        private volatile Closeable upstream;
+        private volatile boolean completed;
+        private CloseStatus finishStatus;
+
+        private LogStream(String containerId, int capacity, boolean fed) {
+            this.containerId = containerId;
+            this.ring = new Entry[Math.max(1, capacity)];
+            this.fed = fed;
+        }
+
+        private long size() {
+            synchronized (ring) {
+                return Math.min(appended, ring.length);
+            }
+        }
+
+        private void attach(LogOutbox subscriber) {
+            CloseStatus finished;
+            synchronized (ring) {
+                subscribers.put(subscriber.sessionId(), subscriber);
+                finished = finishStatus;
+            }
+            if (finished != null) {
+                // Joined a stream that ended meanwhile: deliver the replay, then close like the others
+                subscriber.finish(finished);
+            }
+        }
+
+        /**
+         * Lines after {@code cursor}, or the last {@code defaultReplay} lines without one. Lines published
+         * between attaching and this call are in both the replay and the outbox's held-back lines; the
+         * outbox drops the second copy by sequence.
+         */
+        private List<Entry> replay(Long cursor, int defaultReplay) {
+            List<Entry> replay = new ArrayList<>();
+            synchronized (ring) {
+                long available = Math.min(appended, ring.length);
+                long first = appended - available;
+                long from = appended - Math.min(available, defaultReplay);
+                if (cursor != null && cursor <= SEQUENCE.get()) {
+                    from = firstAfter(cursor, first);
+                }
+                for (long i = from; i < appended; i++) {
+                    replay.add(ring[(int) (i % ring.length)]);
+                }
+            }
+            return replay;
+        }
+
+        /**
+         * Rebuilds the ring as {@code older} followed by its current lines, leaving out lines of {@code older}
+         * it already holds, and renumbers them all.
+         */
+        private void prepend(List<LogMessage> older) {
+            synchronized (ring) {
+                long available = Math.min(appended, ring.length);
+                List<LogMessage> merged = new ArrayList<>(older.size() + (int) available);
+                Set<String> held = new HashSet<>();
+                for (long i = appended - available; i < appended; i++) {
+                    held.add(key(ring[(int) (i % ring.length)].message));
+                }
+                for (LogMessage message : older) {
+                    if (!held.contains(key(message))) {
+                        merged.add(message);
+                    }
+                }
+                for (long i = appended - available; i < appended; i++) {
+                    merged.add(ring[(int) (i % ring.length)].message);
+                }
+                Arrays.fill(ring, null);
+                appended = 0;
+                for (LogMessage message : merged.subList(Math.max(0, merged.size() - ring.length), merged.size())) {
+                    message.setSequence(SEQUENCE.incrementAndGet());
+                    ring[(int) (appended % ring.length)] = new Entry(message);
+                    appended++;
+                }
+            }
+        }
+
+        private static String key(LogMessage message) {
+            return message.getTimestamp() + '\u0000' + message.getStream() + '\u0000' + message.getLine();
+        }
+
+        // Sequences increase along the ring, so the first entry newer than the cursor can be binary searched
+        private long firstAfter(long cursor, long first) {
+            long low = first;
+            long high = appended;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                if (ring[(int) (mid % ring.length)].sequence <= cursor) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void detach(String sessionId) {
+            synchronized (ring) {
+                LogOutbox subscriber = subscribers.remove(sessionId);
+                if (subscriber != null) {
+                    subscriber.close();
+                }
+                if (subscribers.isEmpty()) {
+                    idleSince = System.currentTimeMillis();
+                }
+            }
+        }
+
+        private void publish(LogMessage message) {
+            Entry entry;
+            synchronized (ring) {
+                message.setSequence(SEQUENCE.incrementAndGet());
+                entry = new Entry(message);
+                ring[(int) (appended % ring.length)] = entry;
+                appended++;
+            }
+
+            for (LogOutbox subscriber : subscribers.values()) {
+                subscriber.offer(entry);
+            }
+        }
+
+        private void terminate(CloseStatus status) {
+            synchronized (ring) {
+                finishStatus = status;
+            }
+            closeUpstream();
+            // Sessions still receive the lines queued before the stream ended
+            for (LogOutbox subscriber : subscribers.values()) {
+                subscriber.finish(status);
+            }
+        }
+
+        private void closeUpstream() {
+            completed = true;
+            Closeable closeable = upstream;
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
@@ -1,23 +1,24 @@
 package logtracker.pocket.lumenmobileapp.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.async.ResultCallback;
-import com.github.dockerjava.api.model.Frame;
-import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import logtracker.pocket.lumenmobileapp.service.DockerHostRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.Closeable;
 import java.io.IOException;
-import java.time.Instant;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
@@ -25,17 +26,28 @@ import java.util.concurrent.ConcurrentHashMap;
 @RequiredArgsConstructor
 public class LogWebSocketHandler extends TextWebSocketHandler {
 
-    private final DockerClient dockerClient;
+    private final LogStreamHub logStreamHub;
+    private final DockerHostRegistry dockerHostRegistry;
+    private final MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final Map<String, Closeable> watchRequests = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionContainers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("lumen.websocket.sessions", sessionContainers, Map::size)
+                .description("Open websocket sessions")
+                .tag("endpoint", "logs")
+                .register(meterRegistry);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        Map<String, String> queryParams = UriComponentsBuilder.fromUri(session.getUri())
+        MultiValueMap<String, String> rawParams = UriComponentsBuilder.fromUri(session.getUri())
                 .build()
-                .getQueryParams()
-                .toSingleValueMap();
+                .getQueryParams();
+        Map<String, String> queryParams = rawParams.toSingleValueMap();
         String containerId = queryParams.get("containerId");
+        boolean batch = "batch".equalsIgnoreCase(queryParams.get("mode"));
 
         if (containerId == null || containerId.isEmpty()) {
             log.warn("Connection attempt without containerId (Session: {})", session.getId());
@@ -43,111 +55,54 @@ public class LogWebSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        log.info("Starting log stream for container: {} (Session: {})", containerId, session.getId());
-
-        dockerClient.logContainerCmd(containerId)
-                .withStdOut(true)
-                .withStdErr(true)
-                .withFollowStream(true)
-                .withTail(100)
-                .withTimestamps(true)
-                .exec(new ResultCallback<Frame>() {
-                    private Closeable closeable;
-
-                    @Override
-                    public void onStart(Closeable closeable) {
-                        this.closeable = closeable;
-                        watchRequests.put(session.getId(), closeable);
-                    }
-
-                    @Override
-                    public void onNext(Frame frame) {
-                        if (!session.isOpen()) {
-                            closeQuietly();
-                            return;
-                        }
-
-                        try {
-                            String rawPayload = new String(frame.getPayload());
-                            String timestamp = Instant.now().toString();
-                            String line = rawPayload;
-
-                            // Docker --timestamps format: "2024-01-25T12:30:01.123456789Z content"
-                            int spaceIndex = rawPayload.indexOf(' ');
-                            if (spaceIndex > 0) {
-                                String potentialTimestamp = rawPayload.substring(0, spaceIndex);
-                                if (potentialTimestamp.contains("T") && potentialTimestamp.contains("Z")) {
-                                    timestamp = potentialTimestamp;
-                                    line = rawPayload.substring(spaceIndex + 1);
-                                }
-                            }
-
-                            LogMessage message = LogMessage.builder()
-                                    .timestamp(timestamp)
-                                    .line(line.trim())
-                                    .build();
-
-                            synchronized (session) {
-                                if (session.isOpen()) {
-                                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
-                                }
-                            }
-                        } catch (IOException e) {
-                            log.error("Error sending message to session {}: {}", session.getId(), e.getMessage());
-                            closeQuietly();
-                        }
-                    }
+        Long cursor = null;
+        String cursorParam = queryParams.get("cursor");
+        if (cursorParam != null && !cursorParam.isEmpty()) {
+            try {
+                cursor = Long.parseLong(cursorParam);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid cursor '{}' (Session: {})", cursorParam, session.getId());
+                session.close(CloseStatus.BAD_DATA);
+                return;
+            }
+        }
 
-                    @Override
-                    public void onError(Throwable throwable) {
-                        log.error("Error streaming logs for container {}: {}", containerId, throwable.getMessage());
-                        closeQuietly();
-                        try {
-                            if (session.isOpen()) {
-                                session.close(CloseStatus.SERVER_ERROR);
-                            }
-                        } catch (IOException e) {
-                            // ignore
-                        }
-                    }
+        LogFilter filter;
+        try {
+            filter = LogFilter.fromQuery(rawParams);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid log filter: {} (Session: {})", e.getMessage(), session.getId());
+            session.sendMessage(error(e.getMessage()));
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
 
-                    @Override
-                    public void onComplete() {
-                        log.info("Log stream completed for container: {}", containerId);
-                        closeQuietly();
-                        try {
-                            if (session.isOpen()) {
-                                session.close(CloseStatus.NORMAL);
-                            }
-                        } catch (IOException e) {
-                            // ignore
-                        }
-                    }
+        // The shared stream is keyed by the full container id, whatever the client passed
+        Optional<ContainerInfo> container = dockerHostRegistry.resolve(containerId);
+        if (container.isEmpty()) {
+            log.warn("Container {} not found (Session: {})", containerId, session.getId());
+            session.sendMessage(error("Container not found: " + containerId));
+            session.close(CloseStatus.BAD_DATA);
+            return;
+        }
+        containerId = container.get().getId();
 
-                    @Override
-                    public void close() throws IOException {
-                        closeQuietly();
-                    }
+        log.info("Starting log stream for container: {} (Session: {}, Cursor: {}, Batch: {}, Filtered: {})", containerId, session.getId(), cursor, batch, filter != null);
 
-                    private void closeQuietly() {
-                        if (closeable != null) {
-                            try {
-                                closeable.close();
-                            } catch (IOException e) {
-                                // ignore
-                            }
-                        }
-                        watchRequests.remove(session.getId());
-                    }
-                });
+        sessionContainers.put(session.getId(), containerId);
+        logStreamHub.subscribe(containerId, session, cursor, batch, filter);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         log.info("Closing log stream for session: {} (Status: {})", session.getId(), status);
-        Closeable watchRequest = watchRequests.remove(session.getId());
-        if (watchRequest != null) {
-            watchRequest.close();
+        String containerId = sessionContainers.remove(session.getId());
+        if (containerId != null) {
+            logStreamHub.unsubscribe(containerId, session.getId());
         }
     }
+
+    private TextMessage error(String message) throws IOException {
+        return new TextMessage(objectMapper.writeValueAsString(Map.of("error", message)));
+    }
 }
@@ -0,0 +1,23 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The lock every writer of a session takes around {@code sendMessage}. Senders run on virtual threads and a
+ * send blocks for as long as the client is slow; a monitor would pin the carrier thread for that time,
+ * while a {@link ReentrantLock} lets the waiting and sending virtual threads unmount. The lock lives in the
+ * session's attributes, so handlers and outboxes of the same session share it.
+ */
+final class SessionLocks {
+
+    private static final String ATTRIBUTE = SessionLocks.class.getName();
+
+    private SessionLocks() {
+    }
+
+    static ReentrantLock of(WebSocketSession session) {
+        return (ReentrantLock) session.getAttributes().computeIfAbsent(ATTRIBUTE, key -> new ReentrantLock());
+    }
+}
@@ -0,0 +1,110 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.model.MetricSummary;
+import logtracker.pocket.lumenmobileapp.model.StatsSummary;
+
+/**
+ * Folds the samples of one /stats session into windows aligned to multiples of the interval.
+ * A window is complete when the first sample of the next one arrives. Not thread-safe; callers
+ * hold the outbox lock.
+ */
+final class StatsAggregator {
+
+    private static final int CPU = 0;
+    private static final int MEMORY_USAGE = 1;
+    private static final int MEMORY_PERCENT = 2;
+    private static final int NETWORK_RX = 3;
+    private static final int NETWORK_TX = 4;
+    private static final int FIELDS = 5;
+
+    private final long intervalMillis;
+    private final double[] min = new double[FIELDS];
+    private final double[] max = new double[FIELDS];
+    private final double[] sum = new double[FIELDS];
+    private final double[] last = new double[FIELDS];
+    private long windowStart = -1;
+    private long memoryLimit;
+    private int samples;
+
+    StatsAggregator(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+
+    long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /**
+     * Adds a sample and returns the previous window if this sample starts a new one, otherwise null.
+     */
+    StatsSummary add(long timestamp, ContainerStats stats) {
+        long start = timestamp - Math.floorMod(timestamp, intervalMillis);
+        StatsSummary completed = null;
+        if (samples > 0 && start != windowStart) {
+            completed = summary(stats.getContainerId());
+            samples = 0;
+        }
+        windowStart = start;
+        accumulate(CPU, stats.getCpuUsage());
+        accumulate(MEMORY_USAGE, stats.getMemoryUsage());
+        accumulate(MEMORY_PERCENT, stats.getMemoryPercent());
+        accumulate(NETWORK_RX, stats.getNetworkRx());
+        accumulate(NETWORK_TX, stats.getNetworkTx());
+        memoryLimit = stats.getMemoryLimit();
+        samples++;
+        return completed;
+    }
+
+    /**
+     * Window averages as a plain sample, for binary sessions.
+     */
+    static ContainerStats averages(StatsSummary summary) {
+        return ContainerStats.builder()
+                .containerId(summary.getContainerId())
+                .cpuUsage(summary.getCpuUsage().getAvg())
+                .memoryUsage(Math.round(summary.getMemoryUsage().getAvg()))
+                .memoryLimit(summary.getMemoryLimit())
+                .memoryPercent(summary.getMemoryPercent().getAvg())
+                .networkRx(Math.round(summary.getNetworkRx().getLast()))
+                .networkTx(Math.round(summary.getNetworkTx().getLast()))
+                .build();
+    }
+
+    private void accumulate(int field, double value) {
+        if (samples == 0) {
+            min[field] = value;
+            max[field] = value;
+            sum[field] = value;
+        } else {
+            min[field] = Math.min(min[field], value);
+            max[field] = Math.max(max[field], value);
+            sum[field] += value;
+        }
+        last[field] = value;
+    }
+
+    private StatsSummary summary(String containerId) {
+        return StatsSummary.builder()
+                .containerId(containerId)
+                .timestamp(windowStart)
+                .interval(intervalMillis)
+                .samples(samples)
+                .cpuUsage(metric(CPU))
+                .memoryUsage(metric(MEMORY_USAGE))
+                .memoryLimit(memoryLimit)
+                .memoryPercent(metric(MEMORY_PERCENT))
+                .networkRx(metric(NETWORK_RX))
+                .networkTx(metric(NETWORK_TX))
+                .build();
+    }
+
+    private MetricSummary metric(int field) {
+        return MetricSummary.builder()
+                .min(min[field])
+                .max(max[field])
+                .avg(sum[field] / samples)
+                .last(last[field])
+                .build();
+    }
+}
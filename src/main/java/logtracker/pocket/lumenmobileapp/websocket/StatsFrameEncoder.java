@@ -0,0 +1,81 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary /stats frames for one session. Each frame starts with a version byte and a frame type,
+ * followed by LEB128 varints (zigzag-encoded except the keyframe timestamp and id length):
+ * <pre>
+ * keyframe: version, 0, timestamp, len, containerId (UTF-8), cpu, memUsage, memLimit, memPct, rx, tx
+ * delta:    version, 1, then the difference of timestamp and each value to the previous frame
+ * </pre>
+ * Timestamps are epoch milliseconds; cpu and memPct are hundredths of a percent. A keyframe is sent
+ * first and again every {@link #KEYFRAME_INTERVAL} frames. Not thread-safe; callers hold the session's send lock.
+ */
+final class StatsFrameEncoder {
+
+    static final int VERSION = 1;
+    static final String SUBPROTOCOL = "lumen.stats.v1";
+    static final int KEYFRAME = 0;
+    static final int DELTA = 1;
+    static final int KEYFRAME_INTERVAL = 60;
+
+    private static final int FIELDS = 7;
+    // Header, seven varints and the id length
+    private static final int MAX_FIXED_SIZE = 2 + (FIELDS + 1) * 10;
+
+    private final long[] previous = new long[FIELDS];
+    private final long[] current = new long[FIELDS];
+    private int sinceKeyframe = -1;
+
+    byte[] encode(long timestamp, ContainerStats stats) {
+        current[0] = timestamp;
+        current[1] = Math.round(stats.getCpuUsage() * 100);
+        current[2] = stats.getMemoryUsage();
+        current[3] = stats.getMemoryLimit();
+        current[4] = Math.round(stats.getMemoryPercent() * 100);
+        current[5] = stats.getNetworkRx();
+        current[6] = stats.getNetworkTx();
+
+        boolean keyframe = sinceKeyframe < 0 || sinceKeyframe >= KEYFRAME_INTERVAL - 1;
+        byte[] id = keyframe ? stats.getContainerId().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] buffer = new byte[MAX_FIXED_SIZE + (id != null ? id.length : 0)];
+        int position = 0;
+        buffer[position++] = VERSION;
+        buffer[position++] = (byte) (keyframe ? KEYFRAME : DELTA);
+
+        if (keyframe) {
+            position = writeVarint(buffer, position, current[0]);
+            position = writeVarint(buffer, position, id.length);
+            System.arraycopy(id, 0, buffer, position, id.length);
+            position += id.length;
+            for (int i = 1; i < FIELDS; i++) {
+                position = writeVarint(buffer, position, zigzag(current[i]));
+            }
+            sinceKeyframe = 0;
+        } else {
+            for (int i = 0; i < FIELDS; i++) {
+                position = writeVarint(buffer, position, zigzag(current[i] - previous[i]));
+            }
+            sinceKeyframe++;
+        }
+        System.arraycopy(current, 0, previous, 0, FIELDS);
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int writeVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+}
@@ -0,0 +1,104 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes {@link ContainerStats} as JSON with a long-lived Jackson generator over a reusable byte
+ * buffer, producing the same text as {@code ObjectMapper.writeValueAsString} without bean
+ * introspection or per-call buffers. Writers are pooled; one is used by one thread at a time.
+ */
+final class StatsJsonWriter {
+
+    // Same digits as Double.toString on this JDK, without its intermediate objects
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(StreamWriteFeature.USE_FAST_DOUBLE_WRITER)
+            .build();
+    private static final int POOL_SIZE = 16;
+    private static final BlockingQueue<StatsJsonWriter> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final Buffer buffer = new Buffer();
+    private final JsonGenerator generator;
+
+    private StatsJsonWriter() {
+        try {
+            generator = JSON_FACTORY.createGenerator(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // Samples are written back to back as root values; no separator between them
+        generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * Encodes a sample with a pooled writer.
+     */
+    static String write(ContainerStats stats) throws IOException {
+        StatsJsonWriter writer = POOL.poll();
+        if (writer == null) {
+            writer = new StatsJsonWriter();
+        }
+        try {
+            return writer.encode(stats);
+        } finally {
+            POOL.offer(writer);
+        }
+    }
+
+    private String encode(ContainerStats stats) throws IOException {
+        buffer.reset();
+        generator.writeStartObject();
+        generator.writeStringField("containerId", stats.getContainerId());
+        generator.writeNumberField("cpuUsage", stats.getCpuUsage());
+        generator.writeNumberField("memoryUsage", stats.getMemoryUsage());
+        generator.writeNumberField("memoryLimit", stats.getMemoryLimit());
+        generator.writeNumberField("memoryPercent", stats.getMemoryPercent());
+        generator.writeNumberField("networkRx", stats.getNetworkRx());
+        generator.writeNumberField("networkTx", stats.getNetworkTx());
+        generator.writeEndObject();
+        generator.flush();
+        return buffer.toUtf8String();
+    }
+
+    private static final class Buffer extends OutputStream {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        private void reset() {
+            length = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, bytes, length, len);
+            length += len;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private String toUtf8String() {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
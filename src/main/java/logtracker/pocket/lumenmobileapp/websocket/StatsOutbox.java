@@ -0,0 +1,198 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.model.StatsSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound queue of one /stats session. The collector's callback thread only folds the sample into the
+ * session's window and queues what is due; a sender on its own (virtual) thread encodes and writes it,
+ * so a slow client never holds up the other listeners of the container. When the client falls
+ * {@link #CAPACITY} messages behind the oldest are dropped. Binary frames are delta-encoded by the
+ * sender against the frame actually sent before, so dropping never breaks the delta chain.
+ */
+@Slf4j
+final class StatsOutbox {
+
+    static final int CAPACITY = 16;
+
+    /**
+     * A sample (with its shared JSON text, for JSON sessions) or a completed window.
+     */
+    private record Pending(long timestamp, ContainerStats stats, TextMessage json, StatsSummary window) {
+    }
+
+    private final WebSocketSession session;
+    private final ReentrantLock sendLock;
+    private final String userEmail;
+    // Null for JSON sessions; only used by the sender
+    private final StatsFrameEncoder encoder;
+    private final ObjectMapper objectMapper;
+    private final Executor senders;
+    private final Timer sendTimer;
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    // Null when every sample is sent
+    private StatsAggregator aggregator;
+    private long dropped;
+    private boolean sending;
+    private boolean closed;
+
+    StatsOutbox(WebSocketSession session, String userEmail, boolean binary, long intervalMillis, ObjectMapper objectMapper,
+                Executor senders, Timer sendTimer) {
+        this.session = session;
+        this.sendLock = SessionLocks.of(session);
+        this.userEmail = userEmail;
+        this.encoder = binary ? new StatsFrameEncoder() : null;
+        this.objectMapper = objectMapper;
+        this.senders = senders;
+        this.sendTimer = sendTimer;
+        this.aggregator = intervalMillis > 0 ? new StatsAggregator(intervalMillis) : null;
+    }
+
+    String userEmail() {
+        return userEmail;
+    }
+
+    boolean isBinary() {
+        return encoder != null;
+    }
+
+    boolean wantsEverySample() {
+        synchronized (this) {
+            return aggregator == null;
+        }
+    }
+
+    /**
+     * Switches to a new interval (0 for every sample); the current partial window is discarded.
+     */
+    synchronized void setInterval(long intervalMillis) {
+        aggregator = intervalMillis > 0 ? new StatsAggregator(intervalMillis) : null;
+    }
+
+    /**
+     * Takes a sample on the publishing thread. {@code json} is the sample's shared JSON text, null for binary
+     * sessions; {@code stats} is not kept beyond the call.
+     */
+    synchronized void offer(long timestamp, ContainerStats stats, TextMessage json) {
+        if (closed) {
+            return;
+        }
+        Pending pending;
+        if (aggregator != null) {
+            StatsSummary window = aggregator.add(timestamp, stats);
+            if (window == null) {
+                return;
+            }
+            pending = new Pending(timestamp, null, null, window);
+        } else if (encoder != null) {
+            pending = new Pending(timestamp, copy(stats), null, null);
+        } else {
+            pending = new Pending(timestamp, null, json, null);
+        }
+        if (queue.size() >= CAPACITY) {
+            queue.pollFirst();
+            if (dropped++ == 0) {
+                log.warn("Stats session {} is falling behind, dropping the oldest messages", session.getId());
+            }
+        }
+        queue.addLast(pending);
+        if (!sending) {
+            sending = true;
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                sending = false;
+            }
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    private void drain() {
+        sendLock.lock();
+        try {
+            while (true) {
+                Pending pending;
+                synchronized (this) {
+                    pending = closed ? null : queue.pollFirst();
+                    if (pending == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    if (!session.isOpen()) {
+                        close();
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    session.sendMessage(encode(pending));
+                    sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                } catch (IOException e) {
+                    log.error("Error sending stats to session {}: {}", session.getId(), e.getMessage());
+                    close();
+                    return;
+                } catch (Exception e) {
+                    log.error("Error encoding stats for session {}, closing it: {}", session.getId(), e.getMessage());
+                    close();
+                    closeSession();
+                    return;
+                }
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private WebSocketMessage<?> encode(Pending pending) throws IOException {
+        if (pending.window() != null) {
+            StatsSummary window = pending.window();
+            return encoder != null
+                    ? new BinaryMessage(encoder.encode(window.getTimestamp(), StatsAggregator.averages(window)))
+                    : new TextMessage(objectMapper.writeValueAsString(window));
+        }
+        if (encoder != null) {
+            return new BinaryMessage(encoder.encode(pending.timestamp(), pending.stats()));
+        }
+        return pending.json();
+    }
+
+    private void closeSession() {
+        try {
+            session.close(CloseStatus.SERVER_ERROR);
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    private static ContainerStats copy(ContainerStats stats) {
+        return ContainerStats.builder()
+                .containerId(stats.getContainerId())
+                .cpuUsage(stats.getCpuUsage())
+                .memoryUsage(stats.getMemoryUsage())
+                .memoryLimit(stats.getMemoryLimit())
+                .memoryPercent(stats.getMemoryPercent())
+                .networkRx(stats.getNetworkRx())
+                .networkTx(stats.getNetworkTx())
+                .build();
+    }
+}
@@ -0,0 +1,142 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.service.AlertService;
+import logtracker.pocket.lumenmobileapp.service.ContainerStatsListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fans the samples of the shared stats collector out to all /stats sessions watching a container.
+ * Every sample is serialized to JSON once, with a pooled {@link StatsJsonWriter}, and shared by the JSON
+ * subscribers; binary subscribers get a compact frame delta-encoded against the previous one they received.
+ * Sessions with an interval get one message per window instead, with min/max/avg/last of the
+ * samples in it (binary sessions get the window averages as a regular frame).
+ * Each session has its own {@link StatsOutbox}, so the collector's callback thread, which also feeds
+ * alerting, storage and the dashboards, never writes to a socket.
+ * Subscriptions are reference-counted and dropped when the last session leaves.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatsStreamHub implements ContainerStatsListener {
+
+    private final AlertService alertService;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private ExecutorService senders;
+    private Timer sendTimer;
+
+    @PostConstruct
+    public void init() {
+        sendTimer = Timer.builder("lumen.websocket.send")
+                .description("Websocket message sends; the count is the number of messages sent")
+                .tag("endpoint", "stats")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stats-sender-", 0).factory());
+    }
+
+    /**
+     * @param intervalMillis window length, or 0 to receive every sample
+     */
+    public void subscribe(String containerId, String containerName, WebSocketSession session, String userEmail,
+                          boolean binary, long intervalMillis) {
+        subscriptions.compute(containerId, (id, existing) -> {
+            Subscription subscription = existing != null ? existing : new Subscription(containerName);
+            subscription.sessions.put(session.getId(),
+                    new StatsOutbox(session, userEmail, binary, intervalMillis, objectMapper, senders, sendTimer));
+            alertService.setWatcherEmail(id, subscription.overrideEmail());
+            log.info("Session {} joined stats stream for {} ({} subscribers)", session.getId(), subscription.containerName, subscription.sessions.size());
+            return subscription;
+        });
+    }
+
+    public void unsubscribe(String containerId, String sessionId) {
+        subscriptions.computeIfPresent(containerId, (id, subscription) -> {
+            StatsOutbox outbox = subscription.sessions.remove(sessionId);
+            if (outbox != null) {
+                outbox.close();
+            }
+            alertService.setWatcherEmail(id, subscription.overrideEmail());
+            if (subscription.sessions.isEmpty()) {
+                log.info("Last subscriber left stats stream for container: {}", subscription.containerName);
+                return null;
+            }
+            return subscription;
+        });
+    }
+
+    /**
+     * Switches a session to a new interval (0 for every sample). The current partial window is discarded.
+     */
+    public boolean setInterval(String containerId, String sessionId, long intervalMillis) {
+        Subscription subscription = subscriptions.get(containerId);
+        StatsOutbox outbox = subscription != null ? subscription.sessions.get(sessionId) : null;
+        if (outbox == null) {
+            return false;
+        }
+        outbox.setInterval(intervalMillis);
+        log.info("Session {} switched stats interval to {} ms", sessionId, intervalMillis);
+        return true;
+    }
+
+    @Override
+    public void onStats(String containerName, ContainerStats stats) {
+        Subscription subscription = subscriptions.get(stats.getContainerId());
+        if (subscription == null || subscription.sessions.isEmpty()) {
+            return;
+        }
+
+        long timestamp = System.currentTimeMillis();
+        TextMessage json = null;
+        for (StatsOutbox outbox : subscription.sessions.values()) {
+            try {
+                if (json == null && !outbox.isBinary() && outbox.wantsEverySample()) {
+                    json = new TextMessage(StatsJsonWriter.write(stats));
+                }
+                outbox.offer(timestamp, stats, json);
+            } catch (Exception e) {
+                // Only this subscriber is affected; the others still get the sample
+                log.error("Error processing stats for {}: {}", subscription.containerName, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+
+    private static class Subscription {
+        private final String containerName;
+        private final Map<String, StatsOutbox> sessions = new ConcurrentHashMap<>();
+
+        private Subscription(String containerName) {
+            this.containerName = containerName;
+        }
+
+        private String overrideEmail() {
+            for (StatsOutbox outbox : sessions.values()) {
+                if (outbox.userEmail() != null && !outbox.userEmail().isEmpty()) {
+                    return outbox.userEmail();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -1,34 +1,65 @@
 package logtracker.pocket.lumenmobileapp.websocket;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.async.ResultCallback;
-import com.github.dockerjava.api.model.Statistics;
-import logtracker.pocket.lumenmobileapp.model.ContainerStats;
-import logtracker.pocket.lumenmobileapp.service.AlertService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.service.DockerHostRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.Closeable;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * /stats sessions send JSON text frames by default. Clients that negotiate the
+ * {@value StatsFrameEncoder#SUBPROTOCOL} subprotocol or pass {@code format=binary} get
+ * compact binary frames instead (see {@link StatsFrameEncoder}).
+ * With {@code interval} (e.g. {@code 10s}) samples are aggregated per window (see {@link StatsAggregator});
+ * clients change it mid-session by sending {@code {"interval":"1m"}} ({@code 0} for every sample).
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class StatsWebSocketHandler extends TextWebSocketHandler {
+public class StatsWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
+
+    private static final Duration MIN_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration MAX_INTERVAL = Duration.ofHours(1);
 
-    private final DockerClient dockerClient;
-    private final AlertService alertService;
+    private final DockerHostRegistry dockerHostRegistry;
+    private final StatsStreamHub statsStreamHub;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final Map<String, Closeable> watchRequests = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Map<String, String> sessionContainers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("lumen.websocket.sessions", sessionContainers, Map::size)
+                .description("Open websocket sessions")
+                .tag("endpoint", "stats")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(StatsFrameEncoder.SUBPROTOCOL);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -40,6 +71,17 @@ public class StatsWebSocketHandler extends TextWebSocketHandler {
                     .toSingleValueMap();
             containerId = queryParams.get("containerId");
             String userEmail = queryParams.get("email");
+            boolean binary = "binary".equalsIgnoreCase(queryParams.get("format"))
+                    || StatsFrameEncoder.SUBPROTOCOL.equals(session.getAcceptedProtocol());
+            long intervalMillis;
+            try {
+                intervalMillis = parseInterval(queryParams.get("interval"));
+            } catch (IllegalArgumentException e) {
+                log.warn("{} (Session: {})", e.getMessage(), session.getId());
+                session.sendMessage(error(e.getMessage()));
+                session.close(CloseStatus.BAD_DATA);
+                return;
+            }
 
             if (containerId == null || containerId.isEmpty()) {
                 log.warn("Stats connection attempt without containerId (Session: {})", session.getId());
@@ -47,91 +89,23 @@ public class StatsWebSocketHandler extends TextWebSocketHandler {
                 return;
             }
 
-            log.info("Starting stats stream for container: {} (Session: {}, Email: {})", containerId, session.getId(), userEmail);
+            log.info("Starting {} stats stream for container: {} (Session: {}, Email: {})", binary ? "binary" : "JSON", containerId, session.getId(), userEmail);
 
-            final String finalContainerId = containerId;
-            String containerName;
-            try {
-                containerName = dockerClient.inspectContainerCmd(containerId).exec().getName().replaceFirst("/", "");
-                log.info("Found container name '{}' for ID: {}", containerName, containerId);
-            } catch (Exception e) {
-                log.error("Failed to inspect container {}: {}. Connection closing.", containerId, e.getMessage());
+            // Samples from the collector are keyed by the full container id
+            Optional<ContainerInfo> container = dockerHostRegistry.resolve(containerId);
+            if (container.isEmpty()) {
+                log.error("Container {} not found. Connection closing.", containerId);
                 if (session.isOpen()) {
-                    session.sendMessage(new TextMessage("{\"error\": \"Container not found: " + containerId + "\"}"));
+                    session.sendMessage(error("Container not found: " + containerId));
                     session.close(CloseStatus.BAD_DATA);
                 }
                 return;
             }
+            containerId = container.get().getId();
+            String containerName = container.get().getName();
 
-            final String finalContainerName = containerName;
-            dockerClient.statsCmd(containerId).exec(new ResultCallback<Statistics>() {
-                private Closeable closeable;
-
-                @Override
-                public void onStart(Closeable closeable) {
-                    this.closeable = closeable;
-                    watchRequests.put(session.getId(), closeable);
-                    log.info("Stats stream STARTED for container: {}", finalContainerName);
-                }
-
-                @Override
-                public void onNext(Statistics stats) {
-                    if (!session.isOpen()) {
-                        closeQuietly();
-                        return;
-                    }
-
-                    try {
-                        ContainerStats containerStats = mapToContainerStats(finalContainerId, stats);
-                        
-                        // Check for alerts
-                        alertService.checkStats(finalContainerId, finalContainerName, containerStats.getCpuUsage(), userEmail);
-
-                        synchronized (session) {
-                            if (session.isOpen()) {
-                                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(containerStats)));
-                            }
-                        }
-                    } catch (Exception e) {
-                        log.error("Error processing stats for {}: {}", finalContainerName, e.getMessage());
-                    }
-                }
-
-                @Override
-                public void onError(Throwable throwable) {
-                    log.error("CRITICAL error streaming stats for container {}: {}", finalContainerName, throwable.getMessage());
-                    closeQuietly();
-                    try {
-                        if (session.isOpen()) {
-                            session.close(CloseStatus.SERVER_ERROR);
-                        }
-                    } catch (IOException e) {
-                        // ignore
-                    }
-                }
-
-                @Override
-                public void onComplete() {
-                    log.info("Stats stream completed for container: {}", finalContainerName);
-                    closeQuietly();
-                }
-
-                @Override
-                public void close() throws IOException {
-                    closeQuietly();
-                }
-
-                private void closeQuietly() {
-                    if (closeable != null) {
-                        try {
-                            closeable.close();
-                        } catch (IOException e) {
-                            // ignore
-                        }
-                    }
-                    watchRequests.remove(session.getId());
-                }
-            });
+            sessionContainers.put(session.getId(), containerId);
+            statsStreamHub.subscribe(containerId, containerName, session, userEmail, binary, intervalMillis);
         } catch (Exception e) {
             log.error("Unexpected error in afterConnectionEstablished: {}", e.getMessage(), e);
             if (session.isOpen()) {
@@ -140,53 +114,71 @@ public class StatsWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private ContainerStats mapToContainerStats(String containerId, Statistics stats) {
-        double cpuUsage = 0.0;
-        if (stats.getCpuStats() != null && stats.getPreCpuStats() != null &&
-            stats.getCpuStats().getCpuUsage() != null && stats.getPreCpuStats().getCpuUsage() != null &&
-            stats.getCpuStats().getSystemCpuUsage() != null && stats.getPreCpuStats().getSystemCpuUsage() != null) {
-            
-            long cpuDelta = stats.getCpuStats().getCpuUsage().getTotalUsage() - stats.getPreCpuStats().getCpuUsage().getTotalUsage();
-            long systemDelta = stats.getCpuStats().getSystemCpuUsage() - stats.getPreCpuStats().getSystemCpuUsage();
-            Long onlineCpus = stats.getCpuStats().getOnlineCpus();
-            if (onlineCpus == null) {
-                onlineCpus = stats.getCpuStats().getCpuUsage().getPercpuUsage() != null ? (long) stats.getCpuStats().getCpuUsage().getPercpuUsage().size() : 1L;
-            }
-            if (systemDelta > 0 && cpuDelta > 0) {
-                cpuUsage = ((double) cpuDelta / systemDelta) * onlineCpus * 100.0;
+    /**
+     * Control messages: {@code {"interval":"10s"}}.
+     */
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        String containerId = sessionContainers.get(session.getId());
+        if (containerId == null) {
+            return;
+        }
+        String error;
+        try {
+            JsonNode control = objectMapper.readTree(message.getPayload());
+            JsonNode interval = control.get("interval");
+            if (interval == null || interval.isNull()) {
+                error = "Unknown control message";
+            } else {
+                statsStreamHub.setInterval(containerId, session.getId(), parseInterval(interval.asText()));
+                return;
             }
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        } catch (JsonProcessingException e) {
+            error = "Invalid control message";
         }
-
-        long memUsage = stats.getMemoryStats() != null ? stats.getMemoryStats().getUsage() : 0L;
-        long memLimit = stats.getMemoryStats() != null ? stats.getMemoryStats().getLimit() : 0L;
-        double memPercent = memLimit > 0 ? ((double) memUsage / memLimit) * 100.0 : 0.0;
-
-        long rx = 0;
-        long tx = 0;
-        if (stats.getNetworks() != null) {
-            for (Map.Entry<String, com.github.dockerjava.api.model.StatisticNetworksConfig> entry : stats.getNetworks().entrySet()) {
-                rx += entry.getValue().getRxBytes();
-                tx += entry.getValue().getTxBytes();
+        // Shares the outbox's send lock, so the reply never interleaves with a stats frame
+        ReentrantLock sendLock = SessionLocks.of(session);
+        sendLock.lock();
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(error(error));
             }
+        } finally {
+            sendLock.unlock();
         }
-
-        return ContainerStats.builder()
-                .containerId(containerId)
-                .cpuUsage(cpuUsage)
-                .memoryUsage(memUsage)
-                .memoryLimit(memLimit)
-                .memoryPercent(memPercent)
-                .networkRx(rx)
-                .networkTx(tx)
-                .build();
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
         log.info("Closing stats stream for session: {} (Status: {})", session.getId(), status);
-        Closeable watchRequest = watchRequests.remove(session.getId());
-        if (watchRequest != null) {
-            watchRequest.close();
+        String containerId = sessionContainers.remove(session.getId());
+        if (containerId != null) {
+            statsStreamHub.unsubscribe(containerId, session.getId());
+        }
+    }
+
+    /**
+     * Milliseconds of an interval like {@code 10s} or {@code 1m}; 0 (or none) means every sample.
+     */
+    static long parseInterval(String value) {
+        if (value == null || value.isEmpty() || value.equals("0")) {
+            return 0;
         }
+        long millis;
+        try {
+            millis = DurationStyle.detectAndParse(value).toMillis();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid interval: " + value);
+        }
+        if (millis != 0 && (millis < MIN_INTERVAL.toMillis() || millis > MAX_INTERVAL.toMillis())) {
+            throw new IllegalArgumentException("Interval must be between 1s and 1h: " + value);
+        }
+        return millis;
+    }
+
+    private TextMessage error(String message) throws IOException {
+        return new TextMessage(objectMapper.writeValueAsString(Map.of("error", message)));
     }
 }
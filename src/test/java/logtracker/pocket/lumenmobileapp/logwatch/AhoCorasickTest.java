@@ -0,0 +1,90 @@
+package logtracker.pocket.lumenmobileapp.logwatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AhoCorasickTest {
+
+    @Test
+    void findsOverlappingAndNestedPatternsInOnePass() {
+        List<String> patterns = List.of("he", "she", "his", "hers");
+
+        assertThat(found(patterns, false, "ushers")).containsExactly("he", "she", "hers");
+        assertThat(found(patterns, false, "this")).containsExactly("his");
+        assertThat(found(patterns, false, "hi there")).containsExactly("he");
+        assertThat(found(patterns, false, "nothing")).isEmpty();
+    }
+
+    @Test
+    void followsFailureLinksAfterAPartialMatch() {
+        List<String> patterns = List.of("abcd", "bce", "aab");
+
+        assertThat(found(patterns, false, "abce")).containsExactly("bce");
+        assertThat(found(patterns, false, "aaabcd")).containsExactly("abcd", "aab");
+    }
+
+    @Test
+    void matchesCaseSensitivelyUnlessFolding() {
+        List<String> patterns = List.of("OutOfMemoryError", "timeout", "a[1]");
+
+        assertThat(found(patterns, false, "java.lang.OUTOFMEMORYERROR after TIMEOUT, A[1]")).isEmpty();
+        assertThat(found(patterns, false, "java.lang.OutOfMemoryError after timeout, a[1]"))
+                .containsExactly("OutOfMemoryError", "timeout", "a[1]");
+        assertThat(found(patterns, true, "java.lang.OUTOFMEMORYERROR after TimeOut, A[1]"))
+                .containsExactly("OutOfMemoryError", "timeout", "a[1]");
+        assertThat(found(patterns, true, "a{1]")).isEmpty();
+    }
+
+    @Test
+    void foldsTheNonAsciiCharactersTheRegexFoldsOntoAsciiLetters() {
+        List<String> patterns = List.of("kill", "sigsegv");
+        Pattern regex = Pattern.compile("kill|sigsegv", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+        // Kelvin sign, dotless i, dotted capital I and long s
+        for (String line : List.of("Kill", "kıll", "KİLL", "ſigsegv", "SIGſEGV")) {
+            assertThat(regex.matcher(line).find()).as(line).isTrue();
+            assertThat(found(patterns, true, line)).as(line).hasSize(1);
+            assertThat(found(patterns, false, line)).as(line).isEmpty();
+        }
+        // Other non-ASCII characters never match and reset the automaton
+        assertThat(found(patterns, true, "kiéll sigßegv")).isEmpty();
+        assertThat(found(patterns, true, "kékill")).containsExactly("kill");
+    }
+
+    @Test
+    void recordsHitsByStampSoTheArrayIsNeverCleared() {
+        AhoCorasick automaton = new AhoCorasick(List.of("alpha", "beta"), false);
+        int[] hits = new int[automaton.patternCount()];
+
+        assertThat(automaton.scan("alpha", hits, 1)).isTrue();
+        assertThat(automaton.scan("beta", hits, 2)).isTrue();
+        assertThat(hits).containsExactly(1, 2);
+        assertThat(automaton.scan("gamma", hits, 3)).isFalse();
+        assertThat(hits).containsExactly(1, 2);
+    }
+
+    @Test
+    void rejectsNonAsciiPatterns() {
+        assertThatThrownBy(() -> new AhoCorasick(List.of("café"), true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> found(List<String> patterns, boolean ignoreCase, String text) {
+        AhoCorasick automaton = new AhoCorasick(patterns, ignoreCase);
+        int[] hits = new int[automaton.patternCount()];
+        automaton.scan(text, hits, 1);
+        List<String> found = new ArrayList<>();
+        for (int id = 0; id < hits.length; id++) {
+            if (hits[id] == 1) {
+                found.add(patterns.get(id));
+            }
+        }
+        return found;
+    }
+}
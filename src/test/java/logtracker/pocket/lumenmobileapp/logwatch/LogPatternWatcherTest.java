@@ -0,0 +1,87 @@
+package logtracker.pocket.lumenmobileapp.logwatch;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogPatternWatcherTest {
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiterString = "=>", value = {
+            // Plain runs, anchors and wildcards
+            "OutOfMemoryError                     => OutOfMemoryError",
+            "^ERROR .* timed out$                 => ' timed out'",
+            "conn.*refused                        => refused",
+            // Nested alternation only costs its group
+            "(GET|POST) /api/orders failed        => ' /api/orders failed'",
+            "status=(4|5)\\d\\d                    => status=",
+            // Optional groups and optional characters
+            "(worker-\\d+ )?crashed unexpectedly  => crashed unexpectedly",
+            "colou?r mismatch                     => r mismatch",
+            "retrying\\.?                         => retrying",
+            // Quantifiers: one or more keeps the character, zero or more and bounds drop it
+            "abc+de                               => abc",
+            "xyz+?ghi                             => xyz",
+            "timeouts* after                      => timeout",
+            "a{2,3}bcde                           => bcde",
+            "deadlock x{0}detected                => 'deadlock '",
+            // Escapes of metacharacters are text, class escapes and escape arguments are not
+            "disk \\(sda\\) full                  => disk (sda) full",
+            "path C:\\\\temp                       => path C:\\temp",
+            "took \\d+ms in handler               => ms in handler",
+            "\\x41bcd panic                        => bcd panic",
+            "\\u0041bcd oops                       => bcd oops",
+            "\\p{Alpha}+ exited with code         => ' exited with code'",
+            // Character classes, also inside groups
+            "level=[EW][A-Z]+ code                => level=",
+            "([)]abcdef)?xyz                      => xyz",
+            "[\\]]closing bracket                 => closing bracket",
+            // Quotes are plain text; a trailing quantifier only covers their last character
+            "\\Qa.b*c(d)\\E                       => a.b*c(d)",
+            "\\Q[x]\\E yz                         => [x] yz",
+            "\\Qdone!\\E?                         => done",
+            "(\\Q)\\Eabcdef)?xyz                  => xyz",
+            "\\Qunterminated quote                => unterminated quote",
+    })
+    void derivesTheLongestRequiredLiteral(String regex, String expected) {
+        assertThat(LogPatternWatcher.derivePrefilter(regex)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "ERROR|FATAL",
+            "(?i)error occurred",
+            "(?<code>\\d+) failed",
+            "ab",
+            "[a-z]+\\d*",
+            "(optional stuff)?",
+            "\\w+\\s\\d+"
+    })
+    void derivesNothingWithoutASafeLiteral(String regex) {
+        assertThat(LogPatternWatcher.derivePrefilter(regex)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "(GET|POST) /api/orders failed",
+            "(worker-\\d+ )?crashed unexpectedly",
+            "\\Qa.b*c(d)\\E",
+            "([)]abcdef)?xyz",
+            "(\\Q)\\Eabcdef)?xyz",
+            "\\Qdone!\\E?",
+            "\\x41bcd panic"
+    })
+    void derivedPrefilterIsInEveryMatch(String regex) {
+        String prefilter = LogPatternWatcher.derivePrefilter(regex);
+        for (String line : new String[]{"GET /api/orders failed", "crashed unexpectedly", "a.b*c(d)", "xyz", ")abcdefxyz",
+                "done", "done!", "Abcd panic"}) {
+            if (Pattern.compile(regex).matcher(line).find()) {
+                assertThat(line).as("line matching %s", regex).contains(prefilter);
+            }
+        }
+    }
+}
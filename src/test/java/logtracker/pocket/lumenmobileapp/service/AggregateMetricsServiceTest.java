@@ -0,0 +1,87 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import logtracker.pocket.lumenmobileapp.model.AggregateMetrics;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AggregateMetricsServiceTest {
+
+    private final DockerHostRegistry registry = mock(DockerHostRegistry.class);
+    private AggregateMetricsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AggregateMetricsService(registry);
+        ReflectionTestUtils.setField(service, "labels", List.of());
+        service.init();
+    }
+
+    @Test
+    void sumsTheLatestSampleOfEveryMember() {
+        when(registry.resolve("a")).thenReturn(Optional.of(container("a", "shop")));
+        when(registry.resolve("b")).thenReturn(Optional.of(container("b", "shop")));
+
+        service.onStats("a", stats("a", 10));
+        service.onStats("b", stats("b", 5));
+        service.onStats("a", stats("a", 20));
+
+        assertThat(service.get(AggregateMetricsService.PROJECT)).singleElement().satisfies(group -> {
+            assertThat(group.getContainers()).isEqualTo(2);
+            assertThat(group.getCpuUsage()).isEqualTo(25);
+        });
+
+        service.onContainerStopped("a");
+        assertThat(service.get(AggregateMetricsService.PROJECT)).extracting(AggregateMetrics::getCpuUsage).containsExactly(5.0);
+    }
+
+    @Test
+    void aContainerStoppedWhileBeingResolvedDoesNotJoin() {
+        when(registry.resolve("a")).thenAnswer(invocation -> {
+            // The events thread reports the stop while the stats thread is still looking the container up
+            service.onContainerStopped("a");
+            return Optional.of(container("a", "shop"));
+        });
+
+        service.onStats("a", stats("a", 10));
+
+        assertThat(service.get(AggregateMetricsService.PROJECT)).isEmpty();
+    }
+
+    @Test
+    void aRestartedContainerJoinsAgainAfterItsStop() {
+        when(registry.resolve("a")).thenReturn(Optional.of(container("a", "shop")));
+        service.onStats("a", stats("a", 10));
+        service.onContainerStopped("a");
+
+        service.onStats("a", stats("a", 7));
+
+        assertThat(service.get(AggregateMetricsService.PROJECT)).extracting(AggregateMetrics::getCpuUsage).containsExactly(7.0);
+        // Tombstones outlive one recompute, then go
+        service.recompute();
+        service.recompute();
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(service, "stops")).isEmpty();
+    }
+
+    private static ContainerInfo container(String id, String project) {
+        return ContainerInfo.builder()
+                .id(id)
+                .image("app:1")
+                .labels(Map.of("com.docker.compose.project", project))
+                .build();
+    }
+
+    private static ContainerStats stats(String id, double cpu) {
+        return ContainerStats.builder().containerId(id).cpuUsage(cpu).build();
+    }
+}
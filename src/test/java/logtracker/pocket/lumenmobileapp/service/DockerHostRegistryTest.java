@@ -0,0 +1,181 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.model.Image;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import logtracker.pocket.lumenmobileapp.config.DockerHostProperties;
+import logtracker.pocket.lumenmobileapp.model.ContainerInfo;
+import logtracker.pocket.lumenmobileapp.model.HostResource;
+import logtracker.pocket.lumenmobileapp.transport.DockerTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * {@link DockerHostRegistry} against stub daemons on JDK HTTP servers: one local, one answering, one
+ * answering too late and one failing.
+ */
+class DockerHostRegistryTest {
+
+    private static final String LOCAL_ID = "a".repeat(64);
+    private static final String REMOTE_ID = "b".repeat(64);
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final AtomicInteger remoteInspects = new AtomicInteger();
+    private DockerHostRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String local = stub(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/containers/json")) {
+                respond(exchange, 200, containerList(LOCAL_ID, "db"));
+            } else if (path.endsWith("/images/json")) {
+                respond(exchange, 200, "[{\"Id\":\"sha256:local\",\"RepoTags\":[\"postgres:16\"]}]");
+            } else {
+                respond(exchange, 404, "{\"message\":\"No such container\"}");
+            }
+        });
+        String fast = stub(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/containers/json")) {
+                respond(exchange, 200, containerList(REMOTE_ID, "web"));
+            } else if (path.endsWith("/images/json")) {
+                respond(exchange, 200, "[{\"Id\":\"sha256:fast\",\"RepoTags\":[\"nginx:1\"]}]");
+            } else if (path.endsWith("/web/json")) {
+                remoteInspects.incrementAndGet();
+                respond(exchange, 200, "{\"Id\":\"" + REMOTE_ID + "\",\"Name\":\"/web\",\"State\":{\"Status\":\"running\"},\"Config\":{\"Image\":\"nginx:1\"}}");
+            } else {
+                respond(exchange, 404, "{\"message\":\"No such container\"}");
+            }
+        });
+        String slow = stub(exchange -> {
+            try {
+                Thread.sleep(3000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "[]");
+        });
+        String broken = stub(exchange -> respond(exchange, 500, "{\"message\":\"daemon is broken\"}"));
+
+        DockerHostProperties properties = new DockerHostProperties();
+        properties.setTimeout(Duration.ofMillis(500));
+        properties.setHosts(List.of(host("fast", fast), host("slow", slow), host("broken", broken)));
+        DockerTransport transport = new DockerTransport(properties, new SimpleMeterRegistry());
+        DockerClient localClient = transport.requestClient(properties.getLocalName(), local);
+
+        ContainerInventory inventory = new ContainerInventory(localClient);
+        ReflectionTestUtils.setField(inventory, "hostName", properties.getLocalName());
+        inventory.init();
+
+        registry = new DockerHostRegistry(localClient, inventory, properties, transport);
+        ReflectionTestUtils.setField(registry, "dockerHost", local);
+        registry.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void listsContainersOfTheHostsThatAnswerInTime() {
+        long start = System.nanoTime();
+        DockerHostRegistry.Gathered<ContainerInfo> result = registry.listContainers();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(result.items()).extracting(ContainerInfo::getName, ContainerInfo::getHost)
+                .containsExactly(tuple("db", "local"), tuple("web", "fast"));
+        assertThat(result.failures()).containsOnlyKeys("slow", "broken");
+        assertThat(result.failures().get("slow")).isEqualTo("No answer within 500 ms");
+        assertThat(result.failures().get("broken")).contains("daemon is broken");
+        // The slow host costs the timeout, not its full response time
+        assertThat(elapsedMillis).isLessThan(2000);
+    }
+
+    @Test
+    void tagsGatheredItemsWithTheirHost() {
+        DockerHostRegistry.Gathered<HostResource<Image>> result = registry.gather(client -> client.listImagesCmd().exec());
+
+        assertThat(result.items()).extracting(HostResource::getHost).containsExactly("local", "fast");
+        assertThat(result.items()).extracting(item -> item.getResource().getId()).containsExactly("sha256:local", "sha256:fast");
+        assertThat(result.failures()).containsOnlyKeys("slow", "broken");
+    }
+
+    @Test
+    void locatesRemoteContainersOnceAndRemembersThem() {
+        Optional<ContainerInfo> first = registry.resolve("web");
+        Optional<ContainerInfo> second = registry.resolve("web");
+
+        assertThat(first).map(ContainerInfo::getId).contains(REMOTE_ID);
+        assertThat(first).map(ContainerInfo::getHost).contains("fast");
+        assertThat(second).map(ContainerInfo::getId).contains(REMOTE_ID);
+        assertThat(remoteInspects).hasValue(1);
+        assertThat(registry.clientFor("web")).isSameAs(registry.getClient("fast"));
+    }
+
+    @Test
+    void resolvesLocalContainersFromTheInventory() {
+        assertThat(registry.resolve("db")).map(ContainerInfo::getHost).contains("local");
+        assertThat(registry.resolve(LOCAL_ID.substring(0, 12))).map(ContainerInfo::getName).contains("db");
+        assertThat(registry.resolve("missing")).isEmpty();
+    }
+
+    private String stub(Handler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                handler.handle(exchange);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        servers.add(server);
+        return "tcp://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String containerList(String id, String name) {
+        return "[{\"Id\":\"" + id + "\",\"Names\":[\"/" + name + "\"],\"Image\":\"img\",\"State\":\"running\","
+                + "\"Status\":\"Up 1 minute\",\"Created\":1700000000,\"Labels\":{}}]";
+    }
+
+    private static DockerHostProperties.Host host(String name, String url) {
+        DockerHostProperties.Host host = new DockerHostProperties.Host();
+        host.setName(name);
+        host.setUrl(url);
+        return host;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
@@ -0,0 +1,153 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class LogFrameParserTest {
+
+    private static final String TS = "2026-01-25T12:30:01.123456789Z";
+    private static final long TS_MILLIS = 1_769_344_201_123L;
+
+    private final LogFrameParser parser = new LogFrameParser();
+    private final List<LogMessage> messages = new ArrayList<>();
+
+    @Test
+    void splitsSeveralLinesInOneFrame() {
+        parse(StreamType.STDOUT, TS + " first\n2026-01-25T12:30:02Z second\r\n" + TS + " \n");
+
+        assertThat(messages).extracting(LogMessage::getTimestamp, LogMessage::getLine, LogMessage::getStream)
+                .containsExactly(
+                        tuple(TS, "first", "stdout"),
+                        tuple("2026-01-25T12:30:02Z", "second", "stdout"),
+                        tuple(TS, "", "stdout"));
+        assertThat(messages).extracting(LogMessage::getTimestampMillis)
+                .containsExactly(TS_MILLIS, 1_769_344_202_000L, TS_MILLIS);
+    }
+
+    @Test
+    void decodesAUtf8SequenceSplitAcrossFrames() {
+        byte[] line = "prix: 12 € — ok".getBytes(StandardCharsets.UTF_8);
+        int euro = indexOf(line, (byte) 0xE2);
+        // Docker repeats the timestamp on the frame that continues the line
+        parse(StreamType.STDOUT, concat(ascii(TS + " "), Arrays.copyOfRange(line, 0, euro + 1)));
+        parse(StreamType.STDOUT, concat(ascii(TS + " "), Arrays.copyOfRange(line, euro + 1, line.length), ascii("\n")));
+
+        assertThat(messages).extracting(LogMessage::getTimestamp, LogMessage::getLine)
+                .containsExactly(tuple(TS, "prix: 12 € — ok"));
+    }
+
+    @Test
+    void carriesPartialLinesOverPerStream() {
+        parse(StreamType.STDOUT, TS + " out starts");
+        parse(StreamType.STDERR, "2026-01-25T12:30:02Z err line\n2026-01-25T12:30:03Z err pending");
+        parse(StreamType.STDOUT, "2026-01-25T12:30:04Z  and ends\n");
+
+        assertThat(messages).extracting(LogMessage::getStream, LogMessage::getLine, LogMessage::getTimestamp)
+                .containsExactly(
+                        tuple("stderr", "err line", "2026-01-25T12:30:02Z"),
+                        tuple("stdout", "out starts and ends", TS));
+
+        parser.flush(messages::add);
+        assertThat(messages).last().extracting(LogMessage::getStream, LogMessage::getLine, LogMessage::getTimestamp)
+                .containsExactly("stderr", "err pending", "2026-01-25T12:30:03Z");
+    }
+
+    @Test
+    void stampsLinesWithoutATimestampWithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        parse(StreamType.STDOUT, "no timestamp here\n");
+
+        assertThat(messages).singleElement().satisfies(message -> {
+            assertThat(message.getLine()).isEqualTo("no timestamp here");
+            assertThat(message.getTimestampMillis()).isBetween(before, System.currentTimeMillis());
+        });
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "2026-01-25T12:30:01Z",
+            "2026-01-25t12:30:01z",
+            "2026-01-25T12:30:01.5Z",
+            "2026-01-25T12:30:01.123456789Z",
+            "2026-01-25T14:30:01.123456789+02:00",
+            "2026-01-25T07:00:01.987654321-05:30",
+            "2026-01-25T00:30:01.000000001+00:00",
+            "2024-02-29T23:59:59.999999999-12:00",
+            "2000-03-01T00:00:00.000Z"
+    })
+    void parsesRfc3339NanoTimestampsWithOffsets(String timestamp) {
+        long expected = OffsetDateTime.parse(timestamp.toUpperCase()).toInstant().toEpochMilli();
+
+        assertThat(LogFrameParser.toEpochMillis(timestamp)).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "2026-01-25", "2026-01-25 12:30:01Z", "2026-01-25T12:30:01", "2026-13-25T12:30:01Z",
+            "2026-01-25T12:30:01.Z", "2026-01-25T12:30:01+0200", "2026-01-25T1a:30:01Z"})
+    void rejectsMalformedTimestamps(String timestamp) {
+        assertThat(LogFrameParser.toEpochMillis(timestamp)).isEqualTo(-1);
+    }
+
+    @Test
+    void cutsAnOverLongLineBetweenCharacters() {
+        String head = "x".repeat(LogFrameParser.MAX_LINE_BYTES - 1);
+        parse(StreamType.STDOUT, TS + " " + head + "€tail\n");
+
+        assertThat(messages).extracting(LogMessage::getLine).containsExactly(head, "€tail");
+        assertThat(messages).extracting(LogMessage::getTimestamp).containsOnly(TS);
+    }
+
+    @Test
+    void cutsAnOverLongLineBeforeASequenceBegunInAnEarlierFrame() {
+        byte[] euro = "€".getBytes(StandardCharsets.UTF_8);
+        String head = "x".repeat(LogFrameParser.MAX_LINE_BYTES - 2);
+        parse(StreamType.STDOUT, concat(ascii(TS + " " + head), Arrays.copyOfRange(euro, 0, 1)));
+        parse(StreamType.STDOUT, concat(ascii(TS + " "), Arrays.copyOfRange(euro, 1, 3), ascii("tail\n")));
+
+        assertThat(messages).extracting(LogMessage::getLine).containsExactly(head, "€tail");
+        assertThat(messages).extracting(LogMessage::getTimestamp).containsOnly(TS);
+    }
+
+    private void parse(StreamType streamType, String payload) {
+        parse(streamType, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void parse(StreamType streamType, byte[] payload) {
+        parser.parse(new Frame(streamType, payload), messages::add);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] bytes, byte value) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,287 @@
+package logtracker.pocket.lumenmobileapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+import logtracker.pocket.lumenmobileapp.model.Alert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link NotificationQueue} against a socket SMTP stub, with the real email templates.
+ */
+class NotificationQueueTest {
+
+    private SmtpStub smtp;
+    private NotificationQueue notificationQueue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new SmtpStub();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (notificationQueue != null) {
+            notificationQueue.shutdown();
+        }
+        smtp.close();
+    }
+
+    @Test
+    void sendsTheFirstAlertAtOnceAndTheRestAsOneDigest() {
+        start(emailService(), 2, 20, 5, 1000);
+
+        notificationQueue.enqueue("ops@example.com", alert("web", "CPU"));
+        notificationQueue.enqueue("ops@example.com", alert("web", "MEMORY"));
+        notificationQueue.enqueue("ops@example.com", alert("db", "CPU"));
+
+        await(() -> notificationQueue.getSentCount() == 2, 8000);
+        assertThat(smtp.received).extracting(Received::subject)
+                .containsExactly("🚨 Alert: High CPU usage in web", "🚨 2 alerts on 2 containers");
+        assertThat(smtp.received).extracting(Received::recipient).containsOnly("ops@example.com");
+        // The digest waits for the end of the window opened by the first alert
+        assertThat(smtp.received.get(1).at() - smtp.received.get(0).at()).isGreaterThanOrEqualTo(1500);
+        assertThat(notificationQueue.getSentCount()).isEqualTo(2);
+    }
+
+    @Test
+    void sendsABatchOverOneConnection() {
+        start(emailService(), 60, 20, 5, 1000);
+
+        for (String recipient : List.of("a@example.com", "b@example.com", "c@example.com")) {
+            notificationQueue.enqueue(recipient, alert("web", "CPU"));
+        }
+
+        await(() -> notificationQueue.getSentCount() == 3, 5000);
+        assertThat(smtp.received).extracting(Received::recipient)
+                .containsExactlyInAnyOrder("a@example.com", "b@example.com", "c@example.com");
+        assertThat(smtp.received).extracting(Received::connection).containsOnly(1);
+    }
+
+    @Test
+    void retriesWithExponentialBackoff() {
+        smtp.rejectConnections.set(2);
+        start(emailService(), 60, 20, 5, 300);
+
+        notificationQueue.enqueue("ops@example.com", alert("web", "CPU"));
+
+        await(() -> notificationQueue.getSentCount() == 1, 8000);
+        assertThat(smtp.connectedAt).hasSize(3);
+        assertThat(smtp.connectedAt.get(1) - smtp.connectedAt.get(0)).isGreaterThanOrEqualTo(300);
+        assertThat(smtp.connectedAt.get(2) - smtp.connectedAt.get(1)).isGreaterThanOrEqualTo(600);
+        assertThat(notificationQueue.getSentCount()).isEqualTo(1);
+        assertThat(notificationQueue.getFailedCount()).isZero();
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        smtp.rejectConnections.set(Integer.MAX_VALUE);
+        start(emailService(), 60, 20, 2, 100);
+
+        notificationQueue.enqueue("ops@example.com", alert("web", "CPU"));
+
+        await(() -> notificationQueue.getFailedCount() == 1, 5000);
+        assertThat(smtp.connectedAt).hasSize(2);
+        assertThat(notificationQueue.getSentCount()).isZero();
+    }
+
+    @Test
+    void aMessageThatFailsToRenderDoesNotCostTheRestOfItsBatch() {
+        EmailService emailService = new EmailService(mailSender(), templateEngine()) {
+            @Override
+            public MimeMessage createHtmlMessage(String to, String subject, String templateName, Map<String, Object> variables) throws MessagingException {
+                if (to.startsWith("broken")) {
+                    throw new TemplateProcessingException("Exception evaluating SpringEL expression");
+                }
+                return super.createHtmlMessage(to, subject, templateName, variables);
+            }
+        };
+        ReflectionTestUtils.setField(emailService, "fromEmail", "lumen@example.com");
+        start(emailService, 60, 20, 5, 1000);
+
+        notificationQueue.enqueue("a@example.com", alert("web", "CPU"));
+        notificationQueue.enqueue("broken@example.com", alert("web", "CPU"));
+        notificationQueue.enqueue("c@example.com", alert("web", "CPU"));
+
+        await(() -> notificationQueue.getFailedCount() == 1 && notificationQueue.getSentCount() == 2, 5000);
+        assertThat(smtp.received).extracting(Received::recipient).containsExactlyInAnyOrder("a@example.com", "c@example.com");
+        assertThat(notificationQueue.getSentCount()).isEqualTo(2);
+    }
+
+    private void start(EmailService emailService, int digestSeconds, int batchSize, int maxAttempts, long retryBackoffMs) {
+        notificationQueue = new NotificationQueue(emailService, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(notificationQueue, "queueCapacity", 100);
+        ReflectionTestUtils.setField(notificationQueue, "workerCount", 1);
+        ReflectionTestUtils.setField(notificationQueue, "digestSeconds", digestSeconds);
+        ReflectionTestUtils.setField(notificationQueue, "batchSize", batchSize);
+        ReflectionTestUtils.setField(notificationQueue, "maxAttempts", maxAttempts);
+        ReflectionTestUtils.setField(notificationQueue, "retryBackoffMs", retryBackoffMs);
+        notificationQueue.init();
+    }
+
+    private EmailService emailService() {
+        EmailService emailService = new EmailService(mailSender(), templateEngine());
+        ReflectionTestUtils.setField(emailService, "fromEmail", "lumen@example.com");
+        return emailService;
+    }
+
+    private JavaMailSenderImpl mailSender() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtp.getPort());
+        return mailSender;
+    }
+
+    private static SpringTemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    private static Alert alert(String containerName, String type) {
+        return Alert.builder()
+                .containerId(containerName + "-id")
+                .containerName(containerName)
+                .type(type)
+                .rule(type.toLowerCase())
+                .message("High " + type)
+                .value(91.5)
+                .unit("%")
+                .timestamp(Instant.now())
+                .build();
+    }
+
+    private static void await(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within " + timeoutMillis + " ms");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    private record Received(int connection, String recipient, String subject, long at) {
+    }
+
+    /**
+     * Just enough SMTP for JavaMail: accepts every transaction and records the messages, or turns away
+     * the first {@code rejectConnections} connections with a 421.
+     */
+    private static final class SmtpStub implements AutoCloseable {
+
+        private final ServerSocket server = new ServerSocket(0);
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger rejectConnections = new AtomicInteger();
+        private final List<Long> connectedAt = new CopyOnWriteArrayList<>();
+        private final List<Received> received = new CopyOnWriteArrayList<>();
+
+        private SmtpStub() throws IOException {
+            Thread.ofVirtual().name("smtp-stub").start(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        Thread.ofVirtual().start(() -> serve(socket));
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        int getPort() {
+            return server.getLocalPort();
+        }
+
+        private void serve(Socket socket) {
+            int connection = connections.incrementAndGet();
+            connectedAt.add(System.currentTimeMillis());
+            try (socket) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                OutputStream out = socket.getOutputStream();
+                if (rejectConnections.getAndDecrement() > 0) {
+                    reply(out, "421 Service not available");
+                    return;
+                }
+                reply(out, "220 stub ESMTP");
+                String recipient = null;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("RCPT TO:")) {
+                        recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                        reply(out, "250 OK");
+                    } else if (command.equals("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        StringBuilder data = new StringBuilder();
+                        while (!(line = in.readLine()).equals(".")) {
+                            data.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+                        }
+                        received.add(new Received(connection, recipient, subject(data.toString()), System.currentTimeMillis()));
+                        reply(out, "250 OK");
+                    } else if (command.equals("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException | MessagingException e) {
+                // Connection closed by the client
+            }
+        }
+
+        private static String subject(String data) throws MessagingException {
+            MimeMessage message = new MimeMessage(Session.getInstance(new Properties()),
+                    new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+            return message.getSubject();
+        }
+
+        private static void reply(OutputStream out, String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import logtracker.pocket.lumenmobileapp.model.LogMessage;
+import logtracker.pocket.lumenmobileapp.model.LogSearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogSegmentStoreTest {
+
+    private static final long START = 1_769_344_200_000L;
+
+    @TempDir
+    Path dir;
+
+    private final List<LogSegmentStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(LogSegmentStore::shutdown);
+    }
+
+    @Test
+    void searchesWhatWasWrittenBeforeARestartNewestFirst() {
+        LogSegmentStore store = open(64, 16);
+        line(store, "web", START, "GET /health 200");
+        line(store, "web", START + 1000, "connection error: timeout after 30s");
+        line(store, "db", START + 1500, "checkpoint error ignored");
+        line(store, "web", START + 2000, "GET /orders 500");
+        line(store, "web", START + 3000, "Error: TIMEOUT again");
+        // Flushes the open blocks
+        close(store);
+
+        LogSegmentStore reopened = open(64, 16);
+        LogSearchResult result = reopened.search("web", "timeout error", 0, Long.MAX_VALUE, 10);
+
+        assertThat(result.getLines()).extracting(LogMessage::getLine)
+                .containsExactly("Error: TIMEOUT again", "connection error: timeout after 30s");
+        assertThat(result.getLines()).extracting(LogMessage::getTimestamp)
+                .containsExactly(String.valueOf(START + 3000), String.valueOf(START + 1000));
+        assertThat(result.isTruncated()).isFalse();
+        assertThat(reopened.search("web", "", 0, Long.MAX_VALUE, 10).getLines()).hasSize(4);
+        assertThat(reopened.search("other", "error", 0, Long.MAX_VALUE, 10).getLines()).isEmpty();
+    }
+
+    @Test
+    void skipsBlocksWhoseBloomFilterMissesAToken() {
+        // Every line becomes a block of its own
+        LogSegmentStore store = open(0, 16);
+        line(store, "web", START, "starting worker pool");
+        line(store, "web", START + 1000, "worker 3 panic: nil map");
+        line(store, "web", START + 2000, "worker 4 ready");
+        awaitStored(store, "web", 3);
+
+        LogSearchResult panic = store.search("web", "panic", 0, Long.MAX_VALUE, 10);
+        assertThat(panic.getLines()).extracting(LogMessage::getLine).containsExactly("worker 3 panic: nil map");
+        assertThat(panic.getBlocksScanned()).isEqualTo(1);
+        assertThat(panic.getBlocksSkipped()).isEqualTo(2);
+
+        LogSearchResult missing = store.search("web", "segfault", 0, Long.MAX_VALUE, 10);
+        assertThat(missing.getLines()).isEmpty();
+        assertThat(missing.getBlocksScanned()).isZero();
+        assertThat(missing.getBlocksSkipped()).isEqualTo(3);
+    }
+
+    @Test
+    void searchesATimeRangeAcrossSegments() throws IOException {
+        // Every line becomes a segment of its own
+        LogSegmentStore store = open(0, 0);
+        for (int i = 0; i < 5; i++) {
+            line(store, "web", START + i * 1000L, "request " + i + " done");
+        }
+        awaitStored(store, "web", 5);
+        try (Stream<Path> files = Files.list(dir.resolve("web"))) {
+            assertThat(files.filter(file -> file.toString().endsWith(".log"))).hasSize(5);
+        }
+
+        LogSearchResult range = store.search("web", "done", START + 1000, START + 3000, 10);
+        assertThat(range.getLines()).extracting(LogMessage::getLine).containsExactly("request 3 done", "request 2 done", "request 1 done");
+        assertThat(range.getBlocksScanned()).isEqualTo(3);
+        assertThat(range.getBlocksSkipped()).isEqualTo(2);
+
+        LogSearchResult limited = store.search("web", "done", START + 1000, START + 3000, 2);
+        assertThat(limited.getLines()).extracting(LogMessage::getLine).containsExactly("request 3 done", "request 2 done");
+        assertThat(limited.isTruncated()).isTrue();
+
+        close(store);
+        assertThat(open(0, 0).search("web", "request", START + 500, START + 1500, 10).getLines())
+                .extracting(LogMessage::getLine).containsExactly("request 1 done");
+    }
+
+    @Test
+    void remembersTheLastTimestampToResumeFrom() {
+        LogSegmentStore store = open(64, 16);
+        assertThat(store.lastTimestamp("web")).isZero();
+
+        line(store, "web", START + 2000, "late");
+        line(store, "web", START + 1000, "out of order");
+        // Known as soon as the line is accepted, before it is written
+        assertThat(store.lastTimestamp("web")).isEqualTo(START + 2000);
+        close(store);
+
+        assertThat(open(64, 16).lastTimestamp("web")).isEqualTo(START + 2000);
+    }
+
+    @Test
+    void acceptsNothingWhenDisabled() {
+        LogSegmentStore store = new LogSegmentStore(10);
+        ReflectionTestUtils.setField(store, "enabled", false);
+        ReflectionTestUtils.setField(store, "directory", dir.toString());
+        store.init();
+        stores.add(store);
+
+        line(store, "web", START, "ignored");
+
+        assertThat(store.lastTimestamp("web")).isZero();
+        assertThat(store.getQueuedLines()).isZero();
+    }
+
+    private LogSegmentStore open(int blockKb, int segmentSizeMb) {
+        LogSegmentStore store = new LogSegmentStore(1000);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "directory", dir.toString());
+        ReflectionTestUtils.setField(store, "blockKb", blockKb);
+        // Blocks are flushed when full or on shutdown, never by age
+        ReflectionTestUtils.setField(store, "flushSeconds", 3600);
+        ReflectionTestUtils.setField(store, "segmentSizeMb", segmentSizeMb);
+        ReflectionTestUtils.setField(store, "retentionHours", 168L);
+        store.init();
+        stores.add(store);
+        return store;
+    }
+
+    private void close(LogSegmentStore store) {
+        store.shutdown();
+        stores.remove(store);
+    }
+
+    private static void line(LogSegmentStore store, String containerId, long timestamp, String text) {
+        store.onLogLine(containerId, containerId, LogMessage.builder()
+                .timestamp(String.valueOf(timestamp))
+                .timestampMillis(timestamp)
+                .line(text)
+                .build());
+    }
+
+    // Waits until the writer has stored the lines, so shutting down never interrupts it mid-write
+    private static void awaitStored(LogSegmentStore store, String containerId, int lines) {
+        await(() -> store.search(containerId, "", 0, Long.MAX_VALUE, Integer.MAX_VALUE).getLines().size() == lines, 5000);
+    }
+
+    private static void await(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within " + timeoutMillis + " ms");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class LogSegmentTest {
+
+    private static final long START = 1_769_344_200_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopensItsBlocksFromTheIndex() throws IOException {
+        LogSegment segment = LogSegment.create(dir, START);
+        append(segment, "first block", START + 500, START + 900);
+        append(segment, "second, a bit longer block", START, START + 2000);
+        segment.close();
+
+        LogSegment reopened = LogSegment.open(dir.resolve(START + ".log"));
+        try {
+            assertThat(reopened.blocks()).extracting(LogSegment.Block::minTimestamp, LogSegment.Block::maxTimestamp)
+                    .containsExactly(tuple(START + 500, START + 900), tuple(START, START + 2000));
+            // The range covers all blocks, as lines are not ordered across them
+            assertThat(reopened.minTimestamp()).isEqualTo(START);
+            assertThat(reopened.maxTimestamp()).isEqualTo(START + 2000);
+            assertThat(reopened.sizeInBytes()).isEqualTo("first block".length() + "second, a bit longer block".length());
+            assertThat(text(reopened, 1)).isEqualTo("second, a bit longer block");
+            assertThat(reopened.blocks().get(0).bloom()[1]).isEqualTo(START + 500);
+
+            // Appends continue after the blocks found on disk
+            append(reopened, "third", START + 3000, START + 3000);
+            assertThat(text(reopened, 2)).isEqualTo("third");
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void dropsIndexEntriesWhoseBlockWasNotFullyWritten() throws IOException {
+        LogSegment segment = LogSegment.create(dir, START);
+        append(segment, "complete", START, START + 100);
+        append(segment, "torn by a crash", START + 200, START + 300);
+        segment.close();
+        Path data = dir.resolve(START + ".log");
+        try (FileChannel channel = FileChannel.open(data, StandardOpenOption.WRITE)) {
+            channel.truncate("complete".length() + 4);
+        }
+
+        LogSegment reopened = LogSegment.open(data);
+        try {
+            assertThat(reopened.blocks()).singleElement().extracting(LogSegment.Block::lines).isEqualTo(1);
+            assertThat(reopened.maxTimestamp()).isEqualTo(START + 100);
+            assertThat(reopened.sizeInBytes()).isEqualTo("complete".length());
+
+            // The next block overwrites the torn tail
+            append(reopened, "next", START + 400, START + 400);
+            assertThat(text(reopened, 1)).isEqualTo("next");
+        } finally {
+            reopened.close();
+        }
+        LogSegment again = LogSegment.open(data);
+        assertThat(again.blocks()).hasSize(2);
+        again.close();
+    }
+
+    @Test
+    void deleteRemovesBothFiles() throws IOException {
+        LogSegment segment = LogSegment.create(dir, START);
+        append(segment, "gone", START, START);
+
+        segment.delete();
+
+        assertThat(dir).isEmptyDirectory();
+    }
+
+    @Test
+    void namesSegmentsAfterTheirStart() {
+        assertThat(LogSegment.startTimestamp(dir.resolve(START + ".log"))).isEqualTo(START);
+        assertThat(LogSegment.startTimestamp(dir.resolve("stray.log"))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    // Blocks hold arbitrary bytes here; the bloom filter carries the block's min timestamp as a marker
+    private static void append(LogSegment segment, String payload, long min, long max) throws IOException {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        long[] bloom = new long[TokenBloom.WORDS];
+        bloom[1] = min;
+        segment.append(bytes, bytes.length, min, max, 1, bloom);
+    }
+
+    private static String text(LogSegment segment, int block) throws IOException {
+        return new String(segment.readBlock(segment.blocks().get(block)), StandardCharsets.UTF_8);
+    }
+}
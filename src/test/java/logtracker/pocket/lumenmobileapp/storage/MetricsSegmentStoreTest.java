@@ -0,0 +1,162 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.storage.MetricsSegmentTest.Record;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsSegmentStoreTest {
+
+    private static final String CONTAINER_A = "0123456789abcdef" + "0".repeat(48);
+    private static final String CONTAINER_B = "fedcba9876543210" + "0".repeat(48);
+    private static final long KEY_A = 0x0123456789abcdefL;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    Path dir;
+
+    private final List<MetricsSegmentStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(MetricsSegmentStore::shutdown);
+    }
+
+    @Test
+    void averagesAnIntervalIntoOneRecordThatSurvivesARestart() {
+        MetricsSegmentStore store = open();
+        long before = System.currentTimeMillis();
+        store.onStats("a", stats(CONTAINER_A, 10, 100, 1000, 5));
+        store.onStats("a", stats(CONTAINER_A, 20, 300, 2000, 9));
+        store.onStats("b", stats(CONTAINER_B, 50, 500, 1000, 1));
+        store.onContainerStopped(CONTAINER_A);
+        store.shutdown();
+        stores.remove(store);
+
+        MetricsSegmentStore reopened = open();
+        assertThat(reopened.getSegmentCount()).isEqualTo(1);
+        List<Record> records = read(reopened, CONTAINER_A, 0, Long.MAX_VALUE);
+        // CPU and memory are averaged, the limit and the network counters keep their latest value
+        assertThat(records).singleElement().satisfies(record -> {
+            assertThat(record.timestamp()).isBetween(before, System.currentTimeMillis());
+            assertThat(record).usingRecursiveComparison().ignoringFields("timestamp")
+                    .isEqualTo(new Record(0, 15, 200, 2000, 15, 9, 9));
+        });
+        // Flushed on shutdown
+        assertThat(read(reopened, CONTAINER_B, 0, Long.MAX_VALUE)).extracting(Record::cpu).containsExactly(50.0);
+
+        // Writing resumes in the segment found on disk
+        reopened.onStats("a", stats(CONTAINER_A, 30, 100, 1000, 1));
+        reopened.onContainerStopped(CONTAINER_A);
+        assertThat(read(reopened, CONTAINER_A, 0, Long.MAX_VALUE)).extracting(Record::cpu).containsExactly(15.0, 30.0);
+    }
+
+    @Test
+    void readsARangeAcrossSegmentBoundariesInTimeOrder() throws IOException {
+        long partition = 1_769_342_400_000L;
+        // Index 10 sorts after 2: roll indexes are compared as numbers
+        segment(partition, 0, partition, partition + 10_000);
+        segment(partition, 2, partition + 20_000, partition + 30_000);
+        segment(partition, 10, partition + 40_000, partition + 50_000);
+        segment(partition + HOUR, 0, partition + HOUR, partition + HOUR + 10_000);
+
+        MetricsSegmentStore store = open();
+
+        assertThat(store.getSegmentCount()).isEqualTo(4);
+        assertThat(read(store, CONTAINER_A, partition + 10_000, partition + HOUR)).extracting(Record::timestamp).containsExactly(
+                partition + 10_000, partition + 20_000, partition + 30_000, partition + 40_000, partition + 50_000, partition + HOUR);
+        assertThat(read(store, CONTAINER_A, partition + 15_000, partition + 35_000)).extracting(Record::timestamp)
+                .containsExactly(partition + 20_000, partition + 30_000);
+        assertThat(read(store, CONTAINER_B, partition, partition + HOUR)).isEmpty();
+    }
+
+    @Test
+    void retentionDeletesExpiredSegmentsButNeverTheActiveOne() throws IOException {
+        long now = System.currentTimeMillis();
+        Path expired = segment(now - 5 * HOUR, 0, now - 5 * HOUR, now - 5 * HOUR + 10_000);
+        Path recent = segment(now - HOUR, 0, now - HOUR, now - HOUR + 10_000);
+        Path expiredRoll = segment(now - 3 * HOUR, 7, now - 3 * HOUR, now - 3 * HOUR);
+        // Sorted last by partition, so it becomes the active segment although it expired
+        Path latestPartition = segment(now, 0, now - 2 * HOUR, now - 2 * HOUR);
+
+        MetricsSegmentStore store = open();
+        ReflectionTestUtils.setField(store, "retentionHours", 2L);
+        store.enforceRetention();
+
+        assertThat(expired).doesNotExist();
+        assertThat(expiredRoll).doesNotExist();
+        assertThat(recent).exists();
+        assertThat(latestPartition).exists();
+        assertThat(store.getSegmentCount()).isEqualTo(2);
+        assertThat(read(store, CONTAINER_A, 0, Long.MAX_VALUE)).extracting(Record::timestamp)
+                .containsExactly(now - HOUR, now - HOUR + 10_000, now - 2 * HOUR);
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        MetricsSegmentStore store = new MetricsSegmentStore();
+        ReflectionTestUtils.setField(store, "configuredEnabled", false);
+        ReflectionTestUtils.setField(store, "directory", dir.toString());
+        store.init();
+
+        store.onStats("a", stats(CONTAINER_A, 10, 100, 1000, 5));
+        store.onContainerStopped(CONTAINER_A);
+
+        assertThat(store.isEnabled()).isFalse();
+        assertThat(store.getSegmentCount()).isZero();
+        assertThat(dir).isEmptyDirectory();
+    }
+
+    private MetricsSegmentStore open() {
+        MetricsSegmentStore store = new MetricsSegmentStore();
+        ReflectionTestUtils.setField(store, "configuredEnabled", true);
+        ReflectionTestUtils.setField(store, "directory", dir.toString());
+        ReflectionTestUtils.setField(store, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(store, "partitionMinutes", 60L);
+        ReflectionTestUtils.setField(store, "intervalSeconds", 10L);
+        ReflectionTestUtils.setField(store, "retentionHours", 168L);
+        store.init();
+        stores.add(store);
+        return store;
+    }
+
+    // A segment of container A with one record at each timestamp, 10s apart
+    private Path segment(long partitionStart, int index, long first, long last) throws IOException {
+        Path file = dir.resolve("metrics-" + partitionStart + "-" + index + ".seg");
+        try (MetricsSegment segment = MetricsSegment.create(file, partitionStart, MetricsSegmentTest.size(16))) {
+            for (long timestamp = first; timestamp <= last; timestamp += 10_000) {
+                segment.append(timestamp, KEY_A, 1, 0, 0, 0, 0, 0);
+            }
+        }
+        return file;
+    }
+
+    private static List<Record> read(MetricsSegmentStore store, String containerId, long from, long to) {
+        List<Record> records = new ArrayList<>();
+        store.read(containerId, from, to, (timestamp, cpu, memoryUsage, memoryLimit, memoryPercent, rx, tx) ->
+                records.add(new Record(timestamp, cpu, memoryUsage, memoryLimit, memoryPercent, rx, tx)));
+        return records;
+    }
+
+    private static ContainerStats stats(String containerId, double cpu, long memoryUsage, long memoryLimit, long network) {
+        return ContainerStats.builder()
+                .containerId(containerId)
+                .cpuUsage(cpu)
+                .memoryUsage(memoryUsage)
+                .memoryLimit(memoryLimit)
+                .memoryPercent(cpu)
+                .networkRx(network)
+                .networkTx(network)
+                .build();
+    }
+}
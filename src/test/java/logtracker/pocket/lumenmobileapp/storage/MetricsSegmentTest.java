@@ -0,0 +1,119 @@
+package logtracker.pocket.lumenmobileapp.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsSegmentTest {
+
+    private static final long START = 1_769_344_200_000L;
+    private static final long KEY_A = 0x0123456789abcdefL;
+    private static final long KEY_B = 0x0fedcba987654321L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackWhatWasAppendedAfterReopening() throws IOException {
+        Path file = dir.resolve("metrics-0-0.seg");
+        try (MetricsSegment segment = MetricsSegment.create(file, START, size(16))) {
+            segment.append(START, KEY_A, 1.5, 100, 1000, 10.0, 7, 8);
+            segment.append(START + 10_000, KEY_B, 2.5, 200, 2000, 10.0, 9, 10);
+            segment.append(START + 20_000, KEY_A, 3.5, 300, 1000, 30.0, 11, 12);
+        }
+
+        try (MetricsSegment segment = MetricsSegment.open(file)) {
+            assertThat(segment.partitionStart()).isEqualTo(START);
+            assertThat(segment.firstTimestamp()).isEqualTo(START);
+            assertThat(segment.lastTimestamp()).isEqualTo(START + 20_000);
+            assertThat(read(segment, KEY_A, START, START + 20_000)).containsExactly(
+                    new Record(START, 1.5, 100, 1000, 10.0, 7, 8),
+                    new Record(START + 20_000, 3.5, 300, 1000, 30.0, 11, 12));
+            assertThat(read(segment, 0, START, START + 20_000)).extracting(Record::timestamp)
+                    .containsExactly(START, START + 10_000, START + 20_000);
+
+            // Appends continue after the committed records
+            segment.append(START + 30_000, KEY_B, 4.5, 400, 2000, 20.0, 13, 14);
+            assertThat(read(segment, KEY_B, START, Long.MAX_VALUE)).extracting(Record::timestamp)
+                    .containsExactly(START + 10_000, START + 30_000);
+        }
+    }
+
+    @Test
+    void rangeReadsUseTheSparseIndexWithoutMissingRecords() throws IOException {
+        try (MetricsSegment segment = MetricsSegment.create(dir.resolve("metrics-0-0.seg"), START, size(1000))) {
+            for (int i = 0; i < 1000; i++) {
+                segment.append(START + i * 1000L, KEY_A, i, i, 0, 0, 0, 0);
+            }
+
+            // Bounds inside and on index strides (every 128th record)
+            assertThat(read(segment, KEY_A, START + 300_000, START + 310_000)).extracting(Record::cpu)
+                    .containsExactly(300.0, 301.0, 302.0, 303.0, 304.0, 305.0, 306.0, 307.0, 308.0, 309.0, 310.0);
+            assertThat(read(segment, KEY_A, START + 127_500, START + 129_000)).extracting(Record::cpu)
+                    .containsExactly(128.0, 129.0);
+            assertThat(read(segment, KEY_A, START + 999_000, Long.MAX_VALUE)).extracting(Record::cpu).containsExactly(999.0);
+            assertThat(read(segment, KEY_A, START - 5000, START)).extracting(Record::cpu).containsExactly(0.0);
+            assertThat(read(segment, KEY_A, START + 1_000_000, Long.MAX_VALUE)).isEmpty();
+        }
+    }
+
+    @Test
+    void keepsTheSortOrderOfEqualTimestamps() throws IOException {
+        try (MetricsSegment segment = MetricsSegment.create(dir.resolve("metrics-0-0.seg"), START, size(300))) {
+            for (int i = 0; i < 300; i++) {
+                segment.append(START + (i / 200) * 1000L, KEY_A, i, 0, 0, 0, 0, 0);
+            }
+
+            assertThat(read(segment, KEY_A, START, START)).hasSize(200);
+            assertThat(read(segment, KEY_A, START + 1000, START + 1000)).hasSize(100);
+        }
+    }
+
+    @Test
+    void isFullAtItsCapacity() throws IOException {
+        try (MetricsSegment segment = MetricsSegment.create(dir.resolve("metrics-0-0.seg"), START, size(2))) {
+            assertThat(segment.isEmpty()).isTrue();
+            segment.append(START, KEY_A, 1, 0, 0, 0, 0, 0);
+            assertThat(segment.isFull()).isFalse();
+            segment.append(START + 1, KEY_A, 2, 0, 0, 0, 0, 0);
+            assertThat(segment.isFull()).isTrue();
+        }
+    }
+
+    @Test
+    void rejectsAFileThatIsNotASegment() throws IOException {
+        Path file = Files.write(dir.resolve("metrics-0-0.seg"), new byte[MetricsSegment.HEADER_SIZE]);
+
+        assertThatThrownBy(() -> MetricsSegment.open(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void deleteRemovesTheFile() throws IOException {
+        Path file = dir.resolve("metrics-0-0.seg");
+        MetricsSegment.delete(MetricsSegment.create(file, START, size(1)));
+
+        assertThat(file).doesNotExist();
+    }
+
+    static int size(int records) {
+        return MetricsSegment.HEADER_SIZE + records * MetricsSegment.RECORD_SIZE;
+    }
+
+    static List<Record> read(MetricsSegment segment, long key, long from, long to) {
+        List<Record> records = new ArrayList<>();
+        segment.read(key, from, to, (timestamp, cpu, memoryUsage, memoryLimit, memoryPercent, rx, tx) ->
+                records.add(new Record(timestamp, cpu, memoryUsage, memoryLimit, memoryPercent, rx, tx)));
+        return records;
+    }
+
+    record Record(long timestamp, double cpu, long memoryUsage, long memoryLimit, double memoryPercent, long rx, long tx) {
+    }
+}
@@ -0,0 +1,61 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BitStreamTest {
+
+    @Test
+    void readsValuesThatCrossAWordBoundary() {
+        BitStream stream = new BitStream(1);
+        stream.write(0x0FFF_FFFF_FFFF_FFFFL, 60);
+        stream.write(0b1011_0110_01L, 10);
+        stream.write(0x8000_0000_0000_0001L, 64);
+        stream.writeBit(true);
+
+        BitStream.Reader reader = stream.reader();
+        assertThat(reader.read(60)).isEqualTo(0x0FFF_FFFF_FFFF_FFFFL);
+        assertThat(reader.read(10)).isEqualTo(0b1011_0110_01L);
+        assertThat(reader.read(64)).isEqualTo(0x8000_0000_0000_0001L);
+        assertThat(reader.readBit()).isTrue();
+        assertThat(stream.bitLength()).isEqualTo(135);
+    }
+
+    @Test
+    void keepsOnlyTheRequestedLowBits() {
+        BitStream stream = new BitStream(1);
+        stream.write(-1L, 3);
+        stream.write(0, 5);
+
+        BitStream.Reader reader = stream.reader();
+        assertThat(reader.read(3)).isEqualTo(0b111);
+        assertThat(reader.read(5)).isZero();
+    }
+
+    @Test
+    void roundTripsRandomWidthsAcrossGrowthAndTrim() {
+        Random random = new Random(42);
+        int count = 10_000;
+        long[] values = new long[count];
+        int[] widths = new int[count];
+        BitStream stream = new BitStream(1);
+        for (int i = 0; i < count; i++) {
+            widths[i] = 1 + random.nextInt(64);
+            long value = random.nextLong();
+            values[i] = widths[i] == 64 ? value : value & ((1L << widths[i]) - 1);
+            stream.write(value, widths[i]);
+        }
+        long sizeBefore = stream.sizeInBytes();
+        stream.trim();
+
+        assertThat(stream.sizeInBytes()).isLessThanOrEqualTo(sizeBefore);
+        assertThat(stream.sizeInBytes()).isEqualTo(16L + ((stream.bitLength() + 63) / 64) * 8L);
+        BitStream.Reader reader = stream.reader();
+        for (int i = 0; i < count; i++) {
+            assertThat(reader.read(widths[i])).as("value %d (%d bits)", i, widths[i]).isEqualTo(values[i]);
+        }
+    }
+}
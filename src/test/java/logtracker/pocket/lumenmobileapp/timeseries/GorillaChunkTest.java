@@ -0,0 +1,189 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GorillaChunkTest {
+
+    private static final long START = 1_769_344_200_000L;
+    // Large enough that every delta-of-delta below keeps time moving forward
+    private static final long BASE_DELTA = 10_000;
+
+    /**
+     * Third point's timestamp cost: a '0' for an unchanged delta, else a prefix plus 7, 9, 12 or 64 bits.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "0, 1",
+            "1, 9", "-1, 9",
+            "63, 9", "-64, 9",
+            "64, 12", "-65, 12",
+            "255, 12", "-256, 12",
+            "256, 16", "-257, 16",
+            "2047, 16", "-2048, 16",
+            "2048, 68", "-2049, 68",
+            "1099511627776, 68"
+    })
+    void encodesDeltaOfDeltaInTheSmallestBucket(long deltaOfDelta, int expectedBits) {
+        GorillaChunk chunk = new GorillaChunk(16);
+        chunk.append(START, 1.0);
+        chunk.append(START + BASE_DELTA, 1.0);
+        int before = bitLength(chunk);
+        long third = START + 2 * BASE_DELTA + deltaOfDelta;
+        chunk.append(third, 1.0);
+
+        // One more bit for the unchanged value
+        assertThat(bitLength(chunk) - before).isEqualTo(expectedBits + 1);
+        assertThat(decode(chunk)).containsExactly(
+                new Point(START, 1.0), new Point(START + BASE_DELTA, 1.0), new Point(third, 1.0));
+    }
+
+    @Test
+    void roundTripsIrregularTimestamps() {
+        GorillaChunk chunk = new GorillaChunk(64);
+        List<Point> expected = new ArrayList<>();
+        long timestamp = START;
+        long[] steps = {1000, 1000, 1003, 997, 1060, 1000, 744, 2000, 3000, 1, 0, 70_000, 1000, 999_999_999};
+        for (int i = 0; i < steps.length; i++) {
+            timestamp += steps[i];
+            chunk.append(timestamp, i);
+            expected.add(new Point(timestamp, i));
+        }
+
+        assertThat(decode(chunk)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void reusesThePreviousXorWindowWhenTheMeaningfulBitsFit() {
+        // Same exponent; mantissas .0100, .1110 and .1010
+        double first = 10.0;
+        double second = 15.0;
+        double third = 13.0;
+        long window = Double.doubleToRawLongBits(first) ^ Double.doubleToRawLongBits(second);
+        long next = Double.doubleToRawLongBits(second) ^ Double.doubleToRawLongBits(third);
+        int leading = Math.min(31, Long.numberOfLeadingZeros(window));
+        int trailing = Long.numberOfTrailingZeros(window);
+        assertThat(Long.numberOfLeadingZeros(next)).isGreaterThanOrEqualTo(leading);
+        assertThat(Long.numberOfTrailingZeros(next)).isGreaterThanOrEqualTo(trailing);
+
+        GorillaChunk chunk = new GorillaChunk(16);
+        chunk.append(START, first);
+        chunk.append(START + 1000, second);
+        int before = bitLength(chunk);
+        chunk.append(START + 2000, third);
+
+        // Unchanged delta (1 bit), then '1', '0' and the bits of the previous window
+        assertThat(bitLength(chunk) - before).isEqualTo(1 + 2 + (64 - leading - trailing));
+        assertThat(decode(chunk)).extracting(Point::value).containsExactly(first, second, third);
+    }
+
+    @Test
+    void opensANewXorWindowWhenTheBitsDoNotFit() {
+        GorillaChunk chunk = new GorillaChunk(16);
+        chunk.append(START, 1.0);
+        chunk.append(START + 1000, 1.5);
+        int before = bitLength(chunk);
+        chunk.append(START + 2000, -1.5);
+
+        long xor = Double.doubleToRawLongBits(1.5) ^ Double.doubleToRawLongBits(-1.5);
+        int significant = 64 - Long.numberOfLeadingZeros(xor) - Long.numberOfTrailingZeros(xor);
+        assertThat(bitLength(chunk) - before).isEqualTo(1 + 2 + 5 + 6 + significant);
+        assertThat(decode(chunk)).extracting(Point::value).containsExactly(1.0, 1.5, -1.5);
+    }
+
+    @Test
+    void roundTripsSpecialAndNegativeValuesBitForBit() {
+        double[] values = {0.0, -0.0, -1.0, Double.NaN, Double.NaN, -273.15, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, Math.nextUp(1.0), 1.0,
+                Double.longBitsToDouble(0x7ff8_0000_0000_0001L), 42.0, 42.0};
+        GorillaChunk chunk = new GorillaChunk(values.length);
+        for (int i = 0; i < values.length; i++) {
+            chunk.append(START + i * 1000L, values[i]);
+        }
+
+        List<Point> decoded = decode(chunk);
+        assertThat(decoded).hasSize(values.length);
+        for (int i = 0; i < values.length; i++) {
+            assertThat(Double.doubleToRawLongBits(decoded.get(i).value()))
+                    .as("value %d (%s)", i, values[i])
+                    .isEqualTo(Double.doubleToRawLongBits(values[i]));
+        }
+        assertThat(chunk.isFull()).isTrue();
+    }
+
+    @Test
+    void capsLeadingZerosAtWhatFiveBitsHold() {
+        // Neighbouring doubles differ in the lowest bit only: 63 leading zeros, stored as 31
+        GorillaChunk chunk = new GorillaChunk(16);
+        double value = 1.0;
+        List<Double> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            chunk.append(START + i * 1000L, value);
+            expected.add(value);
+            value = i % 2 == 0 ? Math.nextUp(value) : Math.nextDown(value);
+        }
+
+        assertThat(decode(chunk)).extracting(Point::value).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void clampsTimestampsThatGoBackInTime() {
+        GorillaChunk chunk = new GorillaChunk(16);
+        chunk.append(START, 1.0);
+        chunk.append(START + 1000, 2.0);
+        chunk.append(START + 500, 3.0);
+
+        assertThat(decode(chunk)).extracting(Point::timestamp).containsExactly(START, START + 1000, START + 1000);
+        assertThat(chunk.lastTimestamp()).isEqualTo(START + 1000);
+    }
+
+    @Test
+    void decodesOnlyTheRequestedRange() {
+        GorillaChunk chunk = new GorillaChunk(16);
+        for (int i = 0; i < 10; i++) {
+            chunk.append(START + i * 1000L, i);
+        }
+
+        List<Point> points = new ArrayList<>();
+        chunk.forEach(START + 2500, START + 5000, (timestamp, value) -> points.add(new Point(timestamp, value)));
+        assertThat(points).extracting(Point::value).containsExactly(3.0, 4.0, 5.0);
+
+        List<Point> none = new ArrayList<>();
+        chunk.forEach(START + 10_000, START + 20_000, (timestamp, value) -> none.add(new Point(timestamp, value)));
+        assertThat(none).isEmpty();
+    }
+
+    @Test
+    void sealingKeepsThePoints() {
+        GorillaChunk chunk = new GorillaChunk(256);
+        for (int i = 0; i < 100; i++) {
+            chunk.append(START + i * 1000L, i * 0.25);
+        }
+        List<Point> before = decode(chunk);
+        long size = chunk.sizeInBytes();
+        chunk.seal();
+
+        assertThat(chunk.sizeInBytes()).isLessThanOrEqualTo(size);
+        assertThat(decode(chunk)).containsExactlyElementsOf(before);
+    }
+
+    private static List<Point> decode(GorillaChunk chunk) {
+        List<Point> points = new ArrayList<>();
+        chunk.forEach(Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> points.add(new Point(timestamp, value)));
+        return points;
+    }
+
+    private static int bitLength(GorillaChunk chunk) {
+        return ((BitStream) ReflectionTestUtils.getField(chunk, "bits")).bitLength();
+    }
+
+    private record Point(long timestamp, double value) {
+    }
+}
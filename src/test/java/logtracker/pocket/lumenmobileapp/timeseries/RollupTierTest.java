@@ -0,0 +1,127 @@
+package logtracker.pocket.lumenmobileapp.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupTierTest {
+
+    private static final long WIDTH = 10_000;
+    private static final long START = 1_769_344_200_000L;
+
+    @Test
+    void aggregatesSamplesPerBucketIncludingTheOpenOne() {
+        RollupTier tier = new RollupTier(WIDTH, 8);
+        tier.add(START, 1.0);
+        tier.add(START + 3000, 5.0);
+        tier.add(START + 9999, 3.0);
+        tier.add(START + WIDTH, -2.0);
+
+        assertThat(buckets(tier)).containsExactly(
+                new Bucket(START, 1.0, 5.0, 3.0),
+                new Bucket(START + WIDTH, -2.0, -2.0, -2.0));
+        assertThat(tier.coverageStart()).isEqualTo(START);
+    }
+
+    @Test
+    void foldsLateSamplesIntoTheOpenBucket() {
+        RollupTier tier = new RollupTier(WIDTH, 8);
+        tier.add(START, 1.0);
+        tier.add(START + WIDTH, 2.0);
+        tier.add(START + 500, 10.0);
+
+        assertThat(buckets(tier)).containsExactly(
+                new Bucket(START, 1.0, 1.0, 1.0),
+                new Bucket(START + WIDTH, 2.0, 10.0, 6.0));
+    }
+
+    @Test
+    void growsUpToItsCapacityThenWrapsAround() {
+        int capacity = 40;
+        RollupTier tier = new RollupTier(WIDTH, capacity);
+        long emptySize = tier.sizeInBytes();
+
+        // 17 closed buckets: just past the initial 16 slots
+        fill(tier, 0, 18);
+        assertThat(tier.sizeInBytes()).isGreaterThan(emptySize);
+        assertThat(buckets(tier)).extracting(Bucket::avg).containsExactlyElementsOf(range(0, 18));
+
+        // 39 closed buckets after growing 16 -> 32 -> 40: none dropped yet
+        fill(tier, 18, 40);
+        assertThat(buckets(tier)).extracting(Bucket::avg).containsExactlyElementsOf(range(0, 40));
+
+        // 99 closed buckets through a 40 slot ring: the oldest ones are overwritten
+        fill(tier, 40, 100);
+        List<Bucket> buckets = buckets(tier);
+        assertThat(buckets).extracting(Bucket::avg).containsExactlyElementsOf(range(59, 100));
+        assertThat(buckets).extracting(Bucket::start).isSorted();
+        assertThat(tier.coverageStart()).isEqualTo(START + 59 * WIDTH);
+        assertThat(tier.sizeInBytes()).isEqualTo(96L + capacity * 16L);
+    }
+
+    @Test
+    void selectsBucketsByStartAcrossTheWrap() {
+        RollupTier tier = new RollupTier(WIDTH, 16);
+        fill(tier, 0, 30);
+
+        // A bucket is selected when it overlaps the range, so the one holding 'from' counts
+        List<Bucket> selected = new ArrayList<>();
+        tier.forEach(START + 19 * WIDTH + 1, START + 22 * WIDTH, (start, min, max, avg) -> selected.add(new Bucket(start, min, max, avg)));
+        assertThat(selected).extracting(Bucket::avg).containsExactly(19.0, 20.0, 21.0, 22.0);
+
+        List<Bucket> open = new ArrayList<>();
+        tier.forEach(START + 29 * WIDTH, Long.MAX_VALUE / 2, (start, min, max, avg) -> open.add(new Bucket(start, min, max, avg)));
+        assertThat(open).extracting(Bucket::avg).containsExactly(29.0);
+
+        List<Bucket> evicted = new ArrayList<>();
+        tier.forEach(START, START + 5 * WIDTH, (start, min, max, avg) -> evicted.add(new Bucket(start, min, max, avg)));
+        assertThat(evicted).isEmpty();
+    }
+
+    @Test
+    void storesClosedBucketsAsFloats() {
+        RollupTier tier = new RollupTier(WIDTH, 8);
+        tier.add(START, 0.1);
+        tier.add(START + WIDTH, 0.1);
+
+        List<Bucket> buckets = buckets(tier);
+        assertThat(buckets.get(0).avg()).isEqualTo((double) 0.1f);
+        // The open bucket is still exact
+        assertThat(buckets.get(1).avg()).isEqualTo(0.1);
+    }
+
+    @Test
+    void isEmptyUntilTheFirstSample() {
+        RollupTier tier = new RollupTier(WIDTH, 8);
+
+        assertThat(tier.coverageStart()).isEqualTo(Long.MAX_VALUE);
+        assertThat(buckets(tier)).isEmpty();
+    }
+
+    // One sample per bucket, valued by its index; the last one stays open
+    private static void fill(RollupTier tier, int from, int to) {
+        for (int i = from; i < to; i++) {
+            tier.add(START + i * WIDTH, i);
+        }
+    }
+
+    private static List<Double> range(int from, int to) {
+        List<Double> values = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            values.add((double) i);
+        }
+        return values;
+    }
+
+    private static List<Bucket> buckets(RollupTier tier) {
+        List<Bucket> buckets = new ArrayList<>();
+        tier.forEach(0, Long.MAX_VALUE / 2, (start, min, max, avg) -> buckets.add(new Bucket(start, min, max, avg)));
+        return buckets;
+    }
+
+    private record Bucket(long start, double min, double max, double avg) {
+    }
+}
@@ -0,0 +1,126 @@
+package logtracker.pocket.lumenmobileapp.transport;
+
+import logtracker.pocket.lumenmobileapp.model.ConnectionPoolStats;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionPoolTest {
+
+    @Test
+    void grantsFreeSlotsWithoutWaiting() {
+        ConnectionPool pool = new ConnectionPool("requests", 2, 0, Duration.ofSeconds(5));
+
+        pool.acquire();
+        pool.acquire();
+
+        assertThat(pool.inUse()).isEqualTo(2);
+        assertThat(pool.waits()).isZero();
+        pool.release();
+        assertThat(pool.inUse()).isEqualTo(1);
+    }
+
+    @Test
+    void aQueuedCallerGetsTheNextReleasedSlot() throws Exception {
+        ConnectionPool pool = new ConnectionPool("streams", 1, 1, Duration.ofSeconds(5));
+        pool.acquire();
+
+        CompletableFuture<Void> waiter = CompletableFuture.runAsync(pool::acquire);
+        await(() -> pool.queued() == 1, 2000);
+        assertThat(waiter).isNotDone();
+        pool.release();
+
+        waiter.get(2, TimeUnit.SECONDS);
+        assertThat(pool.inUse()).isEqualTo(1);
+        assertThat(pool.queued()).isZero();
+        assertThat(pool.waits()).isEqualTo(1);
+        assertThat(pool.rejected()).isZero();
+    }
+
+    @Test
+    void turnsAwayCallersBeyondTheQueueAtOnce() throws Exception {
+        ConnectionPool pool = new ConnectionPool("streams", 1, 1, Duration.ofSeconds(5));
+        pool.acquire();
+        CompletableFuture<Void> waiter = CompletableFuture.runAsync(pool::acquire);
+        await(() -> pool.queued() == 1, 2000);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(pool::acquire)
+                .isInstanceOf(PoolExhaustedException.class)
+                .hasMessageContaining("1 in use and 1 waiting");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(pool.rejected()).isEqualTo(1);
+
+        pool.release();
+        waiter.get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void givesUpAfterTheAcquireTimeout() {
+        ConnectionPool pool = new ConnectionPool("requests", 1, 4, Duration.ofMillis(150));
+        pool.acquire();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(pool::acquire)
+                .isInstanceOf(PoolExhaustedException.class)
+                .hasMessageContaining("within 150 ms");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(150);
+        assertThat(pool.queued()).isZero();
+        assertThat(pool.inUse()).isEqualTo(1);
+        ConnectionPoolStats stats = pool.getStats();
+        assertThat(stats.getAcquired()).isEqualTo(1);
+        assertThat(stats.getRejected()).isEqualTo(1);
+        assertThat(stats.getWaits()).isEqualTo(1);
+        assertThat(stats.getMaxWaitMillis()).isGreaterThanOrEqualTo(150);
+    }
+
+    @Test
+    void anInterruptedWaiterIsRejectedAndKeepsItsInterrupt() throws Exception {
+        ConnectionPool pool = new ConnectionPool("requests", 1, 1, Duration.ofSeconds(30));
+        pool.acquire();
+        CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                pool.acquire();
+                interrupted.complete(false);
+            } catch (PoolExhaustedException e) {
+                interrupted.complete(Thread.currentThread().isInterrupted());
+            }
+        });
+        await(() -> pool.queued() == 1, 2000);
+
+        waiter.interrupt();
+
+        assertThat(interrupted.get(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(pool.queued()).isZero();
+        assertThat(pool.inUse()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAnInvalidSize() {
+        assertThatThrownBy(() -> new ConnectionPool("requests", 0, 0, Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ConnectionPool("requests", 1, -1, Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void await(BooleanSupplier condition, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not met within " + timeoutMillis + " ms");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
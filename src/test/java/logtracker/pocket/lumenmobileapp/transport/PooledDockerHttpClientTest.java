@@ -0,0 +1,125 @@
+package logtracker.pocket.lumenmobileapp.transport;
+
+import com.github.dockerjava.transport.DockerHttpClient;
+import com.github.dockerjava.transport.DockerHttpClient.Request;
+import com.github.dockerjava.transport.DockerHttpClient.Response;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PooledDockerHttpClientTest {
+
+    private final DockerHttpClient delegate = mock(DockerHttpClient.class);
+    private final ConnectionPool pool = new ConnectionPool("requests", 1, 0, Duration.ofMillis(100));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PooledDockerHttpClient client = new PooledDockerHttpClient(delegate, pool, meterRegistry, "requests");
+
+    @Test
+    void holdsTheSlotUntilTheResponseIsClosed() {
+        Response upstream = response(200);
+        when(delegate.execute(any())).thenReturn(upstream);
+
+        Response response = client.execute(request(Request.Method.GET, "/v1.43/containers/abc/logs?follow=1"));
+
+        assertThat(pool.inUse()).isEqualTo(1);
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        // A second caller finds the pool full while the stream is open
+        assertThatThrownBy(() -> client.execute(request(Request.Method.GET, "/v1.43/version")))
+                .isInstanceOf(PoolExhaustedException.class);
+        verify(delegate, times(1)).execute(any());
+
+        response.close();
+        response.close();
+        assertThat(pool.inUse()).isZero();
+        verify(upstream, times(2)).close();
+    }
+
+    @Test
+    void releasesTheSlotWhenClosingTheResponseFails() {
+        Response upstream = response(200);
+        doThrow(new UncheckedIOException("reset", new IOException("reset"))).when(upstream).close();
+        when(delegate.execute(any())).thenReturn(upstream);
+
+        Response response = client.execute(request(Request.Method.GET, "/_ping"));
+
+        assertThatThrownBy(response::close).isInstanceOf(UncheckedIOException.class);
+        assertThat(pool.inUse()).isZero();
+    }
+
+    @Test
+    void releasesTheSlotWhenTheDelegateThrows() {
+        when(delegate.execute(any())).thenThrow(new IllegalStateException("connection refused"));
+
+        assertThatThrownBy(() -> client.execute(request(Request.Method.POST, "/v1.43/containers/abc/start")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("connection refused");
+
+        assertThat(pool.inUse()).isZero();
+        assertThat(timer("POST /containers/{id}/start", "error").count()).isEqualTo(1);
+    }
+
+    @Test
+    void timesRequestsByCommandAndStatusClass() {
+        when(delegate.execute(any())).thenAnswer(invocation -> response(404));
+
+        client.execute(request(Request.Method.GET, "/v1.43/containers/abc/json")).close();
+        client.execute(request(Request.Method.GET, "/v1.43/containers/def/json")).close();
+
+        assertThat(timer("GET /containers/{id}/json", "4xx").count()).isEqualTo(2);
+        assertThat(meterRegistry.find("lumen.docker.requests").timers()).hasSize(1);
+    }
+
+    @ParameterizedTest(name = "{0} {1}")
+    @CsvSource(delimiterString = "=>", value = {
+            // The API version and the query are dropped
+            "GET    => /v1.43/containers/json?all=1                 => GET /containers/json",
+            "GET    => /v1.43/version                               => GET /version",
+            "HEAD   => /_ping                                       => HEAD /_ping",
+            "GET    => /events?filters=%7B%7D                       => GET /events",
+            // Ids and names become {id}, the action stays
+            "POST   => /v1.43/containers/4f1c2b9e8d7a/start         => POST /containers/{id}/start",
+            "GET    => /v1.43/containers/web/logs?follow=1          => GET /containers/{id}/logs",
+            "DELETE => /v1.43/containers/web?force=true             => DELETE /containers/{id}",
+            "POST   => /v1.43/exec/9a8b/start                       => POST /exec/{id}/start",
+            "DELETE => /v1.43/networks/backend                      => DELETE /networks/{id}",
+            // Collection actions are not ids
+            "POST   => /v1.43/containers/create?name=web            => POST /containers/create",
+            "POST   => /v1.43/images/create?fromImage=nginx         => POST /images/create",
+            "POST   => /v1.43/volumes/prune                         => POST /volumes/prune",
+            // Image names with a registry, namespace and tag
+            "GET    => /v1.43/images/registry:5000/team/app:1.0/json => GET /images/{id}/json",
+            "POST   => /v1.43/images/team/app/push?tag=1.0          => POST /images/{id}/push"
+    })
+    void normalizesTheRequestLine(String method, String path, String expected) {
+        assertThat(PooledDockerHttpClient.command(method, path)).isEqualTo(expected);
+    }
+
+    private Timer timer(String command, String status) {
+        return meterRegistry.get("lumen.docker.requests").tag("command", command).tag("status", status).tag("pool", "requests").timer();
+    }
+
+    private static Request request(Request.Method method, String path) {
+        return Request.builder().method(method).path(path).build();
+    }
+
+    private static Response response(int status) {
+        Response response = mock(Response.class);
+        when(response.getStatusCode()).thenReturn(status);
+        return response;
+    }
+}
@@ -0,0 +1,67 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads {@link StatsFrameEncoder} frames the way a client does: keyframes carry absolute values, deltas
+ * are added to the previous frame of the session.
+ */
+final class StatsFrameDecoder {
+
+    record Frame(int type, long timestamp, String containerId, long cpu, long memoryUsage, long memoryLimit,
+                 long memoryPercent, long networkRx, long networkTx) {
+    }
+
+    private final long[] values = new long[7];
+    private String containerId;
+    private byte[] frame;
+    private int position;
+
+    Frame decode(byte[] bytes) {
+        frame = bytes;
+        position = 0;
+        int version = frame[position++];
+        if (version != StatsFrameEncoder.VERSION) {
+            throw new IllegalArgumentException("Unknown frame version " + version);
+        }
+        int type = frame[position++];
+        if (type == StatsFrameEncoder.KEYFRAME) {
+            values[0] = readVarint();
+            int length = (int) readVarint();
+            containerId = new String(frame, position, length, StandardCharsets.UTF_8);
+            position += length;
+            for (int i = 1; i < values.length; i++) {
+                values[i] = unzigzag(readVarint());
+            }
+        } else if (type == StatsFrameEncoder.DELTA) {
+            if (containerId == null) {
+                throw new IllegalStateException("Delta frame before the first keyframe");
+            }
+            for (int i = 0; i < values.length; i++) {
+                values[i] += unzigzag(readVarint());
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown frame type " + type);
+        }
+        if (position != frame.length) {
+            throw new IllegalArgumentException((frame.length - position) + " trailing bytes");
+        }
+        return new Frame(type, values[0], containerId, values[1], values[2], values[3], values[4], values[5], values[6]);
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = frame[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint longer than 10 bytes");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
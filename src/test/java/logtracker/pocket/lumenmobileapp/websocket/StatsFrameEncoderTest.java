@@ -0,0 +1,132 @@
+package logtracker.pocket.lumenmobileapp.websocket;
+
+import logtracker.pocket.lumenmobileapp.model.ContainerStats;
+import logtracker.pocket.lumenmobileapp.websocket.StatsFrameDecoder.Frame;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsFrameEncoderTest {
+
+    private static final long START = 1_769_344_200_000L;
+    private static final String ID = "4f1c2b9e8d7a";
+
+    private final StatsFrameEncoder encoder = new StatsFrameEncoder();
+    private final StatsFrameDecoder decoder = new StatsFrameDecoder();
+
+    @Test
+    void roundTripsAKeyframeFollowedByDeltas() {
+        byte[] keyframe = encoder.encode(START, stats(12.345, 150_000_000, 8_000_000_000L, 1.87, 5000, 3000));
+        byte[] delta = encoder.encode(START + 1000, stats(13.5, 150_004_096, 8_000_000_000L, 1.88, 6500, 3100));
+
+        assertThat(keyframe).startsWith(StatsFrameEncoder.VERSION, StatsFrameEncoder.KEYFRAME);
+        assertThat(delta).startsWith(StatsFrameEncoder.VERSION, StatsFrameEncoder.DELTA);
+        // Percentages travel as hundredths, rounded
+        assertThat(decoder.decode(keyframe)).isEqualTo(
+                new Frame(StatsFrameEncoder.KEYFRAME, START, ID, 1235, 150_000_000, 8_000_000_000L, 187, 5000, 3000));
+        assertThat(decoder.decode(delta)).isEqualTo(
+                new Frame(StatsFrameEncoder.DELTA, START + 1000, ID, 1350, 150_004_096, 8_000_000_000L, 188, 6500, 3100));
+        // Small changes cost a byte or two per field
+        assertThat(delta).hasSizeLessThanOrEqualTo(2 + 7 * 2);
+    }
+
+    @Test
+    void decodesNegativeDeltas() {
+        List<ContainerStats> samples = List.of(
+                stats(80, 900_000, 1_000_000, 90, 1_000_000, 2_000_000),
+                // Load drops, memory is freed and the counters restart with the container's network namespace
+                stats(0, 100, 1_000_000, 0.01, 0, 12),
+                stats(0.5, 100, 0, 0, 5, 12),
+                stats(99.99, Long.MAX_VALUE, Long.MAX_VALUE, 100, Long.MAX_VALUE, 0));
+        long[] timestamps = {START, START - 5000, START - 5000, START + 1};
+
+        List<Frame> frames = new ArrayList<>();
+        for (int i = 0; i < samples.size(); i++) {
+            frames.add(decoder.decode(encoder.encode(timestamps[i], samples.get(i))));
+        }
+
+        assertThat(frames).extracting(Frame::timestamp).containsExactly(START, START - 5000, START - 5000, START + 1);
+        assertThat(frames).extracting(Frame::cpu).containsExactly(8000L, 0L, 50L, 9999L);
+        assertThat(frames).extracting(Frame::memoryUsage).containsExactly(900_000L, 100L, 100L, Long.MAX_VALUE);
+        assertThat(frames).extracting(Frame::memoryLimit).containsExactly(1_000_000L, 1_000_000L, 0L, Long.MAX_VALUE);
+        assertThat(frames).extracting(Frame::memoryPercent).containsExactly(9000L, 1L, 0L, 10000L);
+        assertThat(frames).extracting(Frame::networkRx).containsExactly(1_000_000L, 0L, 5L, Long.MAX_VALUE);
+        assertThat(frames).extracting(Frame::networkTx).containsExactly(2_000_000L, 12L, 12L, 0L);
+    }
+
+    @ParameterizedTest(name = "delta of {0} takes {1} bytes")
+    @CsvSource({
+            "0, 1", "-1, 1", "63, 1", "-64, 1",
+            "64, 2", "-65, 2", "8191, 2", "-8192, 2",
+            "8192, 3",
+            "-9223372036854775807, 10"
+    })
+    void zigzagKeepsSmallDeltasOfEitherSignShort(long delta, int bytes) {
+        long base = delta < 0 ? Long.MAX_VALUE : 0;
+        decoder.decode(encoder.encode(START, stats(0, 0, 0, 0, base, 0)));
+        byte[] frame = encoder.encode(START, stats(0, 0, 0, 0, base + delta, 0));
+
+        // Header, six unchanged fields and the rx delta
+        assertThat(frame).hasSize(2 + 6 + bytes);
+        assertThat(decoder.decode(frame).networkRx()).isEqualTo(base + delta);
+    }
+
+    @Test
+    void sendsAKeyframeEveryInterval() {
+        List<Integer> keyframes = new ArrayList<>();
+        for (int i = 0; i < 2 * StatsFrameEncoder.KEYFRAME_INTERVAL + 5; i++) {
+            Frame frame = decoder.decode(encoder.encode(START + i * 1000L, stats(i % 7, 1000 - i, 4096, i % 3, i * 100L, i)));
+            if (frame.type() == StatsFrameEncoder.KEYFRAME) {
+                keyframes.add(i);
+            }
+            assertThat(frame.timestamp()).isEqualTo(START + i * 1000L);
+            assertThat(frame.memoryUsage()).isEqualTo(1000 - i);
+            assertThat(frame.networkRx()).isEqualTo(i * 100L);
+        }
+
+        assertThat(keyframes).containsExactly(0, StatsFrameEncoder.KEYFRAME_INTERVAL, 2 * StatsFrameEncoder.KEYFRAME_INTERVAL);
+    }
+
+    @Test
+    void aKeyframeLetsALateClientStartDecoding() {
+        for (int i = 0; i < StatsFrameEncoder.KEYFRAME_INTERVAL - 1; i++) {
+            encoder.encode(START + i, stats(1, 1, 1, 1, i, 1));
+        }
+        byte[] delta = encoder.encode(START, stats(1, 1, 1, 1, 1, 1));
+        assertThat(delta[1]).isEqualTo((byte) StatsFrameEncoder.DELTA);
+        byte[] keyframe = encoder.encode(START + 100, stats(2, 3, 4, 5, 6, 7));
+
+        StatsFrameDecoder late = new StatsFrameDecoder();
+        assertThatThrownBy(() -> late.decode(delta)).isInstanceOf(IllegalStateException.class);
+        assertThat(late.decode(keyframe)).isEqualTo(new Frame(StatsFrameEncoder.KEYFRAME, START + 100, ID, 200, 3, 4, 500, 6, 7));
+    }
+
+    @Test
+    void writesLongIdsWithAMultiByteLength() {
+        String id = "é".repeat(100);
+        ContainerStats stats = stats(1, 1, 1, 1, 1, 1);
+        stats.setContainerId(id);
+
+        byte[] frame = encoder.encode(START, stats);
+
+        assertThat(decoder.decode(frame).containerId()).isEqualTo(id);
+    }
+
+    private static ContainerStats stats(double cpu, long memoryUsage, long memoryLimit, double memoryPercent, long rx, long tx) {
+        return ContainerStats.builder()
+                .containerId(ID)
+                .cpuUsage(cpu)
+                .memoryUsage(memoryUsage)
+                .memoryLimit(memoryLimit)
+                .memoryPercent(memoryPercent)
+                .networkRx(rx)
+                .networkTx(tx)
+                .build();
+    }
+}